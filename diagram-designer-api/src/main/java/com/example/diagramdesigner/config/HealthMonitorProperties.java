@@ -0,0 +1,90 @@
+package com.example.diagramdesigner.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+@ConfigurationProperties(prefix = "health-monitor")
+public class HealthMonitorProperties {
+
+    private List<String> services = new ArrayList<>(List.of("hdfswatcher", "textproc", "embedproc"));
+    private boolean includeDiscovered = true;
+    private String discoveredHealthPath = "/actuator/health";
+    private List<String> exclude = new ArrayList<>();
+    private long discoveryRefreshMs = 30000;
+    private long intervalMs = 10000;
+    private long minIntervalMs = 2000;
+    private long maxIntervalMs = 60000;
+    private long timeoutMs = 2000;
+    private long jitterMs = 1000;
+    private int maxConcurrentProbes = 32;
+    private long tickMs = 100;
+    private int wheelSize = 512;
+    private int historySize = 4096;
+    private Map<String, Long> serviceIntervalsMs = new HashMap<>();
+
+    /**
+     * Starting probe interval for a service, falling back to the default interval.
+     */
+    public long intervalFor(String serviceName) {
+        return serviceIntervalsMs.getOrDefault(serviceName, intervalMs);
+    }
+
+    /**
+     * Services with an explicit interval keep it instead of adapting.
+     */
+    public boolean isAdaptive(String serviceName) {
+        return !serviceIntervalsMs.containsKey(serviceName);
+    }
+
+    // Getters and setters
+    public List<String> getServices() { return services; }
+    public void setServices(List<String> services) { this.services = services; }
+
+    public boolean isIncludeDiscovered() { return includeDiscovered; }
+    public void setIncludeDiscovered(boolean includeDiscovered) { this.includeDiscovered = includeDiscovered; }
+
+    public String getDiscoveredHealthPath() { return discoveredHealthPath; }
+    public void setDiscoveredHealthPath(String discoveredHealthPath) { this.discoveredHealthPath = discoveredHealthPath; }
+
+    public List<String> getExclude() { return exclude; }
+    public void setExclude(List<String> exclude) { this.exclude = exclude; }
+
+    public long getDiscoveryRefreshMs() { return discoveryRefreshMs; }
+    public void setDiscoveryRefreshMs(long discoveryRefreshMs) { this.discoveryRefreshMs = discoveryRefreshMs; }
+
+    public long getIntervalMs() { return intervalMs; }
+    public void setIntervalMs(long intervalMs) { this.intervalMs = intervalMs; }
+
+    public long getMinIntervalMs() { return minIntervalMs; }
+    public void setMinIntervalMs(long minIntervalMs) { this.minIntervalMs = minIntervalMs; }
+
+    public long getMaxIntervalMs() { return maxIntervalMs; }
+    public void setMaxIntervalMs(long maxIntervalMs) { this.maxIntervalMs = maxIntervalMs; }
+
+    public long getTimeoutMs() { return timeoutMs; }
+    public void setTimeoutMs(long timeoutMs) { this.timeoutMs = timeoutMs; }
+
+    public long getJitterMs() { return jitterMs; }
+    public void setJitterMs(long jitterMs) { this.jitterMs = jitterMs; }
+
+    public int getMaxConcurrentProbes() { return maxConcurrentProbes; }
+    public void setMaxConcurrentProbes(int maxConcurrentProbes) { this.maxConcurrentProbes = maxConcurrentProbes; }
+
+    public long getTickMs() { return tickMs; }
+    public void setTickMs(long tickMs) { this.tickMs = tickMs; }
+
+    public int getWheelSize() { return wheelSize; }
+    public void setWheelSize(int wheelSize) { this.wheelSize = wheelSize; }
+
+    public int getHistorySize() { return historySize; }
+    public void setHistorySize(int historySize) { this.historySize = historySize; }
+
+    public Map<String, Long> getServiceIntervalsMs() { return serviceIntervalsMs; }
+    public void setServiceIntervalsMs(Map<String, Long> serviceIntervalsMs) { this.serviceIntervalsMs = serviceIntervalsMs; }
+}
@@ -0,0 +1,49 @@
+package com.example.diagramdesigner.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "metric-store")
+public class MetricStoreProperties {
+
+    private boolean enabled = true;
+    private String directory = "data/metrics";
+    private int retentionDays = 14;
+    private int segmentMinutes = 360;
+    private long flushIntervalMs = 60000;
+    private List<Integer> rollupMinutes = List.of(5, 60);
+    private int queryParallelism = 0; // 0 = number of processors
+    private int queryMaxSeries = 50;
+    private int queryMaxPoints = 5000;
+
+    // Getters and setters
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public String getDirectory() { return directory; }
+    public void setDirectory(String directory) { this.directory = directory; }
+
+    public int getRetentionDays() { return retentionDays; }
+    public void setRetentionDays(int retentionDays) { this.retentionDays = retentionDays; }
+
+    public int getSegmentMinutes() { return segmentMinutes; }
+    public void setSegmentMinutes(int segmentMinutes) { this.segmentMinutes = segmentMinutes; }
+
+    public long getFlushIntervalMs() { return flushIntervalMs; }
+    public void setFlushIntervalMs(long flushIntervalMs) { this.flushIntervalMs = flushIntervalMs; }
+
+    public List<Integer> getRollupMinutes() { return rollupMinutes; }
+    public void setRollupMinutes(List<Integer> rollupMinutes) { this.rollupMinutes = rollupMinutes; }
+
+    public int getQueryParallelism() { return queryParallelism; }
+    public void setQueryParallelism(int queryParallelism) { this.queryParallelism = queryParallelism; }
+
+    public int getQueryMaxSeries() { return queryMaxSeries; }
+    public void setQueryMaxSeries(int queryMaxSeries) { this.queryMaxSeries = queryMaxSeries; }
+
+    public int getQueryMaxPoints() { return queryMaxPoints; }
+    public void setQueryMaxPoints(int queryMaxPoints) { this.queryMaxPoints = queryMaxPoints; }
+}
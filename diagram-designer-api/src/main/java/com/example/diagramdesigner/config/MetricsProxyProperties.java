@@ -10,6 +10,16 @@ public class MetricsProxyProperties {
     private int timeoutMs = 10000;
     private boolean enableCaching = true;
     private int cacheTtlMs = 30000;
+    private long streamTickMs = 2000;
+    private int streamChecksumEvery = 15;
+    private int streamConcurrency = 16;
+    private int streamMaxSeries = 2000;
+    private long streamIdleTtlMs = 600000;
+    private long snapshotTtlMs = 2000;
+    private long historySampleIntervalMs = 10000;
+    private int historyCapacity = 2160;
+    private int historyMaxSeries = 500;
+    private long rateWindowMs = 60000;
 
     // Getters and setters
     public int getTimeoutMs() { return timeoutMs; }
@@ -20,4 +30,34 @@ public class MetricsProxyProperties {
 
     public int getCacheTtlMs() { return cacheTtlMs; }
     public void setCacheTtlMs(int cacheTtlMs) { this.cacheTtlMs = cacheTtlMs; }
-}
\ No newline at end of file
+
+    public long getStreamTickMs() { return streamTickMs; }
+    public void setStreamTickMs(long streamTickMs) { this.streamTickMs = streamTickMs; }
+
+    public int getStreamChecksumEvery() { return streamChecksumEvery; }
+    public void setStreamChecksumEvery(int streamChecksumEvery) { this.streamChecksumEvery = streamChecksumEvery; }
+
+    public int getStreamConcurrency() { return streamConcurrency; }
+    public void setStreamConcurrency(int streamConcurrency) { this.streamConcurrency = streamConcurrency; }
+
+    public int getStreamMaxSeries() { return streamMaxSeries; }
+    public void setStreamMaxSeries(int streamMaxSeries) { this.streamMaxSeries = streamMaxSeries; }
+
+    public long getStreamIdleTtlMs() { return streamIdleTtlMs; }
+    public void setStreamIdleTtlMs(long streamIdleTtlMs) { this.streamIdleTtlMs = streamIdleTtlMs; }
+
+    public long getSnapshotTtlMs() { return snapshotTtlMs; }
+    public void setSnapshotTtlMs(long snapshotTtlMs) { this.snapshotTtlMs = snapshotTtlMs; }
+
+    public long getHistorySampleIntervalMs() { return historySampleIntervalMs; }
+    public void setHistorySampleIntervalMs(long historySampleIntervalMs) { this.historySampleIntervalMs = historySampleIntervalMs; }
+
+    public int getHistoryCapacity() { return historyCapacity; }
+    public void setHistoryCapacity(int historyCapacity) { this.historyCapacity = historyCapacity; }
+
+    public int getHistoryMaxSeries() { return historyMaxSeries; }
+    public void setHistoryMaxSeries(int historyMaxSeries) { this.historyMaxSeries = historyMaxSeries; }
+
+    public long getRateWindowMs() { return rateWindowMs; }
+    public void setRateWindowMs(long rateWindowMs) { this.rateWindowMs = rateWindowMs; }
+}
@@ -0,0 +1,19 @@
+package com.example.diagramdesigner.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "pipeline-progress")
+public class PipelineProgressProperties {
+
+    private long cacheTtlMs = 5000;
+    private long rateWindowMs = 300000;
+
+    // Getters and setters
+    public long getCacheTtlMs() { return cacheTtlMs; }
+    public void setCacheTtlMs(long cacheTtlMs) { this.cacheTtlMs = cacheTtlMs; }
+
+    public long getRateWindowMs() { return rateWindowMs; }
+    public void setRateWindowMs(long rateWindowMs) { this.rateWindowMs = rateWindowMs; }
+}
@@ -0,0 +1,34 @@
+package com.example.diagramdesigner.config;
+
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Broker topology for {@code sse.bus.type=rabbitmq}: one durable fanout exchange
+ * shared by all instances and an exclusive auto-delete queue per instance.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "sse.bus", name = "type", havingValue = "rabbitmq")
+public class RabbitEventBusConfig {
+
+    @Bean
+    public FanoutExchange sseBusExchange(SseProperties properties) {
+        return new FanoutExchange(properties.getBus().getExchange(), true, false);
+    }
+
+    @Bean
+    public Queue sseBusQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding sseBusBinding(Queue sseBusQueue, FanoutExchange sseBusExchange) {
+        return BindingBuilder.bind(sseBusQueue).to(sseBusExchange);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.diagramdesigner.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+@ConfigurationProperties(prefix = "service-client")
+public class ServiceClientProperties {
+
+    private long connectTimeoutMs = 2000;
+    private long timeoutMs = 5000;
+    private int retries = 0;
+    private long retryBackoffMs = 200;
+    private Map<String, Operation> operations = new HashMap<>();
+
+    /**
+     * Read timeout for an operation, falling back to the default.
+     */
+    public long timeoutFor(String operation) {
+        Operation settings = operations.get(operation);
+        return settings != null && settings.getTimeoutMs() != null ? settings.getTimeoutMs() : timeoutMs;
+    }
+
+    /**
+     * Extra attempts after a connection failure, timeout or 5xx, falling back to the default.
+     */
+    public int retriesFor(String operation) {
+        Operation settings = operations.get(operation);
+        return settings != null && settings.getRetries() != null ? settings.getRetries() : retries;
+    }
+
+    // Getters and setters
+    public long getConnectTimeoutMs() { return connectTimeoutMs; }
+    public void setConnectTimeoutMs(long connectTimeoutMs) { this.connectTimeoutMs = connectTimeoutMs; }
+
+    public long getTimeoutMs() { return timeoutMs; }
+    public void setTimeoutMs(long timeoutMs) { this.timeoutMs = timeoutMs; }
+
+    public int getRetries() { return retries; }
+    public void setRetries(int retries) { this.retries = retries; }
+
+    public long getRetryBackoffMs() { return retryBackoffMs; }
+    public void setRetryBackoffMs(long retryBackoffMs) { this.retryBackoffMs = retryBackoffMs; }
+
+    public Map<String, Operation> getOperations() { return operations; }
+    public void setOperations(Map<String, Operation> operations) { this.operations = operations; }
+
+    public static class Operation {
+        private Long timeoutMs;
+        private Integer retries;
+
+        public Long getTimeoutMs() { return timeoutMs; }
+        public void setTimeoutMs(Long timeoutMs) { this.timeoutMs = timeoutMs; }
+
+        public Integer getRetries() { return retries; }
+        public void setRetries(Integer retries) { this.retries = retries; }
+    }
+}
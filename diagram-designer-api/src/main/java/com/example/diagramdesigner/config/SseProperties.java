@@ -0,0 +1,63 @@
+package com.example.diagramdesigner.config;
+
+import com.example.diagramdesigner.service.SseClient;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sse")
+public class SseProperties {
+
+    private long heartbeatIntervalMs = 5000;
+    private int clientQueueCapacity = 256;
+    private SseClient.OverflowPolicy overflowPolicy = SseClient.OverflowPolicy.DROP_OLDEST;
+    private int replayBufferSize = 1024;
+    private long ingestFlushIntervalMs = 250;
+    private int ingestMaxEventsPerFlush = 200;
+    private int ingestMaxBatchSize = 5000;
+    private Bus bus = new Bus();
+
+    // Getters and setters
+    public long getHeartbeatIntervalMs() { return heartbeatIntervalMs; }
+    public void setHeartbeatIntervalMs(long heartbeatIntervalMs) { this.heartbeatIntervalMs = heartbeatIntervalMs; }
+
+    public int getClientQueueCapacity() { return clientQueueCapacity; }
+    public void setClientQueueCapacity(int clientQueueCapacity) { this.clientQueueCapacity = clientQueueCapacity; }
+
+    public SseClient.OverflowPolicy getOverflowPolicy() { return overflowPolicy; }
+    public void setOverflowPolicy(SseClient.OverflowPolicy overflowPolicy) { this.overflowPolicy = overflowPolicy; }
+
+    public int getReplayBufferSize() { return replayBufferSize; }
+    public void setReplayBufferSize(int replayBufferSize) { this.replayBufferSize = replayBufferSize; }
+
+    public long getIngestFlushIntervalMs() { return ingestFlushIntervalMs; }
+    public void setIngestFlushIntervalMs(long ingestFlushIntervalMs) { this.ingestFlushIntervalMs = ingestFlushIntervalMs; }
+
+    public int getIngestMaxEventsPerFlush() { return ingestMaxEventsPerFlush; }
+    public void setIngestMaxEventsPerFlush(int ingestMaxEventsPerFlush) { this.ingestMaxEventsPerFlush = ingestMaxEventsPerFlush; }
+
+    public int getIngestMaxBatchSize() { return ingestMaxBatchSize; }
+    public void setIngestMaxBatchSize(int ingestMaxBatchSize) { this.ingestMaxBatchSize = ingestMaxBatchSize; }
+
+    public Bus getBus() { return bus; }
+    public void setBus(Bus bus) { this.bus = bus; }
+
+    public static class Bus {
+        private String type = "memory";
+        private String exchange = "imc-demo.sse-events";
+        private long batchIntervalMs = 50;
+        private int batchMaxSize = 500;
+
+        public String getType() { return type; }
+        public void setType(String type) { this.type = type; }
+
+        public String getExchange() { return exchange; }
+        public void setExchange(String exchange) { this.exchange = exchange; }
+
+        public long getBatchIntervalMs() { return batchIntervalMs; }
+        public void setBatchIntervalMs(long batchIntervalMs) { this.batchIntervalMs = batchIntervalMs; }
+
+        public int getBatchMaxSize() { return batchMaxSize; }
+        public void setBatchMaxSize(int batchMaxSize) { this.batchMaxSize = batchMaxSize; }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.diagramdesigner.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Static resource handling for the built frontend.
+ *
+ * Vite puts a content hash in the name of every file it bundles into {@code /assets/},
+ * so such a file never changes at its URL and browsers may keep it for a year without
+ * revalidating. {@code /assets/icons/} is the exception: those files are copied from
+ * {@code frontend/public} under their own names and referenced by diagram configs, so
+ * a replaced icon keeps its URL. They are served {@code no-cache} and revalidated by
+ * Last-Modified. index.html, which names the current hashes, is served by
+ * {@link com.example.diagramdesigner.controller.SpaController} with an ETag instead.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler("/assets/icons/**")
+                .addResourceLocations("classpath:/static/assets/icons/")
+                .setCacheControl(CacheControl.noCache());
+        registry.addResourceHandler("/assets/**")
+                .addResourceLocations("classpath:/static/assets/")
+                .setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable());
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.diagramdesigner.controller;
+
+import com.example.diagramdesigner.service.CompressedPayload;
+import com.example.diagramdesigner.service.DetailPageCache;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Serves node detail pages ({@code /configs/details/*.html}), which the detail modal
+ * loads in an iframe.
+ *
+ * Clients that accept gzip or brotli get a precompressed copy from memory. Others get
+ * the file from disk with zero-copy sendfile when Tomcat offers it, and streamed
+ * otherwise. Other files under {@code /configs/details} are still served as static
+ * resources.
+ */
+@RestController
+public class DetailPageController {
+
+    private static final Logger logger = LoggerFactory.getLogger(DetailPageController.class);
+
+    // Request attributes Tomcat uses to hand a file to the connector's sendfile support
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final MediaType TEXT_HTML_UTF8 = MediaType.parseMediaType("text/html;charset=UTF-8");
+
+    private final DetailPageCache detailPageCache;
+
+    @Autowired
+    public DetailPageController(DetailPageCache detailPageCache) {
+        this.detailPageCache = detailPageCache;
+    }
+
+    @GetMapping("/configs/details/{filename:.+\\.html}")
+    public ResponseEntity<?> getDetailPage(@PathVariable String filename,
+                                           @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                           HttpServletRequest request) {
+        if (filename.contains("..")) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            Path file = detailPageCache.file(filename);
+            boolean compressed = CompressedPayload.accepts(acceptEncoding, "gzip")
+                    || CompressedPayload.accepts(acceptEncoding, "br");
+
+            if (file != null && !compressed) {
+                long size = Files.size(file);
+                ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                        .contentType(TEXT_HTML_UTF8)
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+                    // Tomcat writes the file itself once the headers are committed
+                    request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+                    request.setAttribute(SENDFILE_START, 0L);
+                    request.setAttribute(SENDFILE_END, size);
+                    return builder.contentLength(size).build();
+                }
+                return builder.body(new FileSystemResource(file));
+            }
+
+            CompressedPayload payload = detailPageCache.payload(filename);
+            if (payload == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return payload.toResponse(acceptEncoding, TEXT_HTML_UTF8);
+        } catch (IOException e) {
+            logger.error("Error reading detail page {}: {}", filename, e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
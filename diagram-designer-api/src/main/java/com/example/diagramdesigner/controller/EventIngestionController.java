@@ -0,0 +1,53 @@
+package com.example.diagramdesigner.controller;
+
+import com.example.diagramdesigner.config.SseProperties;
+import com.example.diagramdesigner.service.EventIngestionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ingestion endpoint for progress events pushed by hdfswatcher, textproc and embedproc.
+ *
+ * Events are conflated per app and stage and broadcast to SSE clients on a fixed
+ * cadence, so callers may post at high rates without producing one frame per event.
+ */
+@RestController
+@RequestMapping("/api/events")
+public class EventIngestionController {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventIngestionController.class);
+
+    private final EventIngestionService eventIngestionService;
+    private final SseProperties properties;
+
+    @Autowired
+    public EventIngestionController(EventIngestionService eventIngestionService, SseProperties properties) {
+        this.eventIngestionService = eventIngestionService;
+        this.properties = properties;
+    }
+
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> ingestEvents(@RequestBody List<EventIngestionService.EventDto> events) {
+        if (events.size() > properties.getIngestMaxBatchSize()) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "Batch too large",
+                    "maxBatchSize", properties.getIngestMaxBatchSize()
+            ));
+        }
+
+        int accepted = eventIngestionService.ingest(events);
+        logger.debug("Ingested {} of {} events", accepted, events.size());
+
+        return ResponseEntity.accepted().body(Map.of(
+                "accepted", accepted,
+                "rejected", events.size() - accepted,
+                "pending", eventIngestionService.pendingCount()
+        ));
+    }
+}
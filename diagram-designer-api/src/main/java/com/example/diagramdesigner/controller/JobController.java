@@ -0,0 +1,36 @@
+package com.example.diagramdesigner.controller;
+
+import com.example.diagramdesigner.service.JobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/jobs")
+public class JobController {
+
+    private final JobService jobService;
+
+    @Autowired
+    public JobController(JobService jobService) {
+        this.jobService = jobService;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<Map<String, Object>>> getJobs() {
+        return ResponseEntity.ok(jobService.getRecentJobs().stream().map(JobService.Job::toMap).toList());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> getJob(@PathVariable String id) {
+        JobService.Job job = jobService.getJob(id);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Job not found: " + id));
+        }
+        return ResponseEntity.ok(job.toMap());
+    }
+}
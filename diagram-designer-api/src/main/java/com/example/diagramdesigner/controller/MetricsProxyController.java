@@ -1,16 +1,33 @@
 package com.example.diagramdesigner.controller;
 
+import com.example.diagramdesigner.config.MetricStoreProperties;
+import com.example.diagramdesigner.config.SseProperties;
+import com.example.diagramdesigner.service.DiagramIndex;
+import com.example.diagramdesigner.service.MetricHistoryService;
+import com.example.diagramdesigner.service.MetricQueryService;
 import com.example.diagramdesigner.service.MetricsProxyService;
+import com.example.diagramdesigner.service.MetricsStreamService;
 import com.example.diagramdesigner.service.ServiceDiscovery;
+import com.example.diagramdesigner.service.SseClient;
+import com.example.diagramdesigner.service.SseFrame;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RestController
 @RequestMapping("/api")
@@ -21,11 +38,29 @@ public class MetricsProxyController {
 
     private final MetricsProxyService metricsProxyService;
     private final ServiceDiscovery serviceDiscovery;
+    private final MetricsStreamService metricsStreamService;
+    private final SseProperties sseProperties;
+    private final DiagramIndex diagramIndex;
+    private final MetricHistoryService metricHistoryService;
+    private final MetricQueryService metricQueryService;
+    private final MetricStoreProperties metricStoreProperties;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public MetricsProxyController(MetricsProxyService metricsProxyService, ServiceDiscovery serviceDiscovery) {
+    public MetricsProxyController(MetricsProxyService metricsProxyService, ServiceDiscovery serviceDiscovery,
+                                  MetricsStreamService metricsStreamService, SseProperties sseProperties,
+                                  DiagramIndex diagramIndex, MetricHistoryService metricHistoryService,
+                                  MetricQueryService metricQueryService, MetricStoreProperties metricStoreProperties,
+                                  ObjectMapper objectMapper) {
         this.metricsProxyService = metricsProxyService;
         this.serviceDiscovery = serviceDiscovery;
+        this.metricsStreamService = metricsStreamService;
+        this.sseProperties = sseProperties;
+        this.diagramIndex = diagramIndex;
+        this.metricHistoryService = metricHistoryService;
+        this.metricQueryService = metricQueryService;
+        this.metricStoreProperties = metricStoreProperties;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/health")
@@ -40,22 +75,28 @@ public class MetricsProxyController {
     @GetMapping("/metrics")
     public Mono<ResponseEntity<Object>> proxyMetrics(
             @RequestParam("url") String targetUrl,
-            @RequestParam(value = "node", required = false) String nodeName) {
+            @RequestParam(value = "node", required = false) String nodeName,
+            @RequestParam(value = "field", required = false) String valueField,
+            @RequestParam(value = "derive", required = false) String derive) {
         logger.info("Received metrics proxy request for URL: {} (node: {})", targetUrl, nodeName);
 
         if (!StringUtils.hasText(targetUrl)) {
             return Mono.just(ResponseEntity.badRequest()
                     .body(Map.of("error", "URL parameter is required")));
         }
+        if (derive != null && (!"rate".equals(derive) || !StringUtils.hasText(valueField))) {
+            return Mono.just(ResponseEntity.badRequest()
+                    .body(Map.of("error", "derive supports only 'rate', together with a field")));
+        }
 
         String resolvedUrl = targetUrl;
 
         // Check if this is a service name that needs resolution
-        if (!isValidUrl(targetUrl)) {
+        if (!serviceDiscovery.isHttpUrl(targetUrl)) {
             // This might be a service name - try to resolve it
-            if (isServiceName(targetUrl)) {
+            if (serviceDiscovery.isServiceReference(targetUrl)) {
                 logger.info("Detected service name pattern: {}, attempting to resolve", targetUrl);
-                resolvedUrl = resolveServiceUrl(targetUrl);
+                resolvedUrl = serviceDiscovery.resolveServiceReference(targetUrl);
                 if (resolvedUrl == null) {
                     return Mono.just(ResponseEntity.status(404)
                             .body(Map.of("error", "Service not found in registry: " + targetUrl)));
@@ -67,19 +108,162 @@ public class MetricsProxyController {
             }
         }
 
+        if (StringUtils.hasText(valueField)) {
+            metricsStreamService.track(targetUrl, resolvedUrl, valueField, nodeName);
+        }
+
+        if (derive != null) {
+            // The counter's per-second rate, worked out from samples the proxy already holds
+            return metricHistoryService.derivedRate(targetUrl, resolvedUrl, valueField, nodeName)
+                    .map(derived -> ResponseEntity.ok((Object) derived));
+        }
         return metricsProxyService.proxyRequest(resolvedUrl, nodeName);
     }
 
+    /**
+     * Delta-encoded push of every metric requested with a {@code field}: a snapshot
+     * on connect, then only changed values. See {@link MetricsStreamService}.
+     */
+    @GetMapping("/metrics/stream")
+    public SseEmitter streamMetrics() {
+        SseEmitter emitter = new SseEmitter(Long.MAX_VALUE);
+        // Deltas cannot be skipped, so a client that falls behind is cut off and resyncs on reconnect
+        SseClient client = new SseClient(UUID.randomUUID().toString(), emitter,
+                sseProperties.getClientQueueCapacity(), SseClient.OverflowPolicy.DISCONNECT, Set.of());
+
+        emitter.onCompletion(client::close);
+        emitter.onTimeout(client::close);
+        emitter.onError((e) -> client.close());
+
+        client.start(metricsStreamService::unsubscribe);
+        metricsStreamService.subscribe(client);
+        return emitter;
+    }
+
+    @PostMapping("/metrics/stream/{clientId}/resync")
+    public ResponseEntity<Map<String, Object>> resyncMetrics(@PathVariable String clientId) {
+        if (!metricsStreamService.resync(clientId)) {
+            return ResponseEntity.status(404).body(Map.of("error", "Unknown metrics stream client: " + clientId));
+        }
+        return ResponseEntity.accepted().body(Map.of("clientId", clientId));
+    }
+
+    /**
+     * Recorded values of one metric, as min/max/avg per {@code step} ms (see
+     * {@link MetricHistoryService}). Without {@code url} and {@code field}, lists the
+     * metrics that have history.
+     */
+    @GetMapping("/metrics/history")
+    public ResponseEntity<Object> metricHistory(
+            @RequestParam(value = "url", required = false) String url,
+            @RequestParam(value = "field", required = false) String valueField,
+            @RequestParam(value = "from", required = false) Long from,
+            @RequestParam(value = "to", required = false) Long to,
+            @RequestParam(value = "step", required = false) Long step) {
+        if (!StringUtils.hasText(url) && !StringUtils.hasText(valueField)) {
+            return ResponseEntity.ok(Map.of("metrics", metricHistoryService.list(),
+                    "store", metricHistoryService.storeStats()));
+        }
+        if (!StringUtils.hasText(url) || !StringUtils.hasText(valueField)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Both url and field are required"));
+        }
+
+        Map<String, Object> history = metricHistoryService.history(url, valueField, from, to, step);
+        if (history == null) {
+            return ResponseEntity.status(404).body(Map.of("error", "No history recorded for " + url + " " + valueField));
+        }
+        return ResponseEntity.ok(history);
+    }
+
+    /**
+     * Stored history of several metrics, each {@code series} given as {@code <url>#<field>},
+     * aggregated per {@code step} ms over {@code [from, to)} (default: the last day, see
+     * {@link MetricQueryService#defaultStep}). Streams one {@code series} event per
+     * metric as it is ready, then {@code done}. A {@code from} older than retained
+     * history is moved up to it; {@code done} reports the range actually queried.
+     * See {@link MetricQueryService}.
+     */
+    @GetMapping("/metrics/query")
+    public ResponseEntity<Object> queryMetrics(
+            @RequestParam(value = "series", required = false) List<String> series,
+            @RequestParam(value = "from", required = false) Long from,
+            @RequestParam(value = "to", required = false) Long to,
+            @RequestParam(value = "step", required = false) Long step,
+            @RequestParam(value = "aggregation", defaultValue = "avg") String aggregationName) {
+        MetricQueryService.Aggregation aggregation = MetricQueryService.Aggregation.parse(aggregationName);
+        long end = to != null ? to : System.currentTimeMillis() + 1;
+        long requestedStart = from != null ? from : end - 86_400_000L;
+        long start = metricQueryService.clampFrom(requestedStart, end);
+        long bucket = step != null ? step : metricQueryService.defaultStep(start, end);
+
+        if (!metricQueryService.isAvailable()) {
+            return ResponseEntity.status(503).body(Map.of("error", "The metric store is disabled"));
+        }
+        if (series == null || series.isEmpty() || series.stream().anyMatch(key -> key.lastIndexOf('#') <= 0)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "series must be given as <url>#<field>"));
+        }
+        if (series.size() > metricStoreProperties.getQueryMaxSeries()) {
+            return ResponseEntity.badRequest().body(Map.of("error",
+                    "At most " + metricStoreProperties.getQueryMaxSeries() + " series per query"));
+        }
+        if (aggregation == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "aggregation must be avg, min, max, last or p95"));
+        }
+        if (bucket <= 0 || requestedStart >= end) {
+            return ResponseEntity.badRequest().body(Map.of("error", "step must be positive and from before to"));
+        }
+
+        MetricQueryService.Query query = new MetricQueryService.Query(List.copyOf(series), start, end, bucket, aggregation);
+        if (query.buckets() > metricStoreProperties.getQueryMaxPoints()) {
+            return ResponseEntity.badRequest().body(Map.of("error",
+                    "At most " + metricStoreProperties.getQueryMaxPoints() + " buckets per series; use a larger step"));
+        }
+
+        SseEmitter emitter = new SseEmitter(Long.MAX_VALUE);
+        AtomicBoolean closed = new AtomicBoolean();
+        emitter.onCompletion(() -> closed.set(true));
+        emitter.onTimeout(() -> closed.set(true));
+        emitter.onError(e -> closed.set(true));
+
+        long started = System.currentTimeMillis();
+        metricQueryService.query(query, result -> send(emitter, closed, "series", result), closed::get)
+                .whenComplete((ignored, error) -> {
+                    Map<String, Object> done = new LinkedHashMap<>();
+                    done.put("series", query.keys().size());
+                    done.put("from", query.from());
+                    done.put("to", query.to());
+                    done.put("step", query.step());
+                    done.put("aggregation", aggregationName.toLowerCase(Locale.ROOT));
+                    done.put("elapsedMs", System.currentTimeMillis() - started);
+                    if (error != null) {
+                        done.put("error", error.getMessage());
+                    }
+                    send(emitter, closed, "done", done);
+                    emitter.complete();
+                });
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * Write one event; series finish on different pool threads, so writes are serialized.
+     */
+    private void send(SseEmitter emitter, AtomicBoolean closed, String name, Map<String, Object> data) {
+        synchronized (emitter) {
+            if (closed.get()) {
+                return;
+            }
+            try {
+                SseFrame.encode(objectMapper, name, data).writeTo(emitter);
+            } catch (IOException e) {
+                logger.debug("Metric query client went away: {}", e.getMessage());
+                closed.set(true);
+            }
+        }
+    }
+
     @GetMapping("/list-diagrams")
     public ResponseEntity<Object> listDiagrams() {
-        // Return a simple list of available diagram files
-        // This could be expanded to scan the configs directory dynamically
-        return ResponseEntity.ok(Map.of(
-                "diagrams", new String[]{
-                        "diagram-config.json",
-                        "Telemetry-Processing.json"
-                }
-        ));
+        return ResponseEntity.ok(Map.of("diagrams", diagramIndex.list()));
     }
 
     @GetMapping("/service-url/{serviceName}")
@@ -134,63 +318,6 @@ public class MetricsProxyController {
         }
     }
 
-    private boolean isValidUrl(String url) {
-        try {
-            java.net.URI uri = java.net.URI.create(url);
-            return uri.getScheme() != null && (uri.getScheme().equals("http") || uri.getScheme().equals("https"));
-        } catch (Exception e) {
-            logger.warn("Invalid URL provided: {}", url, e);
-            return false;
-        }
-    }
-
-    private boolean isServiceName(String input) {
-        // Check if this looks like a service name format
-        // Service names typically:
-        // - Don't start with http:// or https:// (those are full URLs)
-        // - May have a path after the service name
-        // - Match pattern: service-name or service-name/path
-
-        if (input.startsWith("http://") || input.startsWith("https://")) {
-            return false;
-        }
-
-        // Generic pattern for service names: letters, numbers, hyphens, optionally followed by a path
-        return input.matches("^[a-zA-Z0-9-]+(/.*)?$");
-    }
-
-    private String resolveServiceUrl(String serviceInput) {
-        try {
-            // Extract service name from input like "imc-db-server/api/db01/fleet/summary"
-            String serviceName;
-            String remainingPath = "";
-
-            if (serviceInput.contains("/")) {
-                String[] parts = serviceInput.split("/", 2);
-                serviceName = parts[0];
-                remainingPath = "/" + parts[1];
-            } else {
-                serviceName = serviceInput;
-            }
-
-            logger.debug("Attempting to resolve service: {} with path: {}", serviceName, remainingPath);
-
-            String baseUrl = serviceDiscovery.discoverServiceUrl(serviceName);
-            if (baseUrl != null) {
-                // Ensure baseUrl doesn't end with "/" to avoid double slashes
-                if (baseUrl.endsWith("/")) {
-                    baseUrl = baseUrl.substring(0, baseUrl.length() - 1);
-                }
-                return baseUrl + remainingPath;
-            }
-
-            return null;
-        } catch (Exception e) {
-            logger.error("Error resolving service URL for input: {}", serviceInput, e);
-            return null;
-        }
-    }
-
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleException(Exception e) {
         logger.error("Unexpected error in metrics proxy controller", e);
@@ -1,60 +1,260 @@
 package com.example.diagramdesigner.controller;
 
+import com.example.diagramdesigner.config.SseProperties;
+import com.example.diagramdesigner.service.EventBus;
+import com.example.diagramdesigner.service.SseClient;
+import com.example.diagramdesigner.service.SseFrame;
+import com.example.diagramdesigner.service.SseReplayBuffer;
+import com.example.diagramdesigner.service.SseTopicIndex;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.ConnectableFlux;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
 
-import java.io.IOException;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.Date;
 import java.util.HashMap;
-import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 @Controller
 public class SSEController {
 
-    private final CopyOnWriteArrayList<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private static final Logger logger = LoggerFactory.getLogger(SSEController.class);
+
+    private final Map<String, SseClient> clients = new ConcurrentHashMap<>();
+    private final Map<String, List<Meter>> clientMeters = new ConcurrentHashMap<>();
+    private final SseTopicIndex topicIndex = new SseTopicIndex();
+    private final Map<String, Supplier<Object>> snapshotSources = new ConcurrentHashMap<>();
+    // Guards event ID assignment, the replay buffer and topic fan-out so a resuming
+    // client is subscribed at exactly the point its replay ends
+    private final Object broadcastLock = new Object();
+    private final SseReplayBuffer replayBuffer;
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    // Best-effort multicast: a subscriber without demand misses frames instead of stalling the others
+    private final Sinks.Many<SseFrame> reactiveSink = Sinks.many().multicast().directBestEffort();
+    private final Counter reactiveDropped;
+    private final SseProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+    private final EventBus eventBus;
+
+    @Autowired
+    public SSEController(SseProperties properties, MeterRegistry meterRegistry, ObjectMapper objectMapper,
+                         EventBus eventBus) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.objectMapper = objectMapper;
+        this.eventBus = eventBus;
+        // IDs start from the boot time so they keep increasing across restarts and a
+        // client holding an ID from a previous process is treated as a gap
+        this.replayBuffer = new SseReplayBuffer(properties.getReplayBufferSize(), startTime * 1000);
+        Gauge.builder("sse.clients", clients, Map::size)
+                .description("Connected SSE clients")
+                .register(meterRegistry);
+        Gauge.builder("sse.topics", topicIndex, SseTopicIndex::topicCount)
+                .description("Distinct topics with at least one SSE subscriber")
+                .register(meterRegistry);
+        Gauge.builder("sse.reactive.subscribers", reactiveSink, Sinks.Many::currentSubscriberCount)
+                .description("Subscribers connected to the reactive SSE stream")
+                .register(meterRegistry);
+        this.reactiveDropped = Counter.builder("sse.reactive.dropped")
+                .description("Frames dropped because a reactive SSE subscriber fell behind")
+                .register(meterRegistry);
+
+        // Events raised on other instances get local IDs here, like locally raised ones
+        eventBus.subscribe(this::onRemoteEvent);
 
-    public SSEController() {
         // Start heartbeat scheduler
         startHeartbeat();
     }
 
+    /**
+     * Open an event stream. With {@code topics} (comma-separated, e.g.
+     * {@code app:textproc,node:telegen,diagram:Crash-Processing.json}) only matching
+     * message events are delivered; heartbeats always are.
+     *
+     * A reconnecting client passes the last event ID it saw, either as the standard
+     * {@code Last-Event-ID} header or as a {@code lastEventId} parameter, and receives
+     * the events it missed. When they are no longer buffered it gets a single
+     * {@code SNAPSHOT} message instead and resumes from there.
+     */
     @GetMapping("/stream")
-    public SseEmitter stream() {
+    public SseEmitter stream(@RequestParam(value = "topics", required = false) String topics,
+                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+                             @RequestParam(value = "lastEventId", required = false) String lastEventIdParam) {
         SseEmitter emitter = new SseEmitter(Long.MAX_VALUE);
+        SseClient client = new SseClient(UUID.randomUUID().toString(), emitter,
+                properties.getClientQueueCapacity(), properties.getOverflowPolicy(),
+                SseTopicIndex.parseTopics(topics));
 
-        emitter.onCompletion(() -> emitters.remove(emitter));
-        emitter.onTimeout(() -> emitters.remove(emitter));
-        emitter.onError((e) -> emitters.remove(emitter));
+        emitter.onCompletion(client::close);
+        emitter.onTimeout(client::close);
+        emitter.onError((e) -> client.close());
 
-        emitters.add(emitter);
+        clients.put(client.getId(), client);
+        registerClientMeters(client);
+        client.start(this::removeClient);
 
         // Send initial connection event
-        try {
-            Map<String, Object> initEvent = new HashMap<>();
-            initEvent.put("event", "INIT");
-            initEvent.put("timestamp", System.currentTimeMillis());
-            initEvent.put("instanceId", UUID.randomUUID().toString());
-            initEvent.put("message", "Connected to SSE stream");
-
-            emitter.send(SseEmitter.event()
-                .name("message")
-                .data(initEvent, MediaType.APPLICATION_JSON));
-        } catch (IOException e) {
-            emitters.remove(emitter);
-            emitter.completeWithError(e);
+        SseFrame initFrame = initFrame(client.getId(), client.getTopics());
+
+        Long lastEventId = parseEventId(lastEventIdHeader != null ? lastEventIdHeader : lastEventIdParam);
+        if (lastEventId != null) {
+            if (initFrame != null) {
+                client.offer(initFrame);
+            }
+            if (!canResumeFrom(lastEventId)) {
+                // Built outside the lock; anything broadcast meanwhile is replayed below
+                long snapshotId = latestEventId();
+                SseFrame snapshot = buildSnapshot(lastEventId, snapshotId);
+                if (snapshot != null) {
+                    client.offer(snapshot);
+                }
+                lastEventId = snapshotId;
+            }
+        }
+
+        synchronized (broadcastLock) {
+            if (lastEventId == null) {
+                // Carry the current ID so a client that sees no messages can still resume from here
+                if (initFrame != null) {
+                    client.offer(initFrame.withId(replayBuffer.latestId()));
+                }
+            } else if (replayBuffer.canReplayFrom(lastEventId)) {
+                for (SseFrame missed : replayBuffer.framesAfter(lastEventId)) {
+                    if (client.matches(missed)) {
+                        client.offer(missed);
+                    }
+                }
+            }
+            topicIndex.subscribe(client);
         }
 
         return emitter;
     }
 
+    /**
+     * Register state to include in {@code SNAPSHOT} events sent to clients that
+     * reconnect after missing more events than the replay buffer holds.
+     */
+    public void registerSnapshotSource(String name, Supplier<Object> source) {
+        snapshotSources.put(name, source);
+    }
+
+    /**
+     * Reactive variant of {@link #stream(String, String, String)} with the same event
+     * names and payloads, topic filter and resume from a last event ID.
+     *
+     * Subscribers share one multicast sink and hold no thread while idle; each has a
+     * bounded buffer that drops its oldest frames when the client cannot keep up.
+     */
+    @GetMapping(value = "/stream/reactive", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> reactiveStream(
+            @RequestParam(value = "topics", required = false) String topics,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader,
+            @RequestParam(value = "lastEventId", required = false) String lastEventIdParam) {
+        Set<String> subscribed = SseTopicIndex.parseTopics(topics);
+        Long lastEventId = parseEventId(lastEventIdHeader != null ? lastEventIdHeader : lastEventIdParam);
+
+        return Flux.defer(() -> {
+            // Connect before reading the replay buffer so no frame falls between the two;
+            // live frames the replay already covered are skipped by ID below
+            ConnectableFlux<SseFrame> live = reactiveSink.asFlux()
+                    .onBackpressureBuffer(properties.getClientQueueCapacity(),
+                            dropped -> reactiveDropped.increment(),
+                            BufferOverflowStrategy.DROP_OLDEST)
+                    .publish();
+            Disposable connection = live.connect();
+
+            List<SseFrame> opening = new ArrayList<>();
+            SseFrame initFrame = initFrame(UUID.randomUUID().toString(), subscribed);
+            Long resumeFrom = lastEventId;
+            if (resumeFrom != null) {
+                if (initFrame != null) {
+                    opening.add(initFrame);
+                }
+                if (!canResumeFrom(resumeFrom)) {
+                    long snapshotId = latestEventId();
+                    SseFrame snapshot = buildSnapshot(resumeFrom, snapshotId);
+                    if (snapshot != null) {
+                        opening.add(snapshot);
+                    }
+                    resumeFrom = snapshotId;
+                }
+            }
+
+            long replayedThrough;
+            synchronized (broadcastLock) {
+                replayedThrough = replayBuffer.latestId();
+                if (resumeFrom == null) {
+                    if (initFrame != null) {
+                        opening.add(initFrame.withId(replayedThrough));
+                    }
+                } else if (replayBuffer.canReplayFrom(resumeFrom)) {
+                    for (SseFrame missed : replayBuffer.framesAfter(resumeFrom)) {
+                        if (SseTopicIndex.matches(subscribed, missed.topics())) {
+                            opening.add(missed);
+                        }
+                    }
+                }
+            }
+
+            // Heartbeats carry no ID and go to every subscriber
+            Flux<SseFrame> matching = live.filter(frame -> frame.id() <= 0
+                    || (frame.id() > replayedThrough && SseTopicIndex.matches(subscribed, frame.topics())));
+            return Flux.concat(Flux.fromIterable(opening), matching)
+                    .doFinally(signal -> connection.dispose());
+        }).map(frame -> ServerSentEvent.builder(frame.json())
+                .id(frame.id() > 0 ? Long.toString(frame.id()) : null)
+                .event(frame.name())
+                .build());
+    }
+
+    @GetMapping("/stream/clients")
+    @ResponseBody
+    public List<Map<String, Object>> listClients() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (SseClient client : clients.values()) {
+            result.add(Map.of(
+                "id", client.getId(),
+                "connectedAt", client.getConnectedAt(),
+                "topics", client.getTopics(),
+                "queueDepth", client.getQueueDepth(),
+                "sent", client.getSentCount(),
+                "dropped", client.getDroppedCount()
+            ));
+        }
+        return result;
+    }
+
     private void startHeartbeat() {
         scheduler.scheduleAtFixedRate(() -> {
             Map<String, Object> heartbeat = new HashMap<>();
@@ -64,29 +264,168 @@ public class SSEController {
             heartbeat.put("message", "System heartbeat");
             heartbeat.put("uptime", getUptime());
 
-            broadcastEvent("heartbeat", heartbeat);
-        }, 0, 5, TimeUnit.SECONDS);
+            SseFrame frame = encode("heartbeat", heartbeat);
+            if (frame != null) {
+                clients.values().forEach(client -> client.offer(frame));
+                synchronized (broadcastLock) {
+                    reactiveSink.emitNext(frame, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+                }
+            }
+        }, 0, properties.getHeartbeatIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    private void broadcastEvent(String eventName, Map<String, Object> data, boolean relay) {
+        // Serialize once; each matching client's writer thread writes the same bytes
+        SseFrame encoded = encode(eventName, data);
+        if (encoded == null) {
+            return;
+        }
+
+        deliver(encoded);
+        if (relay) {
+            eventBus.publish(encoded.name(), encoded.json());
+        }
+    }
+
+    private void onRemoteEvent(EventBus.Envelope envelope) {
+        try {
+            deliver(SseFrame.decode(objectMapper, envelope.eventName(), envelope.json()));
+        } catch (JsonProcessingException e) {
+            logger.warn("Discarding malformed event from instance {}: {}", envelope.origin(), e.getMessage());
+        }
+    }
+
+    private void deliver(SseFrame encoded) {
+        synchronized (broadcastLock) {
+            SseFrame frame = encoded.withId(replayBuffer.latestId() + 1);
+            replayBuffer.append(frame);
+            topicIndex.forEachMatching(frame.topics(), client -> client.offer(frame));
+            // Emitted under the lock so reactive subscribers see ids in order; directBestEffort never blocks
+            reactiveSink.emitNext(frame, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+        }
+    }
+
+    private long latestEventId() {
+        synchronized (broadcastLock) {
+            return replayBuffer.latestId();
+        }
+    }
+
+    private boolean canResumeFrom(long lastEventId) {
+        synchronized (broadcastLock) {
+            // Replays larger than a client queue would overflow it, so snapshot instead
+            return replayBuffer.canReplayFrom(lastEventId)
+                    && replayBuffer.latestId() - lastEventId < properties.getClientQueueCapacity();
+        }
     }
 
-    private void broadcastEvent(String eventName, Map<String, Object> data) {
-        emitters.forEach(emitter -> {
+    private SseFrame buildSnapshot(long lastEventId, long snapshotId) {
+        Map<String, Object> state = new HashMap<>();
+        snapshotSources.forEach((name, source) -> {
             try {
-                emitter.send(SseEmitter.event()
-                    .name(eventName)
-                    .data(data, MediaType.APPLICATION_JSON));
-            } catch (IOException e) {
-                emitters.remove(emitter);
+                state.put(name, source.get());
+            } catch (Exception e) {
+                logger.warn("Snapshot source {} failed: {}", name, e.getMessage());
+                state.put(name, Map.of("error", String.valueOf(e.getMessage())));
             }
         });
+
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("event", "SNAPSHOT");
+        snapshot.put("timestamp", System.currentTimeMillis());
+        snapshot.put("lastEventId", lastEventId);
+        snapshot.put("latestEventId", snapshotId);
+        snapshot.put("message", "Missed events are no longer buffered; resync from this snapshot");
+        snapshot.put("state", state);
+
+        SseFrame frame = encode("message", snapshot);
+        return frame != null ? frame.withId(snapshotId) : null;
+    }
+
+    private SseFrame initFrame(String clientId, Set<String> topics) {
+        Map<String, Object> initEvent = new HashMap<>();
+        initEvent.put("event", "INIT");
+        initEvent.put("timestamp", System.currentTimeMillis());
+        initEvent.put("instanceId", clientId);
+        initEvent.put("message", "Connected to SSE stream");
+        if (!topics.isEmpty()) {
+            initEvent.put("topics", topics);
+        }
+        return encode("message", initEvent);
+    }
+
+    private Long parseEventId(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            logger.debug("Ignoring malformed Last-Event-ID: {}", value);
+            return null;
+        }
+    }
+
+    private SseFrame encode(String eventName, Map<String, Object> data) {
+        try {
+            return SseFrame.encode(objectMapper, eventName, data);
+        } catch (JsonProcessingException e) {
+            logger.error("Failed to serialize SSE event {}", eventName, e);
+            return null;
+        }
+    }
+
+    private void registerClientMeters(SseClient client) {
+        String policy = properties.getOverflowPolicy().name();
+        clientMeters.put(client.getId(), List.of(
+            Gauge.builder("sse.client.queue.depth", client, SseClient::getQueueDepth)
+                    .description("Frames waiting in an SSE client's outbound queue")
+                    .tag("client", client.getId())
+                    .register(meterRegistry),
+            FunctionCounter.builder("sse.client.dropped", client, SseClient::getDroppedCount)
+                    .description("Frames dropped or conflated because an SSE client fell behind")
+                    .tag("client", client.getId())
+                    .tag("policy", policy)
+                    .register(meterRegistry)
+        ));
+    }
+
+    private void removeClient(SseClient client) {
+        clients.remove(client.getId());
+        topicIndex.unsubscribe(client);
+        List<Meter> meters = clientMeters.remove(client.getId());
+        if (meters != null) {
+            meters.forEach(meterRegistry::remove);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        reactiveSink.tryEmitComplete();
+        clients.values().forEach(SseClient::close);
     }
 
     // Public method to send custom events
     public void sendEvent(String eventType, Map<String, Object> eventData) {
+        broadcastEvent("message", messageEvent(eventType, eventData), true);
+    }
+
+    /**
+     * Send an event to this instance's clients only, without relaying it over the
+     * event bus. For state every instance observes on its own, such as service health
+     * (SERVICE_STATUS) and the diagram directory (DIAGRAM_UPDATED): each instance
+     * raises the event itself, so relaying it would show clients one copy per instance.
+     */
+    public void sendLocalEvent(String eventType, Map<String, Object> eventData) {
+        broadcastEvent("message", messageEvent(eventType, eventData), false);
+    }
+
+    private Map<String, Object> messageEvent(String eventType, Map<String, Object> eventData) {
         Map<String, Object> event = new HashMap<>(eventData);
         event.put("event", eventType);
         event.put("timestamp", System.currentTimeMillis());
-
-        broadcastEvent("message", event);
+        return event;
     }
 
     // Public method to send file processing events
@@ -99,7 +438,7 @@ public class SSEController {
         event.put("filesTotal", filesTotal);
         event.put("timestamp", System.currentTimeMillis());
 
-        broadcastEvent("message", event);
+        broadcastEvent("message", event, true);
     }
 
     private String getUptime() {
@@ -110,4 +449,4 @@ public class SSEController {
     }
 
     private static final long startTime = System.currentTimeMillis();
-}
\ No newline at end of file
+}
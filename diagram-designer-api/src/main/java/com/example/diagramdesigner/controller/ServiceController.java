@@ -1,10 +1,27 @@
 package com.example.diagramdesigner.controller;
 
+import com.example.diagramdesigner.service.FileListingPager;
+import com.example.diagramdesigner.service.JobService;
+import com.example.diagramdesigner.service.PipelineProgressService;
+import com.example.diagramdesigner.service.ServiceControlClient;
+import com.example.diagramdesigner.service.ServiceHealthHistory;
 import com.example.diagramdesigner.service.ServiceRegistryService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -15,9 +32,23 @@ import java.util.Map;
 @RequestMapping("/api/services")
 public class ServiceController {
 
+    private static final Logger logger = LoggerFactory.getLogger(ServiceController.class);
+
     @Autowired
     private ServiceRegistryService serviceRegistryService;
 
+    @Autowired
+    private ServiceControlClient serviceControlClient;
+
+    @Autowired
+    private JobService jobService;
+
+    @Autowired
+    private PipelineProgressService pipelineProgressService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @GetMapping
     public ResponseEntity<List<ServiceRegistryService.ServiceInfo>> getServices() {
         return ResponseEntity.ok(serviceRegistryService.getAvailableServices());
@@ -32,6 +63,47 @@ public class ServiceController {
         return ResponseEntity.notFound().build();
     }
 
+    /**
+     * Availability statistics from recent health samples. {@code windows} is a
+     * comma-separated list of durations such as {@code 15m,1h,24h} (units s, m, h, d).
+     */
+    @GetMapping("/{serviceName}/slo")
+    public ResponseEntity<Object> getServiceSlo(@PathVariable String serviceName,
+                                                @RequestParam(value = "windows", defaultValue = "1h,24h") String windows) {
+        String[] parts = windows.split(",");
+        long[] windowsMs = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            windowsMs[i] = parseWindowMs(parts[i].trim());
+            if (windowsMs[i] <= 0) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid window: " + parts[i].trim()));
+            }
+        }
+
+        ServiceHealthHistory.Report report = serviceRegistryService.getHealthReport(serviceName, windowsMs);
+        if (report == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(report);
+    }
+
+    private static long parseWindowMs(String window) {
+        if (window.length() < 2) {
+            return -1;
+        }
+        long unitMs = switch (window.charAt(window.length() - 1)) {
+            case 's' -> 1000L;
+            case 'm' -> 60_000L;
+            case 'h' -> 3_600_000L;
+            case 'd' -> 86_400_000L;
+            default -> -1L;
+        };
+        try {
+            return unitMs > 0 ? Long.parseLong(window.substring(0, window.length() - 1)) * unitMs : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     @GetMapping("/{serviceName}/state")
     public ResponseEntity<Map<String, Object>> getServiceState(@PathVariable String serviceName) {
         Map<String, Object> state = serviceRegistryService.getServiceState(serviceName);
@@ -40,7 +112,7 @@ public class ServiceController {
 
     @PostMapping("/{serviceName}/start")
     public ResponseEntity<Map<String, Object>> startService(@PathVariable String serviceName) {
-        boolean success = serviceRegistryService.startService(serviceName);
+        boolean success = jobService.runExclusive(serviceName, () -> serviceRegistryService.startService(serviceName));
         if (success) {
             return ResponseEntity.ok(Map.of("status", "success", "message", "Service started successfully"));
         } else {
@@ -50,7 +122,7 @@ public class ServiceController {
 
     @PostMapping("/{serviceName}/stop")
     public ResponseEntity<Map<String, Object>> stopService(@PathVariable String serviceName) {
-        boolean success = serviceRegistryService.stopService(serviceName);
+        boolean success = jobService.runExclusive(serviceName, () -> serviceRegistryService.stopService(serviceName));
         if (success) {
             return ResponseEntity.ok(Map.of("status", "success", "message", "Service stopped successfully"));
         } else {
@@ -60,7 +132,7 @@ public class ServiceController {
 
     @PostMapping("/{serviceName}/toggle")
     public ResponseEntity<Map<String, Object>> toggleService(@PathVariable String serviceName) {
-        boolean success = serviceRegistryService.toggleService(serviceName);
+        boolean success = jobService.runExclusive(serviceName, () -> serviceRegistryService.toggleService(serviceName));
         if (success) {
             return ResponseEntity.ok(Map.of("status", "success", "message", "Service toggled successfully"));
         } else {
@@ -70,52 +142,45 @@ public class ServiceController {
 
     @GetMapping("/rag-pipeline/overview")
     public ResponseEntity<Map<String, Object>> getRAGPipelineOverview() {
-        List<ServiceRegistryService.ServiceInfo> services = serviceRegistryService.getAvailableServices();
-
-        long activeServices = services.stream()
-            .filter(s -> "STARTED".equals(s.getStatus()))
-            .count();
-
-        long totalServices = services.size();
-        String overallStatus = activeServices == totalServices ? "HEALTHY" :
-                             activeServices > totalServices / 2 ? "DEGRADED" : "CRITICAL";
-
-        return ResponseEntity.ok(Map.of(
-            "totalServices", totalServices,
-            "activeServices", activeServices,
-            "overallStatus", overallStatus,
-            "services", services
-        ));
+        return ResponseEntity.ok(serviceRegistryService.getRAGPipelineOverview());
     }
 
+    /**
+     * File counts, throughput and ETA for each pipeline stage, cached briefly and
+     * shared by all viewers.
+     */
+    @GetMapping("/rag-pipeline/progress")
+    public ResponseEntity<Map<String, Object>> getRAGPipelineProgress() {
+        return ResponseEntity.ok(pipelineProgressService.getProgress());
+    }
+
+    /**
+     * Proxy the service's file listing. Without paging parameters the upstream body is
+     * streamed through unchanged; with any of {@code offset}, {@code limit} or
+     * {@code prefix} the {@code files} array is paged while it streams.
+     */
     @GetMapping("/{serviceName}/files")
-    public ResponseEntity<Map<String, Object>> getServiceFiles(@PathVariable String serviceName) {
+    public ResponseEntity<Map<String, Object>> getServiceFiles(@PathVariable String serviceName,
+                                                               @RequestParam(value = "offset", defaultValue = "0") int offset,
+                                                               @RequestParam(value = "limit", required = false) Integer limit,
+                                                               @RequestParam(value = "prefix", required = false) String prefix,
+                                                               HttpServletResponse response) {
+        FileListingPager.Page page = toPage(offset, limit, prefix);
+        if (page == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "offset and limit must not be negative"));
+        }
         try {
             // Get the service URL from service registry
-            List<ServiceRegistryService.ServiceInfo> services = serviceRegistryService.getAvailableServices();
-            ServiceRegistryService.ServiceInfo service = services.stream()
-                .filter(s -> serviceName.equals(s.getName()))
-                .findFirst()
-                .orElse(null);
+            String serviceUrl = serviceRegistryService.getServiceUrl(serviceName);
 
-            if (service == null || service.getUrl() == null) {
+            if (serviceUrl == null) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Service not found: " + serviceName));
             }
 
             // Proxy the request to the actual service
-            org.springframework.web.client.RestTemplate restTemplate = new org.springframework.web.client.RestTemplate();
-            ResponseEntity<Map<String, Object>> response = restTemplate.getForEntity(
-                service.getUrl() + "/api/files",
-                (Class<Map<String, Object>>) (Class<?>) Map.class
-            );
-
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                return ResponseEntity.ok(response.getBody());
-            } else {
-                return ResponseEntity.badRequest().body(Map.of("error", "Failed to fetch files from service"));
-            }
+            return streamListing("files", serviceUrl + "/api/files", response, objectWriter(page));
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body(Map.of("error", "Error fetching files: " + e.getMessage()));
+            return streamError(response, "Error fetching files: " + e.getMessage());
         }
     }
 
@@ -123,24 +188,19 @@ public class ServiceController {
     public ResponseEntity<Map<String, Object>> reprocessFiles(@PathVariable String serviceName) {
         try {
             // Get the service URL from service registry
-            List<ServiceRegistryService.ServiceInfo> services = serviceRegistryService.getAvailableServices();
-            ServiceRegistryService.ServiceInfo service = services.stream()
-                .filter(s -> serviceName.equals(s.getName()))
-                .findFirst()
-                .orElse(null);
+            String serviceUrl = serviceRegistryService.getServiceUrl(serviceName);
 
-            if (service == null || service.getUrl() == null) {
+            if (serviceUrl == null) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Service not found: " + serviceName));
             }
 
             // For hdfsWatcher, we need to use the reprocess-all endpoint for simplicity
             // This stops processing and clears all processed flags
-            org.springframework.web.client.RestTemplate restTemplate = new org.springframework.web.client.RestTemplate();
-            ResponseEntity<Map<String, Object>> response = restTemplate.postForEntity(
-                service.getUrl() + "/api/reprocess-all",
-                null,
-                (Class<Map<String, Object>>) (Class<?>) Map.class
-            );
+            ResponseEntity<Map<String, Object>> response = jobService.runExclusive(serviceName,
+                () -> serviceControlClient.post("reprocess",
+                    serviceUrl + "/api/reprocess-all",
+                    (Class<Map<String, Object>>) (Class<?>) Map.class
+                ));
 
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
                 return ResponseEntity.ok(response.getBody());
@@ -156,13 +216,9 @@ public class ServiceController {
     public ResponseEntity<Map<String, Object>> resetProcessing(@PathVariable String serviceName) {
         try {
             // Get the service URL from service registry
-            List<ServiceRegistryService.ServiceInfo> services = serviceRegistryService.getAvailableServices();
-            ServiceRegistryService.ServiceInfo service = services.stream()
-                .filter(s -> serviceName.equals(s.getName()))
-                .findFirst()
-                .orElse(null);
+            String serviceUrl = serviceRegistryService.getServiceUrl(serviceName);
 
-            if (service == null || service.getUrl() == null) {
+            if (serviceUrl == null) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Service not found: " + serviceName));
             }
 
@@ -176,12 +232,11 @@ public class ServiceController {
             }
 
             // Proxy the reset request to the actual service (textProc, hdfsWatcher)
-            org.springframework.web.client.RestTemplate restTemplate = new org.springframework.web.client.RestTemplate();
-            ResponseEntity<Map<String, Object>> response = restTemplate.postForEntity(
-                service.getUrl() + "/api/processing/reset",
-                null,
-                (Class<Map<String, Object>>) (Class<?>) Map.class
-            );
+            ResponseEntity<Map<String, Object>> response = jobService.runExclusive(serviceName,
+                () -> serviceControlClient.post("reset",
+                    serviceUrl + "/api/processing/reset",
+                    (Class<Map<String, Object>>) (Class<?>) Map.class
+                ));
 
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
                 return ResponseEntity.ok(response.getBody());
@@ -193,31 +248,37 @@ public class ServiceController {
         }
     }
 
+    /**
+     * Processed files for a service, streamed and optionally paged like {@link #getServiceFiles}.
+     */
     @GetMapping("/{serviceName}/files/processed")
-    public ResponseEntity<Map<String, Object>> getProcessedFiles(@PathVariable String serviceName) {
+    public ResponseEntity<Map<String, Object>> getProcessedFiles(@PathVariable String serviceName,
+                                                                 @RequestParam(value = "offset", defaultValue = "0") int offset,
+                                                                 @RequestParam(value = "limit", required = false) Integer limit,
+                                                                 @RequestParam(value = "prefix", required = false) String prefix,
+                                                                 HttpServletResponse response) {
+        FileListingPager.Page page = toPage(offset, limit, prefix);
+        if (page == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "offset and limit must not be negative"));
+        }
         try {
             // Get the service URL from service registry
-            List<ServiceRegistryService.ServiceInfo> services = serviceRegistryService.getAvailableServices();
-            ServiceRegistryService.ServiceInfo service = services.stream()
-                .filter(s -> serviceName.equals(s.getName()))
-                .findFirst()
-                .orElse(null);
+            String serviceUrl = serviceRegistryService.getServiceUrl(serviceName);
 
-            if (service == null || service.getUrl() == null) {
+            if (serviceUrl == null) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Service not found: " + serviceName));
             }
 
             // embedProc has /api/processing/files-processed endpoint
             if ("embedproc".equals(serviceName)) {
                 try {
-                    org.springframework.web.client.RestTemplate restTemplate = new org.springframework.web.client.RestTemplate();
-                    ResponseEntity<Map<String, Object>> response = restTemplate.getForEntity(
-                        service.getUrl() + "/api/processing/files-processed",
+                    ResponseEntity<Map<String, Object>> embedResponse = serviceControlClient.get("processed",
+                        serviceUrl + "/api/processing/files-processed",
                         (Class<Map<String, Object>>) (Class<?>) Map.class
                     );
 
-                    if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                        Map<String, Object> embedProcData = response.getBody();
+                    if (embedResponse.getStatusCode().is2xxSuccessful() && embedResponse.getBody() != null) {
+                        Map<String, Object> embedProcData = embedResponse.getBody();
 
                         // Extract filesProcessed from embedProc response
                         Object filesProcessedObj = embedProcData.get("filesProcessed");
@@ -248,127 +309,131 @@ public class ServiceController {
             }
 
             // Proxy the request to get processed files (for textProc and hdfsWatcher)
-            org.springframework.web.client.RestTemplate restTemplate = new org.springframework.web.client.RestTemplate();
             String endpoint = "textproc".equals(serviceName) ? "/api/files/processed" : "/files/processed";
 
             if ("textproc".equals(serviceName)) {
-                // textproc returns an array, not a map
-                ResponseEntity<List> response = restTemplate.getForEntity(
-                    service.getUrl() + endpoint,
-                    List.class
-                );
-
-                if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                    List<?> files = response.getBody();
-                    return ResponseEntity.ok(Map.of(
-                        "files", files,
-                        "processedCount", files.size()
-                    ));
-                } else {
-                    return ResponseEntity.badRequest().body(Map.of("error", "Failed to get processed files from textproc"));
-                }
+                // textproc returns an array, not a map; wrap it and count it as it streams
+                return streamListing("processed", serviceUrl + endpoint, response, (parser, generator) -> {
+                    generator.writeStartObject();
+                    generator.writeFieldName("files");
+                    FileListingPager.Stats stats = FileListingPager.copyArray(objectMapper, parser, generator, page);
+                    generator.writeNumberField("processedCount", stats.total());
+                    if (page.isActive()) {
+                        generator.writeNumberField("matched", stats.matched());
+                        generator.writeNumberField("offset", page.offset());
+                        if (page.limit() >= 0) {
+                            generator.writeNumberField("limit", page.limit());
+                        }
+                    }
+                    generator.writeEndObject();
+                });
             } else {
                 // hdfsWatcher returns a map
-                ResponseEntity<Map<String, Object>> response = restTemplate.getForEntity(
-                    service.getUrl() + endpoint,
-                    (Class<Map<String, Object>>) (Class<?>) Map.class
-                );
-
-                if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                    return ResponseEntity.ok(response.getBody());
-                } else {
-                    return ResponseEntity.badRequest().body(Map.of("error", "Failed to get processed files"));
-                }
+                return streamListing("processed", serviceUrl + endpoint, response, objectWriter(page));
             }
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body(Map.of("error", "Error getting processed files: " + e.getMessage()));
+            return streamError(response, "Error getting processed files: " + e.getMessage());
         }
     }
 
+    /**
+     * Stop the pipeline services, then clear and reset them, as a background job.
+     * Returns the job id at once; progress is published as JOB_PROGRESS events and
+     * the outcome is available from {@code GET /api/jobs/{id}}.
+     */
     @PostMapping("/restart-pipeline")
     public ResponseEntity<Map<String, Object>> restartPipeline() {
-        try {
-            List<String> results = new ArrayList<>();
-            List<String> errors = new ArrayList<>();
-
-            // Get all services
-            List<ServiceRegistryService.ServiceInfo> services = serviceRegistryService.getAvailableServices();
-            org.springframework.web.client.RestTemplate restTemplate = new org.springframework.web.client.RestTemplate();
-
-            // Stop all services (hdfswatcher, textproc, embedproc)
-            for (String serviceName : Arrays.asList("hdfswatcher", "textproc", "embedproc")) {
-                try {
-                    ServiceRegistryService.ServiceInfo service = services.stream()
-                        .filter(s -> serviceName.equals(s.getName()))
-                        .findFirst()
-                        .orElse(null);
-
-                    if (service != null && service.getUrl() != null) {
-                        restTemplate.postForEntity(service.getUrl() + "/api/processing/stop", null, Map.class);
-                        results.add("Stopped " + serviceName);
-                    }
-                } catch (Exception e) {
-                    errors.add("Failed to stop " + serviceName + ": " + e.getMessage());
-                }
-            }
-
-            // Reset hdfsWatcher files
-            try {
-                ServiceRegistryService.ServiceInfo hdfsService = services.stream()
-                    .filter(s -> "hdfswatcher".equals(s.getName()))
-                    .findFirst()
-                    .orElse(null);
+        List<JobService.StepSpec> stops = new ArrayList<>();
+        for (String serviceName : Arrays.asList("hdfswatcher", "textproc", "embedproc")) {
+            stops.add(controlStep("stop", serviceName, "stop", "/api/processing/stop", "Stopped " + serviceName));
+        }
+        List<JobService.StepSpec> resets = Arrays.asList(
+            controlStep("clear", "hdfswatcher", "clear", "/api/clear", "Reset hdfsWatcher files"),
+            controlStep("reset", "textproc", "reset", "/api/processing/reset", "Reset textProc processing"),
+            controlStep("reset", "embedproc", "reset", "/api/processing/reset-counters", "Reset embedProc processing counters")
+        );
+
+        JobService.Job job = jobService.submit("restart-pipeline", List.of(stops, resets));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", "accepted");
+        response.put("message", "Pipeline restart started");
+        response.put("jobId", job.getId());
+        response.put("jobUrl", "/api/jobs/" + job.getId());
+        return ResponseEntity.accepted().body(response);
+    }
 
-                if (hdfsService != null && hdfsService.getUrl() != null) {
-                    restTemplate.postForEntity(hdfsService.getUrl() + "/api/clear", null, Map.class);
-                    results.add("Reset hdfsWatcher files");
-                }
-            } catch (Exception e) {
-                errors.add("Failed to reset hdfsWatcher files: " + e.getMessage());
+    private JobService.StepSpec controlStep(String name, String serviceName, String operation, String path,
+                                            String successMessage) {
+        return new JobService.StepSpec(name, serviceName, () -> {
+            String serviceUrl = serviceRegistryService.getServiceUrl(serviceName);
+            if (serviceUrl == null) {
+                return JobService.StepSpec.SKIPPED;
             }
+            serviceControlClient.post(operation, serviceUrl + path, Map.class);
+            return successMessage;
+        });
+    }
 
-            // Reset textProc processing
-            try {
-                ServiceRegistryService.ServiceInfo textService = services.stream()
-                    .filter(s -> "textproc".equals(s.getName()))
-                    .findFirst()
-                    .orElse(null);
+    private static FileListingPager.Page toPage(int offset, Integer limit, String prefix) {
+        if (offset < 0 || (limit != null && limit < 0)) {
+            return null;
+        }
+        return new FileListingPager.Page(offset, limit != null ? limit : -1, StringUtils.hasText(prefix) ? prefix : null);
+    }
 
-                if (textService != null && textService.getUrl() != null) {
-                    restTemplate.postForEntity(textService.getUrl() + "/api/processing/reset", null, Map.class);
-                    results.add("Reset textProc processing");
-                }
-            } catch (Exception e) {
-                errors.add("Failed to reset textProc: " + e.getMessage());
-            }
+    @FunctionalInterface
+    private interface ListingWriter {
+        void write(JsonParser parser, JsonGenerator generator) throws IOException;
+    }
 
-            // Reset embedProc processing counters
-            try {
-                ServiceRegistryService.ServiceInfo embedService = services.stream()
-                    .filter(s -> "embedproc".equals(s.getName()))
-                    .findFirst()
-                    .orElse(null);
+    /**
+     * Writer for a listing object whose {@code files} array is paged, or null to pass
+     * the body through byte for byte when no paging was requested.
+     */
+    private ListingWriter objectWriter(FileListingPager.Page page) {
+        if (!page.isActive()) {
+            return null;
+        }
+        return (parser, generator) -> FileListingPager.copyObject(objectMapper, parser, generator, "files", page);
+    }
 
-                if (embedService != null && embedService.getUrl() != null) {
-                    restTemplate.postForEntity(embedService.getUrl() + "/api/processing/reset-counters", null, Map.class);
-                    results.add("Reset embedProc processing counters");
+    /**
+     * Stream a listing from a service into the servlet response without decoding it as
+     * a whole. A null writer copies the raw bytes.
+     */
+    private ResponseEntity<Map<String, Object>> streamListing(String operation, String url,
+                                                              HttpServletResponse response, ListingWriter writer) {
+        serviceControlClient.execute(operation, HttpMethod.GET, url, upstream -> {
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            OutputStream out = response.getOutputStream();
+            if (writer == null) {
+                if (StreamUtils.copy(upstream.getBody(), out) == 0) {
+                    throw new IOException("Empty response from service");
                 }
-            } catch (Exception e) {
-                errors.add("Failed to reset embedProc: " + e.getMessage());
+                return null;
             }
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("status", "success");
-            response.put("message", "Pipeline restart completed");
-            response.put("results", results);
-            if (!errors.isEmpty()) {
-                response.put("errors", errors);
+            try (JsonParser parser = objectMapper.getFactory().createParser(upstream.getBody());
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                         .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                writer.write(parser, generator);
             }
+            return null;
+        });
+        // The body has already been written to the response
+        return null;
+    }
 
-            return ResponseEntity.ok(response);
-
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(Map.of("error", "Error restarting pipeline: " + e.getMessage()));
+    /**
+     * Error response for a failed listing, unless part of the body was already sent,
+     * in which case the client sees a truncated response.
+     */
+    private ResponseEntity<Map<String, Object>> streamError(HttpServletResponse response, String message) {
+        if (response.isCommitted()) {
+            logger.warn("Listing stream failed after the response was committed: {}", message);
+            return null;
         }
+        response.resetBuffer();
+        return ResponseEntity.badRequest().body(Map.of("error", message));
     }
 }
\ No newline at end of file
@@ -2,19 +2,28 @@ package com.example.diagramdesigner.controller;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.RequestMapping;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -22,31 +31,65 @@ import java.util.stream.Collectors;
  *
  * This controller handles:
  * - Serving the main HTML page for all non-API routes
- * - Dynamically generating HTML with correct asset references from Vite's manifest.json
+ * - Generating the HTML with correct asset references from Vite's manifest.json,
+ *   including modulepreload hints for the entry's static imports
  * - Supporting client-side routing by forwarding all non-API requests to the SPA
+ *
+ * The page is rendered once at startup and served from memory with an ETag, so a
+ * returning browser gets a 304. Until the frontend has been built, every request
+ * tries again.
  */
 @Controller
 public class SpaController {
 
+    private static final Logger logger = LoggerFactory.getLogger(SpaController.class);
     private static final String DEFAULT_ENTRY = "index.html";
     private static final String APPLICATION_TITLE = "Diagram Designer";
 
     private final ObjectMapper objectMapper;
 
+    private volatile Page page;
+
     public SpaController(ObjectMapper objectMapper) {
         this.objectMapper = objectMapper;
     }
 
+    @PostConstruct
+    public void initialize() {
+        page = render();
+        if (page.status() != HttpStatus.OK) {
+            logger.warn("Frontend not available yet: {}", page.body());
+        }
+    }
+
     @RequestMapping(value = {"/{path:[^\\.]*}", "/", "/{path:^(?!api).*}/{subpath:[^\\.]*}"})
     public ResponseEntity<String> forward() {
+        Page current = page;
+        if (current.status() != HttpStatus.OK) {
+            current = render();
+            page = current;
+        }
+
+        if (current.status() != HttpStatus.OK) {
+            return ResponseEntity.status(current.status())
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(current.body());
+        }
+        // Answered with a 304 by Spring when If-None-Match matches
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_HTML)
+                .cacheControl(CacheControl.noCache())
+                .eTag(current.etag())
+                .body(current.body());
+    }
+
+    private Page render() {
         try {
             Resource manifestResource = new ClassPathResource("static/manifest.json");
 
             if (!manifestResource.exists()) {
                 String message = "Frontend assets are missing. Run 'npm run build' in the frontend directory.";
-                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
-                        .contentType(MediaType.TEXT_PLAIN)
-                        .body(message);
+                return Page.error(HttpStatus.SERVICE_UNAVAILABLE, message);
             }
 
             Map<String, Map<String, Object>> manifest = objectMapper.readValue(
@@ -62,31 +105,48 @@ public class SpaController {
             }
 
             if (entryLookup.isEmpty()) {
-                String message = "Unable to resolve frontend entry point from manifest.json";
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .contentType(MediaType.TEXT_PLAIN)
-                        .body(message);
+                return Page.error(HttpStatus.INTERNAL_SERVER_ERROR,
+                        "Unable to resolve frontend entry point from manifest.json");
             }
 
             Map<String, Object> entry = entryLookup.get();
             String entryFile = (String) entry.get("file");
 
             if (entryFile == null) {
-                String message = "Manifest entry is missing the generated bundle reference";
-                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .contentType(MediaType.TEXT_PLAIN)
-                        .body(message);
+                return Page.error(HttpStatus.INTERNAL_SERVER_ERROR,
+                        "Manifest entry is missing the generated bundle reference");
             }
 
-            List<String> cssFiles = toStringList(entry.get("css"));
-
-            String html = buildHtmlResponse(entryFile, cssFiles);
+            // Chunks the entry statically imports, directly or transitively, in load order
+            Set<String> importedChunks = new LinkedHashSet<>();
+            collectImports(manifest, entry, importedChunks);
+
+            Set<String> cssFiles = new LinkedHashSet<>(toStringList(entry.get("css")));
+            List<String> preloadFiles = new ArrayList<>();
+            for (String chunk : importedChunks) {
+                Map<String, Object> imported = manifest.get(chunk);
+                cssFiles.addAll(toStringList(imported.get("css")));
+                if (imported.get("file") instanceof String file && !file.equals(entryFile)) {
+                    preloadFiles.add(file);
+                }
+            }
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.TEXT_HTML)
-                    .body(html);
+            String html = buildHtmlResponse(entryFile, List.copyOf(cssFiles), preloadFiles);
+            String etag = "\"" + DigestUtils.md5DigestAsHex(html.getBytes(StandardCharsets.UTF_8)) + "\"";
+            logger.info("Rendered index.html for {} with {} modulepreload hints", entryFile, preloadFiles.size());
+            return new Page(HttpStatus.OK, html, etag);
         } catch (IOException e) {
-            return ResponseEntity.notFound().build();
+            logger.warn("Could not read static/manifest.json: {}", e.getMessage());
+            return Page.error(HttpStatus.NOT_FOUND, "Unable to read manifest.json");
+        }
+    }
+
+    private void collectImports(Map<String, Map<String, Object>> manifest, Map<String, Object> chunk, Set<String> seen) {
+        for (String key : toStringList(chunk.get("imports"))) {
+            Map<String, Object> imported = manifest.get(key);
+            if (imported != null && seen.add(key)) {
+                collectImports(manifest, imported, seen);
+            }
         }
     }
 
@@ -99,7 +159,7 @@ public class SpaController {
         return Collections.emptyList();
     }
 
-    private String buildHtmlResponse(String entryFile, List<String> cssFiles) {
+    private String buildHtmlResponse(String entryFile, List<String> cssFiles, List<String> preloadFiles) {
         StringBuilder html = new StringBuilder();
         html.append("<!doctype html>\n")
                 .append("<html lang=\"en\">\n")
@@ -109,6 +169,16 @@ public class SpaController {
                 .append("    <meta name=\"viewport\" content=\"width=device-width, initial-scale=1.0\" />\n")
                 .append("    <title>").append(APPLICATION_TITLE).append("</title>\n");
 
+        html.append("    <script type=\"module\" crossorigin src=\"/")
+                .append(entryFile)
+                .append("\"></script>\n");
+
+        for (String preloadFile : preloadFiles) {
+            html.append("    <link rel=\"modulepreload\" crossorigin href=\"/")
+                    .append(preloadFile)
+                    .append("\">\n");
+        }
+
         for (String cssFile : cssFiles) {
             html.append("    <link rel=\"stylesheet\" crossorigin href=\"/")
                     .append(cssFile)
@@ -118,12 +188,19 @@ public class SpaController {
         html.append("  </head>\n")
                 .append("  <body>\n")
                 .append("    <div id=\"root\"></div>\n")
-                .append("    <script type=\"module\" crossorigin src=\"/")
-                .append(entryFile)
-                .append("\"></script>\n")
                 .append("  </body>\n")
                 .append("</html>\n");
 
         return html.toString();
     }
+
+    /**
+     * The rendered page, or the message to answer with while it cannot be rendered.
+     */
+    private record Page(HttpStatus status, String body, String etag) {
+
+        private static Page error(HttpStatus status, String message) {
+            return new Page(status, message, null);
+        }
+    }
 }
@@ -0,0 +1,127 @@
+package com.example.diagramdesigner.service;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A response body kept in its identity form plus precompressed variants, so a
+ * rendered artifact is compressed once instead of on every request.
+ *
+ * Gzip is produced here at the best compression level. Brotli has no encoder in the
+ * JDK, so a brotli variant is only available when one was built ahead of time (a
+ * {@code .br} file next to the original). A variant is kept only if it is smaller.
+ */
+public final class CompressedPayload {
+
+    private final byte[] identity;
+    private final byte[] gzip;
+    private final byte[] brotli;
+
+    private CompressedPayload(byte[] identity, byte[] gzip, byte[] brotli) {
+        this.identity = identity;
+        this.gzip = gzip;
+        this.brotli = brotli;
+    }
+
+    /**
+     * @param brotli a prebuilt brotli encoding of {@code identity}, or null
+     */
+    public static CompressedPayload of(byte[] identity, byte[] brotli) {
+        byte[] gzip = gzip(identity);
+        return new CompressedPayload(identity,
+                gzip.length < identity.length ? gzip : null,
+                brotli != null && brotli.length < identity.length ? brotli : null);
+    }
+
+    public byte[] getIdentity() {
+        return identity;
+    }
+
+    /**
+     * The smallest variant the client accepts, preferring brotli over gzip.
+     */
+    public Variant select(String acceptEncoding) {
+        if (brotli != null && accepts(acceptEncoding, "br")) {
+            return new Variant("br", brotli);
+        }
+        if (gzip != null && accepts(acceptEncoding, "gzip")) {
+            return new Variant("gzip", gzip);
+        }
+        return new Variant(null, identity);
+    }
+
+    /**
+     * A 200 response with the selected variant, marked as varying by Accept-Encoding.
+     */
+    public ResponseEntity<byte[]> toResponse(String acceptEncoding, MediaType contentType) {
+        Variant variant = select(acceptEncoding);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(contentType)
+                .contentLength(variant.body().length)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (variant.encoding() != null) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, variant.encoding());
+        }
+        return builder.body(variant.body());
+    }
+
+    /**
+     * @param encoding the Content-Encoding to send, or null for identity
+     */
+    public record Variant(String encoding, byte[] body) {
+    }
+
+    /**
+     * Whether an Accept-Encoding header allows a coding, honouring {@code q=0} and
+     * the {@code *} wildcard.
+     */
+    public static boolean accepts(String acceptEncoding, String coding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.trim().split(";");
+            String name = params[0].trim();
+            boolean allowed = true;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        allowed = Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        allowed = false;
+                    }
+                }
+            }
+            if (name.equalsIgnoreCase(coding)) {
+                return allowed;
+            }
+            if (name.equals("*")) {
+                wildcard = allowed;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
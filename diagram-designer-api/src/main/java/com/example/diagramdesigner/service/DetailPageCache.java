@@ -0,0 +1,86 @@
+package com.example.diagramdesigner.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Node detail pages ({@code configs/details/*.html}) held as precompressed payloads.
+ *
+ * Pages are read from the configs directory on disk when there is one, so edits show
+ * up without a rebuild, and from {@code static/configs/details} on the classpath
+ * otherwise. Disk entries are revalidated against the file's size and modification
+ * time on every lookup; classpath entries never change.
+ */
+@Service
+public class DetailPageCache {
+
+    private static final String CLASSPATH_LOCATION = "classpath:static/configs/details/";
+
+    private final DiagramIndex diagramIndex;
+    private final ResourceLoader resourceLoader;
+    private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+
+    @Autowired
+    public DetailPageCache(DiagramIndex diagramIndex, ResourceLoader resourceLoader) {
+        this.diagramIndex = diagramIndex;
+        this.resourceLoader = resourceLoader;
+    }
+
+    /**
+     * The page's file on disk, or null if it is not there (including the classpath case).
+     */
+    public Path file(String filename) {
+        Path directory = diagramIndex.getDirectory();
+        if (directory == null) {
+            return null;
+        }
+        Path file = directory.resolve("details").resolve(filename).normalize();
+        return file.startsWith(directory) && Files.isRegularFile(file) ? file : null;
+    }
+
+    /**
+     * The page with its compressed variants, or null if there is no such page.
+     */
+    public CompressedPayload payload(String filename) throws IOException {
+        Path file = file(filename);
+        if (file != null) {
+            long size = Files.size(file);
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            Cached cached = cache.get(filename);
+            if (cached == null || cached.size != size || cached.modified != modified) {
+                Path brotli = file.resolveSibling(file.getFileName() + ".br");
+                cached = new Cached(size, modified, CompressedPayload.of(Files.readAllBytes(file),
+                        Files.isRegularFile(brotli) ? Files.readAllBytes(brotli) : null));
+                cache.put(filename, cached);
+            }
+            return cached.payload;
+        }
+
+        if (diagramIndex.getDirectory() != null) {
+            return null;
+        }
+        Cached cached = cache.get(filename);
+        if (cached == null) {
+            Resource resource = resourceLoader.getResource(CLASSPATH_LOCATION + filename);
+            if (!resource.exists()) {
+                return null;
+            }
+            Resource brotli = resourceLoader.getResource(CLASSPATH_LOCATION + filename + ".br");
+            cached = new Cached(-1, -1, CompressedPayload.of(resource.getContentAsByteArray(),
+                    brotli.exists() ? brotli.getContentAsByteArray() : null));
+            cache.put(filename, cached);
+        }
+        return cached.payload;
+    }
+
+    private record Cached(long size, long modified, CompressedPayload payload) {
+    }
+}
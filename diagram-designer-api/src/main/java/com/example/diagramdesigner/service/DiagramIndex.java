@@ -0,0 +1,291 @@
+package com.example.diagramdesigner.service;
+
+import com.example.diagramdesigner.controller.SSEController;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index of the diagram configuration files.
+ *
+ * When a configs directory exists on disk it is scanned once at startup and kept
+ * current by a {@link WatchService}; otherwise {@code configs/*.json} is enumerated
+ * once from the classpath (the packaged JAR). Raw contents are held in the index and
+ * the variable-substituted rendering of each file is cached, already compressed,
+ * until the file changes or {@code diagrams.render-ttl-ms} passes, since substituted
+ * service URLs can move.
+ * Every change is pushed to clients as a {@code DIAGRAM_UPDATED} event.
+ *
+ * The {@code details} subdirectory is watched as well; changes there are handed to
+ * the registered details listeners rather than indexed here.
+ */
+@Service
+public class DiagramIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiagramIndex.class);
+    private static final String[] CANDIDATE_DIRECTORIES = {"configs", "../configs", "./configs"};
+
+    private final ConfigurationProcessor configurationProcessor;
+    private final SSEController sseController;
+    private final long renderTtlMs;
+    private final ConcurrentSkipListMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+    private final List<Consumer<String>> detailsListeners = new CopyOnWriteArrayList<>();
+
+    private Path directory;
+    private WatchService watchService;
+    private Thread watcher;
+
+    @Autowired
+    public DiagramIndex(ConfigurationProcessor configurationProcessor, SSEController sseController,
+                        @Value("${diagrams.render-ttl-ms:30000}") long renderTtlMs) {
+        this.configurationProcessor = configurationProcessor;
+        this.sseController = sseController;
+        this.renderTtlMs = renderTtlMs;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        directory = findConfigsDirectory();
+        if (directory != null) {
+            scanDirectory(false);
+            startWatching();
+            logger.info("Indexed {} diagram files in {}", entries.size(), directory.toAbsolutePath());
+        } else {
+            loadFromClasspath();
+            logger.info("Indexed {} diagram files from classpath", entries.size());
+        }
+    }
+
+    /**
+     * Names of the indexed diagram files, sorted.
+     */
+    public List<String> list() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    /**
+     * The file with variables substituted, precompressed, or null if there is no such diagram.
+     */
+    public CompressedPayload render(String filename) {
+        Entry entry = entries.get(filename);
+        if (entry == null) {
+            return null;
+        }
+        Rendered rendered = entry.rendered;
+        long now = System.currentTimeMillis();
+        if (rendered == null || now - rendered.renderedAt > renderTtlMs) {
+            String content = configurationProcessor.processVariableSubstitution(entry.content);
+            rendered = new Rendered(CompressedPayload.of(content.getBytes(StandardCharsets.UTF_8), null), now);
+            entry.rendered = rendered;
+        }
+        return rendered.payload;
+    }
+
+    /**
+     * The configs directory on disk, or null when diagrams come from the classpath.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Be told about changes in the {@code details} subdirectory: the changed file's
+     * name, or null when events were lost and everything should be rescanned.
+     */
+    public void addDetailsListener(Consumer<String> listener) {
+        detailsListeners.add(listener);
+    }
+
+    private Path findConfigsDirectory() {
+        for (String candidate : CANDIDATE_DIRECTORIES) {
+            Path path = Paths.get(candidate);
+            if (Files.isDirectory(path)) {
+                return path.toAbsolutePath().normalize();
+            }
+        }
+        return null;
+    }
+
+    private void scanDirectory(boolean notify) {
+        try (Stream<Path> files = Files.list(directory)) {
+            Set<String> seen = new HashSet<>();
+            files.filter(DiagramIndex::isDiagramFile).forEach(path -> {
+                seen.add(path.getFileName().toString());
+                reload(path.getFileName().toString(), notify);
+            });
+            for (String filename : List.copyOf(entries.keySet())) {
+                if (!seen.contains(filename) && entries.remove(filename) != null && notify) {
+                    publish(filename, "deleted");
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error listing diagram files in {}", directory, e);
+        }
+    }
+
+    private void loadFromClasspath() {
+        ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        try {
+            for (Resource resource : resolver.getResources("classpath*:configs/*.json")) {
+                String filename = resource.getFilename();
+                if (filename == null) {
+                    continue;
+                }
+                try {
+                    entries.put(filename, new Entry(resource.getContentAsString(StandardCharsets.UTF_8)));
+                } catch (IOException e) {
+                    logger.warn("Could not read diagram {} from classpath: {}", filename, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not enumerate diagram files on the classpath: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Re-read one file, dropping it from the index if it is gone. Returns the kind of
+     * change, or null when the content is unchanged (editors often write a file twice).
+     */
+    private String reload(String filename, boolean notify) {
+        Path path = directory.resolve(filename);
+        String change;
+        if (!Files.isRegularFile(path)) {
+            change = entries.remove(filename) != null ? "deleted" : null;
+        } else {
+            try {
+                String content = Files.readString(path);
+                if (content.isBlank()) {
+                    // Created but not written yet; the modify event that follows carries the content
+                    return null;
+                }
+                Entry previous = entries.get(filename);
+                if (previous != null && previous.content.equals(content)) {
+                    return null;
+                }
+                entries.put(filename, new Entry(content));
+                change = previous == null ? "created" : "modified";
+            } catch (IOException e) {
+                // Usually a write still in progress; the next event picks it up
+                logger.debug("Could not read diagram {}: {}", filename, e.getMessage());
+                return null;
+            }
+        }
+        if (change != null && notify) {
+            publish(filename, change);
+        }
+        return change;
+    }
+
+    private void startWatching() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            Path details = directory.resolve("details");
+            if (Files.isDirectory(details)) {
+                details.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not watch {} for diagram changes: {}", directory, e.getMessage());
+            return;
+        }
+        watcher = Thread.ofPlatform().daemon().name("diagram-watcher").start(this::watch);
+    }
+
+    private void watch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            boolean details = !directory.equals(key.watchable());
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (details) {
+                    String changed = event.kind() == StandardWatchEventKinds.OVERFLOW
+                            ? null : ((Path) event.context()).getFileName().toString();
+                    detailsListeners.forEach(listener -> listener.accept(changed));
+                } else if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    scanDirectory(true);
+                } else if (event.context() instanceof Path changed && isDiagramFile(changed)) {
+                    String change = reload(changed.getFileName().toString(), true);
+                    if (change != null) {
+                        logger.info("Diagram {} {}", changed.getFileName(), change);
+                    }
+                }
+            }
+            if (!key.reset()) {
+                logger.warn("Stopped watching {}: directory is no longer accessible", directory);
+                return;
+            }
+        }
+    }
+
+    private void publish(String filename, String change) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("filename", filename);
+        event.put("change", change);
+        sseController.sendLocalEvent("DIAGRAM_UPDATED", event);
+    }
+
+    private static boolean isDiagramFile(Path path) {
+        return path.getFileName().toString().endsWith(".json");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("Error closing diagram watch service: {}", e.getMessage());
+            }
+        }
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+    }
+
+    private static final class Entry {
+        private final String content;
+        private volatile Rendered rendered;
+
+        private Entry(String content) {
+            this.content = content;
+        }
+    }
+
+    private record Rendered(CompressedPayload payload, long renderedAt) {
+    }
+}
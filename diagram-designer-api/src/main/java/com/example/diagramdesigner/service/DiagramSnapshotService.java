@@ -0,0 +1,290 @@
+package com.example.diagramdesigner.service;
+
+import com.example.diagramdesigner.config.MetricsProxyProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A diagram's processed configuration together with the current value of every
+ * {@code dataGrid} entry and {@code status} check in it, so a viewer can draw the
+ * whole diagram from one response instead of one proxy request per metric.
+ *
+ * Distinct metric URLs are fetched in parallel through the {@link MetricsProxyService}
+ * cache. Each snapshot is serialized and compressed once, kept for
+ * {@code metrics.proxy.snapshot-ttl-ms} and shared by every viewer; concurrent
+ * requests for an expired snapshot wait on a single refresh.
+ */
+@Service
+public class DiagramSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiagramSnapshotService.class);
+
+    private final DiagramIndex diagramIndex;
+    private final MetricsProxyService metricsProxyService;
+    private final MetricsStreamService metricsStreamService;
+    private final MetricHistoryService metricHistoryService;
+    private final ServiceDiscovery serviceDiscovery;
+    private final MetricsProxyProperties properties;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Cached> snapshots = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Cached>> refreshing = new ConcurrentHashMap<>();
+
+    @Autowired
+    public DiagramSnapshotService(DiagramIndex diagramIndex, MetricsProxyService metricsProxyService,
+                                  MetricsStreamService metricsStreamService, MetricHistoryService metricHistoryService,
+                                  ServiceDiscovery serviceDiscovery, MetricsProxyProperties properties,
+                                  ObjectMapper objectMapper) {
+        this.diagramIndex = diagramIndex;
+        this.metricsProxyService = metricsProxyService;
+        this.metricsStreamService = metricsStreamService;
+        this.metricHistoryService = metricHistoryService;
+        this.serviceDiscovery = serviceDiscovery;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * The snapshot of a diagram, precompressed, or null if there is no such diagram.
+     */
+    public CompressedPayload getSnapshot(String filename) {
+        Cached cached = snapshots.get(filename);
+        if (cached != null && System.currentTimeMillis() - cached.generatedAt < properties.getSnapshotTtlMs()) {
+            return cached.payload;
+        }
+
+        CompletableFuture<Cached> refresh = new CompletableFuture<>();
+        CompletableFuture<Cached> existing = refreshing.putIfAbsent(filename, refresh);
+        if (existing != null) {
+            Cached result = existing.join();
+            return result != null ? result.payload : null;
+        }
+
+        try {
+            Cached result = build(filename);
+            if (result != null) {
+                snapshots.put(filename, result);
+            } else {
+                snapshots.remove(filename);
+            }
+            refresh.complete(result);
+            return result != null ? result.payload : null;
+        } catch (RuntimeException e) {
+            refresh.completeExceptionally(e);
+            throw e;
+        } finally {
+            refreshing.remove(filename, refresh);
+        }
+    }
+
+    private Cached build(String filename) {
+        CompressedPayload rendered = diagramIndex.render(filename);
+        if (rendered == null) {
+            return null;
+        }
+
+        JsonNode config;
+        try {
+            config = objectMapper.readTree(rendered.getIdentity());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Diagram " + filename + " is not valid JSON", e);
+        }
+
+        List<Metric> metrics = collectMetrics(config);
+        Map<String, MetricsProxyService.Fetched> fetched = fetchAll(metrics);
+        long now = System.currentTimeMillis();
+
+        Map<String, Map<String, Object>> values = new LinkedHashMap<>();
+        for (Metric metric : metrics) {
+            Map<String, Object> node = values.computeIfAbsent(metric.node, n -> new LinkedHashMap<>());
+            MetricsProxyService.Fetched result = fetched.get(metric.fetchKey());
+            Double rate = null;
+            if (metric.rate && result != null) {
+                metricHistoryService.record(metric.url, metric.valueField, result);
+                rate = metricHistoryService.rate(metric.url, metric.valueField);
+            }
+            Map<String, Object> value = metric.toMap(result, rate, now);
+            if (metric.status != null) {
+                node.put("status", value);
+            } else {
+                @SuppressWarnings("unchecked")
+                List<Object> grid = (List<Object>) node.computeIfAbsent("dataGrid", k -> new ArrayList<>());
+                grid.add(value);
+            }
+        }
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("filename", filename);
+        snapshot.put("config", config);
+        snapshot.put("values", values);
+        snapshot.put("generatedAt", now);
+        try {
+            return new Cached(CompressedPayload.of(objectMapper.writeValueAsBytes(snapshot), null), now);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Every dataGrid entry and status check in the diagram whose URL is a URL or a
+     * resolvable service reference, in node order.
+     */
+    private List<Metric> collectMetrics(JsonNode config) {
+        List<Metric> metrics = new ArrayList<>();
+        for (JsonNode node : config.path("nodes")) {
+            String name = node.path("name").asText(null);
+            if (name == null) {
+                continue;
+            }
+            int index = 0;
+            for (JsonNode entry : node.path("dataGrid")) {
+                Metric metric = toMetric(name, entry, index++, null);
+                if (metric != null) {
+                    metrics.add(metric);
+                }
+            }
+            JsonNode status = node.path("status");
+            if (status.isObject()) {
+                Metric metric = toMetric(name, status, -1, status);
+                if (metric != null) {
+                    metrics.add(metric);
+                }
+            }
+        }
+        return metrics;
+    }
+
+    private Metric toMetric(String node, JsonNode entry, int index, JsonNode status) {
+        String url = entry.path("url").asText(null);
+        if (url == null || url.isBlank()) {
+            return null;
+        }
+        String fetchUrl = serviceDiscovery.resolveTargetUrl(url);
+        String valueField = entry.path("valueField").asText(null);
+        if (fetchUrl != null && valueField != null) {
+            // Keep the metric stream warm for the values the viewer is about to watch
+            metricsStreamService.track(url, fetchUrl, valueField, node);
+        }
+        boolean rate = status == null && "rate".equals(entry.path("derive").asText(null));
+        return new Metric(node, index, entry.path("label").asText(null), url, fetchUrl, valueField, rate, status);
+    }
+
+    private Map<String, MetricsProxyService.Fetched> fetchAll(List<Metric> metrics) {
+        // Grid entries usually read several fields from the same response
+        Map<String, Metric> distinct = new LinkedHashMap<>();
+        for (Metric metric : metrics) {
+            if (metric.fetchUrl != null) {
+                distinct.putIfAbsent(metric.fetchKey(), metric);
+            }
+        }
+        try {
+            Map<String, MetricsProxyService.Fetched> fetched = Flux.fromIterable(distinct.values())
+                    .flatMap(metric -> metricsProxyService.fetch(metric.fetchUrl, metric.node)
+                            .map(result -> Map.entry(metric.fetchKey(), result)), properties.getStreamConcurrency())
+                    .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                    .block(Duration.ofMillis(properties.getTimeoutMs() + 1000L));
+            return fetched != null ? fetched : Map.of();
+        } catch (Exception e) {
+            logger.warn("Snapshot metric fetch did not complete: {}", e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private record Cached(CompressedPayload payload, long generatedAt) {
+    }
+
+    /**
+     * One dataGrid entry, or the status check of a node when {@code status} is set.
+     * {@code rate} marks a {@code derive: rate} entry, reported as its per-second rate.
+     */
+    private record Metric(String node, int index, String label, String url, String fetchUrl,
+                          String valueField, boolean rate, JsonNode status) {
+
+        private String fetchKey() {
+            return fetchUrl + "#" + node;
+        }
+
+        private Map<String, Object> toMap(MetricsProxyService.Fetched fetched, Double derivedRate, long now) {
+            Map<String, Object> view = new LinkedHashMap<>();
+            if (status == null) {
+                view.put("index", index);
+                view.put("label", label);
+            }
+            view.put("url", url);
+            view.put("valueField", valueField);
+
+            Object value = null;
+            if (fetchUrl == null) {
+                view.put("error", "Could not resolve " + url);
+            } else if (fetched == null) {
+                view.put("error", "Timed out");
+            } else {
+                if (fetched.data() != null) {
+                    value = MetricFieldExtractor.extract(fetched.data(), valueField);
+                }
+                view.put("fetchedAt", fetched.fetchedAt() > 0 ? fetched.fetchedAt() : null);
+                view.put("stalenessMs", fetched.fetchedAt() > 0 ? Math.max(0, now - fetched.fetchedAt()) : null);
+                if (fetched.error() != null) {
+                    view.put("error", fetched.error());
+                }
+            }
+            if (rate) {
+                view.put("derive", "rate");
+                view.put("raw", value);
+                value = derivedRate;
+            }
+            view.put("value", value);
+            if (status != null) {
+                view.put("status", statusOf(value));
+            }
+            return view;
+        }
+
+        /**
+         * Same rule as CustomNode.tsx: an exact match with upValue or downValue, otherwise unknown.
+         */
+        private String statusOf(Object value) {
+            if (value == null) {
+                return "unknown";
+            }
+            if (matches(value, status.get("upValue"))) {
+                return "up";
+            }
+            if (matches(value, status.get("downValue"))) {
+                return "down";
+            }
+            return "unknown";
+        }
+
+        private static boolean matches(Object value, JsonNode expected) {
+            if (expected == null || expected.isNull()) {
+                return false;
+            }
+            if (expected.isTextual()) {
+                return value instanceof String && expected.asText().equals(value);
+            }
+            if (expected.isNumber()) {
+                return value instanceof Number number && expected.asDouble() == number.doubleValue();
+            }
+            if (expected.isBoolean()) {
+                return Objects.equals(expected.asBoolean(), value);
+            }
+            return false;
+        }
+    }
+}
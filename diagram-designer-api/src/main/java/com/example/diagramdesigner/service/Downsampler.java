@@ -0,0 +1,78 @@
+package com.example.diagramdesigner.service;
+
+import java.util.Arrays;
+
+/**
+ * Reduces samples, fed in time order, to min, max, average, last value and count per {@code step}
+ * milliseconds. Buckets are aligned to multiples of {@code step}; empty buckets are
+ * left out. Used for the in-memory and the stored history, and for the stored rollups.
+ */
+public final class Downsampler implements MetricStore.SampleConsumer {
+
+    private final long step;
+    private long[] bucketStart = new long[16];
+    private double[] min = new double[16];
+    private double[] max = new double[16];
+    private double[] sum = new double[16];
+    private double[] last = new double[16];
+    private int[] count = new int[16];
+    private int buckets;
+
+    public Downsampler(long step) {
+        if (step <= 0) {
+            throw new IllegalArgumentException("step must be positive");
+        }
+        this.step = step;
+    }
+
+    @Override
+    public void accept(long timestamp, double value) {
+        long bucket = Math.floorDiv(timestamp, step) * step;
+        if (buckets == 0 || bucketStart[buckets - 1] != bucket) {
+            if (buckets == bucketStart.length) {
+                grow();
+            }
+            bucketStart[buckets] = bucket;
+            min[buckets] = value;
+            max[buckets] = value;
+            buckets++;
+        }
+        int b = buckets - 1;
+        min[b] = Math.min(min[b], value);
+        max[b] = Math.max(max[b], value);
+        sum[b] += value;
+        last[b] = value;
+        count[b]++;
+    }
+
+    public Downsampled result() {
+        double[] avg = new double[buckets];
+        for (int b = 0; b < buckets; b++) {
+            avg[b] = sum[b] / count[b];
+        }
+        return new Downsampled(Arrays.copyOf(bucketStart, buckets), Arrays.copyOf(min, buckets),
+                Arrays.copyOf(max, buckets), avg, Arrays.copyOf(last, buckets), Arrays.copyOf(count, buckets));
+    }
+
+    private void grow() {
+        int capacity = bucketStart.length * 2;
+        bucketStart = Arrays.copyOf(bucketStart, capacity);
+        min = Arrays.copyOf(min, capacity);
+        max = Arrays.copyOf(max, capacity);
+        sum = Arrays.copyOf(sum, capacity);
+        last = Arrays.copyOf(last, capacity);
+        count = Arrays.copyOf(count, capacity);
+    }
+
+    /**
+     * Column-oriented buckets; index {@code i} of every array describes the bucket
+     * starting at {@code timestamps[i]}.
+     */
+    public record Downsampled(long[] timestamps, double[] min, double[] max, double[] avg, double[] last,
+                              int[] count) {
+
+        public int size() {
+            return timestamps.length;
+        }
+    }
+}
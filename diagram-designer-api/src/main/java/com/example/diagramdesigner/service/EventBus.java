@@ -0,0 +1,36 @@
+package com.example.diagramdesigner.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries SSE message events between application instances so a client sees every
+ * event regardless of which instance raised it.
+ *
+ * Each instance delivers its own events locally and publishes them here; the bus
+ * hands the subscriber only events raised elsewhere, at most once each.
+ *
+ * Only events that one instance alone knows about are relayed: job progress
+ * (JOB_PROGRESS) and progress pushed by the pipeline services, which reaches a single
+ * instance. State that every instance observes itself, namely service health
+ * (SERVICE_STATUS) and the diagram directory (DIAGRAM_UPDATED), is instance-local and
+ * sent with {@code SSEController.sendLocalEvent}, as are heartbeats and snapshots.
+ */
+public interface EventBus {
+
+    /**
+     * Publish a locally raised event to the other instances.
+     */
+    void publish(String eventName, String json);
+
+    /**
+     * Receive events published by other instances.
+     */
+    void subscribe(Consumer<Envelope> listener);
+
+    /**
+     * An event as it travels between instances. {@code origin} and {@code sequence}
+     * together identify it: sequences increase by one per event from each origin.
+     */
+    record Envelope(String origin, long sequence, String eventName, String json) {
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.diagramdesigner.service;
+
+import com.example.diagramdesigner.config.SseProperties;
+import com.example.diagramdesigner.controller.SSEController;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accepts progress events pushed by the pipeline services and forwards them to SSE
+ * clients at a bounded rate.
+ *
+ * Updates are conflated per app and stage: within one flush window only the merged
+ * latest state of each app/stage pair is broadcast, however many events arrived.
+ */
+@Service
+public class EventIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventIngestionService.class);
+    private static final String DEFAULT_EVENT_TYPE = "FILE_PROCESSED";
+
+    private final SSEController sseController;
+    private final SseProperties properties;
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private final Map<String, Map<String, Object>> pending = new ConcurrentHashMap<>();
+
+    private final Counter ingested;
+    private final Counter conflated;
+    private final Counter rejected;
+    private final Counter broadcast;
+
+    @Autowired
+    public EventIngestionService(SSEController sseController, SseProperties properties,
+                                 ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.sseController = sseController;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.ingested = Counter.builder("events.ingested").description("Pipeline events accepted").register(meterRegistry);
+        this.conflated = Counter.builder("events.conflated").description("Pipeline events merged into a pending update").register(meterRegistry);
+        this.rejected = Counter.builder("events.rejected").description("Pipeline events rejected for missing an app").register(meterRegistry);
+        this.broadcast = Counter.builder("events.broadcast").description("Conflated updates sent to SSE clients").register(meterRegistry);
+
+        long interval = properties.getIngestFlushIntervalMs();
+        scheduler.scheduleAtFixedRate(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Merge a batch into the pending updates.
+     *
+     * @return the number of events accepted; events without an app are skipped
+     */
+    public int ingest(List<EventDto> events) {
+        int accepted = 0;
+        for (EventDto event : events) {
+            if (event == null || event.app() == null || event.app().isBlank()) {
+                rejected.increment();
+                continue;
+            }
+
+            Map<String, Object> fields = objectMapper.convertValue(event, new TypeReference<Map<String, Object>>() {});
+            fields.values().removeIf(Objects::isNull);
+            fields.putIfAbsent("event", DEFAULT_EVENT_TYPE);
+
+            String key = event.app() + "|" + (event.stage() != null ? event.stage() : "");
+            pending.compute(key, (k, current) -> {
+                if (current == null) {
+                    return fields;
+                }
+                conflated.increment();
+                return mergeNewer(current, fields);
+            });
+            accepted++;
+        }
+        ingested.increment(accepted);
+        return accepted;
+    }
+
+    private static Map<String, Object> mergeNewer(Map<String, Object> current, Map<String, Object> incoming) {
+        // Out-of-order deliveries must not roll counters back
+        if (timestampOf(incoming) < timestampOf(current)) {
+            Map<String, Object> merged = new HashMap<>(incoming);
+            merged.putAll(current);
+            return merged;
+        }
+        Map<String, Object> merged = new HashMap<>(current);
+        merged.putAll(incoming);
+        return merged;
+    }
+
+    private static long timestampOf(Map<String, Object> fields) {
+        return fields.get("timestamp") instanceof Number number ? number.longValue() : 0L;
+    }
+
+    private void flush() {
+        try {
+            int budget = properties.getIngestMaxEventsPerFlush();
+            Iterator<String> keys = pending.keySet().iterator();
+            while (keys.hasNext() && budget > 0) {
+                Map<String, Object> update = pending.remove(keys.next());
+                if (update == null) {
+                    continue;
+                }
+                String eventType = String.valueOf(update.remove("event"));
+                sseController.sendEvent(eventType, update);
+                broadcast.increment();
+                budget--;
+            }
+        } catch (Exception e) {
+            logger.error("Error flushing ingested events", e);
+        }
+    }
+
+    /**
+     * App/stage updates waiting for the next flush.
+     */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        flush();
+    }
+
+    /**
+     * Progress event as reported by hdfswatcher, textproc and embedproc. Mirrors the
+     * frontend's {@code EventDto} in lib/sse.ts.
+     */
+    public record EventDto(
+            String app,
+            String stage,
+            String event,
+            String instanceId,
+            String docId,
+            Long timestamp,
+            Long latencyMs,
+            String status,
+            String message,
+            String url,
+            String hostname,
+            String publicHostname,
+            String currentFile,
+            Integer filesProcessed,
+            Integer filesTotal,
+            Integer totalChunks,
+            Integer processedChunks,
+            Double processingRate,
+            Integer errorCount,
+            Double memoryUsedMB,
+            Integer pendingMessages,
+            String filename) {
+    }
+}
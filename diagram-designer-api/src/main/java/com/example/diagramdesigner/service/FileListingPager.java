@@ -0,0 +1,181 @@
+package com.example.diagramdesigner.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Copies a file listing from a streaming parser to a generator, keeping only one
+ * page of the entries whose name starts with a prefix, or just counts its entries.
+ *
+ * Only a single entry is ever materialized at a time, so memory use does not grow
+ * with the size of the listing. An entry's name is the string itself, or its
+ * {@code name}, {@code filename} or {@code path} field, the same fallback the
+ * frontend uses.
+ */
+public final class FileListingPager {
+
+    private FileListingPager() {
+    }
+
+    /**
+     * @param offset matching entries to skip
+     * @param limit  maximum entries to return, or a negative number for no limit
+     * @param prefix required name prefix, or null for any name
+     */
+    public record Page(int offset, int limit, String prefix) {
+
+        public static final Page ALL = new Page(0, -1, null);
+
+        public boolean isActive() {
+            return offset > 0 || limit >= 0 || prefix != null;
+        }
+
+        private boolean accepts(JsonNode entry) {
+            if (prefix == null) {
+                return true;
+            }
+            String name = entry.isTextual() ? entry.asText() : firstText(entry, "name", "filename", "path");
+            return name != null && name.startsWith(prefix);
+        }
+    }
+
+    /**
+     * @param total    entries in the upstream listing
+     * @param matched  entries whose name matched the prefix
+     * @param returned entries written
+     */
+    public record Stats(int total, int matched, int returned) {
+    }
+
+    /**
+     * Copy a JSON object, paging the array held in {@code arrayField} and appending
+     * {@code matched}, {@code offset} and {@code limit} fields describing the page.
+     * The parser must be positioned before the object.
+     */
+    public static Stats copyObject(ObjectMapper objectMapper, JsonParser parser, JsonGenerator generator,
+                                   String arrayField, Page page) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object");
+        }
+        Stats stats = new Stats(0, 0, 0);
+        generator.writeStartObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            generator.writeFieldName(field);
+            if (field.equals(arrayField) && value == JsonToken.START_ARRAY) {
+                stats = copyArrayContents(objectMapper, parser, generator, page);
+            } else {
+                generator.copyCurrentStructure(parser);
+            }
+        }
+        generator.writeNumberField("matched", stats.matched());
+        generator.writeNumberField("offset", page.offset());
+        if (page.limit() >= 0) {
+            generator.writeNumberField("limit", page.limit());
+        }
+        generator.writeEndObject();
+        return stats;
+    }
+
+    /**
+     * Copy a page of a JSON array. The parser must be positioned before the array.
+     */
+    public static Stats copyArray(ObjectMapper objectMapper, JsonParser parser, JsonGenerator generator,
+                                  Page page) throws IOException {
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Expected a JSON array");
+        }
+        return copyArrayContents(objectMapper, parser, generator, page);
+    }
+
+    /**
+     * @param entries entries in the listing array, or -1 if there was none
+     * @param numbers top-level numeric fields of a listing object
+     */
+    public record Summary(int entries, Map<String, Number> numbers) {
+    }
+
+    /**
+     * Count the entries of a listing without building them. The listing is either a
+     * JSON array or an object holding the array in {@code arrayField}; the object's
+     * top-level numeric fields are collected as well.
+     */
+    public static Summary summarize(JsonParser parser, String arrayField) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_ARRAY) {
+            return new Summary(countArrayContents(parser), Map.of());
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON array or object");
+        }
+        int entries = -1;
+        Map<String, Number> numbers = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals(arrayField) && value == JsonToken.START_ARRAY) {
+                entries = countArrayContents(parser);
+            } else if (value.isNumeric()) {
+                numbers.put(field, parser.getNumberValue());
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new Summary(entries, numbers);
+    }
+
+    private static int countArrayContents(JsonParser parser) throws IOException {
+        int count = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            parser.skipChildren();
+            count++;
+        }
+        return count;
+    }
+
+    private static Stats copyArrayContents(ObjectMapper objectMapper, JsonParser parser, JsonGenerator generator,
+                                           Page page) throws IOException {
+        int total = 0;
+        int matched = 0;
+        int returned = 0;
+        generator.writeStartArray();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            total++;
+            boolean full = page.limit() >= 0 && returned >= page.limit();
+            if (page.prefix() == null && (matched < page.offset() || full)) {
+                // Nothing to inspect: skip the entry without building it
+                parser.skipChildren();
+                matched++;
+                continue;
+            }
+            JsonNode entry = objectMapper.readTree(parser);
+            if (!page.accepts(entry)) {
+                continue;
+            }
+            if (matched++ >= page.offset() && !full) {
+                generator.writeTree(entry);
+                returned++;
+            }
+        }
+        generator.writeEndArray();
+        return new Stats(total, matched, returned);
+    }
+
+    private static String firstText(JsonNode entry, String... fields) {
+        for (String field : fields) {
+            JsonNode value = entry.get(field);
+            if (value != null && value.isTextual()) {
+                return value.asText();
+            }
+        }
+        return null;
+    }
+}
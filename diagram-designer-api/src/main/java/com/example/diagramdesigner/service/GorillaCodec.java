@@ -0,0 +1,209 @@
+package com.example.diagramdesigner.service;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Gorilla time-series compression (Pelkonen et al., VLDB 2015) for millisecond
+ * timestamps and double values.
+ *
+ * The first sample is stored raw. After that each timestamp is stored as the change
+ * in its delta from the previous one ({@code 0} for a steady interval, otherwise a
+ * prefix and a 7, 9, 12 or 32 bit signed value), and each value as its XOR with the
+ * previous one ({@code 0} when unchanged, otherwise only the meaningful bits, reusing
+ * the previous leading/trailing zero window when they fit in it). Steady sampling of
+ * slowly changing values costs one to two bytes per sample.
+ */
+final class GorillaCodec {
+
+    private GorillaCodec() {
+    }
+
+    /**
+     * Appends samples to a growing bit stream. Timestamps must increase and, within one
+     * chunk, stay less than 2^31 ms apart.
+     */
+    static final class Encoder {
+
+        private byte[] bytes = new byte[64];
+        private long bitCount;
+        private int count;
+        private long firstTimestamp;
+        private long lastTimestamp;
+        private long lastDelta;
+        private long lastValueBits;
+        private int lastLeading = -1;
+        private int lastTrailing;
+
+        void append(long timestamp, double value) {
+            long valueBits = Double.doubleToRawLongBits(value);
+            if (count == 0) {
+                writeBits(timestamp, 64);
+                writeBits(valueBits, 64);
+                firstTimestamp = timestamp;
+            } else {
+                long delta = timestamp - lastTimestamp;
+                writeDeltaOfDelta(delta - lastDelta);
+                lastDelta = delta;
+                writeValue(valueBits ^ lastValueBits);
+            }
+            lastTimestamp = timestamp;
+            lastValueBits = valueBits;
+            count++;
+        }
+
+        private void writeDeltaOfDelta(long deltaOfDelta) {
+            if (deltaOfDelta == 0) {
+                writeBits(0, 1);
+            } else if (deltaOfDelta >= -64 && deltaOfDelta < 64) {
+                writeBits(0b10, 2);
+                writeBits(deltaOfDelta, 7);
+            } else if (deltaOfDelta >= -256 && deltaOfDelta < 256) {
+                writeBits(0b110, 3);
+                writeBits(deltaOfDelta, 9);
+            } else if (deltaOfDelta >= -2048 && deltaOfDelta < 2048) {
+                writeBits(0b1110, 4);
+                writeBits(deltaOfDelta, 12);
+            } else {
+                writeBits(0b1111, 4);
+                writeBits(deltaOfDelta, 32);
+            }
+        }
+
+        private void writeValue(long xor) {
+            if (xor == 0) {
+                writeBits(0, 1);
+                return;
+            }
+            writeBits(1, 1);
+            // Leading zeros are stored in 5 bits
+            int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (lastLeading >= 0 && leading >= lastLeading && trailing >= lastTrailing) {
+                writeBits(0, 1);
+                writeBits(xor >>> lastTrailing, 64 - lastLeading - lastTrailing);
+            } else {
+                int significant = 64 - leading - trailing;
+                writeBits(1, 1);
+                writeBits(leading, 5);
+                // 1..64 stored as 0..63
+                writeBits(significant - 1, 6);
+                writeBits(xor >>> trailing, significant);
+                lastLeading = leading;
+                lastTrailing = trailing;
+            }
+        }
+
+        private void writeBits(long value, int bits) {
+            for (int i = bits - 1; i >= 0; i--) {
+                int index = (int) (bitCount >>> 3);
+                if (index >= bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+                if (((value >>> i) & 1) != 0) {
+                    bytes[index] |= (byte) (0x80 >>> (bitCount & 7));
+                }
+                bitCount++;
+            }
+        }
+
+        int count() {
+            return count;
+        }
+
+        long firstTimestamp() {
+            return firstTimestamp;
+        }
+
+        long lastTimestamp() {
+            return lastTimestamp;
+        }
+
+        /**
+         * The stream so far, padded to whole bytes.
+         */
+        byte[] toBytes() {
+            return Arrays.copyOf(bytes, (int) ((bitCount + 7) >>> 3));
+        }
+    }
+
+    /**
+     * Decode {@code count} samples starting at byte {@code offset} of {@code buffer},
+     * passing those in {@code [from, to)} to the consumer. Stops once past {@code to}.
+     * Reads with absolute gets, so a shared buffer can be decoded concurrently.
+     */
+    static void decode(ByteBuffer buffer, int offset, int count, long from, long to, MetricStore.SampleConsumer consumer) {
+        BitReader in = new BitReader(buffer, offset);
+        long timestamp = 0;
+        long delta = 0;
+        long valueBits = 0;
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0) {
+                timestamp = in.read(64);
+                valueBits = in.read(64);
+            } else {
+                delta += readDeltaOfDelta(in);
+                timestamp += delta;
+                if (in.read(1) != 0) {
+                    if (in.read(1) != 0) {
+                        leading = (int) in.read(5);
+                        int significant = (int) in.read(6) + 1;
+                        trailing = 64 - leading - significant;
+                    }
+                    valueBits ^= in.read(64 - leading - trailing) << trailing;
+                }
+            }
+            if (timestamp >= to) {
+                return;
+            }
+            if (timestamp >= from) {
+                consumer.accept(timestamp, Double.longBitsToDouble(valueBits));
+            }
+        }
+    }
+
+    private static long readDeltaOfDelta(BitReader in) {
+        if (in.read(1) == 0) {
+            return 0;
+        }
+        if (in.read(1) == 0) {
+            return in.readSigned(7);
+        }
+        if (in.read(1) == 0) {
+            return in.readSigned(9);
+        }
+        if (in.read(1) == 0) {
+            return in.readSigned(12);
+        }
+        return in.readSigned(32);
+    }
+
+    private static final class BitReader {
+
+        private final ByteBuffer buffer;
+        private final int offset;
+        private long position;
+
+        private BitReader(ByteBuffer buffer, int offset) {
+            this.buffer = buffer;
+            this.offset = offset;
+        }
+
+        private long read(int bits) {
+            long value = 0;
+            for (int i = 0; i < bits; i++) {
+                int current = buffer.get(offset + (int) (position >>> 3));
+                value = (value << 1) | ((current >>> (7 - (position & 7))) & 1);
+                position++;
+            }
+            return value;
+        }
+
+        private long readSigned(int bits) {
+            long value = read(bits);
+            return (value << (64 - bits)) >> (64 - bits);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.diagramdesigner.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Default bus for a single instance. Buses in the same JVM are connected to each
+ * other, so several application contexts started side by side behave like scaled
+ * instances without a broker.
+ */
+@Component
+@ConditionalOnProperty(prefix = "sse.bus", name = "type", havingValue = "memory", matchIfMissing = true)
+public class InMemoryEventBus implements EventBus {
+
+    private static final Set<InMemoryEventBus> BUSES = ConcurrentHashMap.newKeySet();
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile Consumer<Envelope> listener;
+
+    @Override
+    public void publish(String eventName, String json) {
+        Envelope envelope = new Envelope(instanceId, sequence.incrementAndGet(), eventName, json);
+        for (InMemoryEventBus bus : BUSES) {
+            Consumer<Envelope> target = bus.listener;
+            if (bus != this && target != null) {
+                target.accept(envelope);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<Envelope> listener) {
+        this.listener = listener;
+        BUSES.add(this);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        BUSES.remove(this);
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.diagramdesigner.service;
+
+import com.example.diagramdesigner.controller.SSEController;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Runs long pipeline operations in the background as jobs made of phases of steps.
+ *
+ * Steps in a phase run in parallel on virtual threads; the next phase starts once
+ * they have all finished, whether or not they succeeded. Every step transition is
+ * published over SSE as a {@code JOB_PROGRESS} event.
+ *
+ * Jobs touching the same service run one after another in submission order: each
+ * job waits for the previous job on every service it touches, so concurrent
+ * requests cannot interleave their calls to a service. Single calls made with
+ * {@link #runExclusive} take their turn in the same order.
+ */
+@Service
+public class JobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobService.class);
+    private static final int MAX_RETAINED_JOBS = 200;
+
+    private final SSEController sseController;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // Guarded by itself: finished jobs beyond the cap are evicted oldest first
+    private final Map<String, Job> jobs = new LinkedHashMap<>();
+    // Guarded by jobs: completion of the last job submitted for each service
+    private final Map<String, CompletableFuture<Void>> serviceTails = new HashMap<>();
+
+    @Autowired
+    public JobService(SSEController sseController) {
+        this.sseController = sseController;
+    }
+
+    /**
+     * Queue a job and return it immediately.
+     */
+    public Job submit(String type, List<List<StepSpec>> phases) {
+        Job job = new Job(UUID.randomUUID().toString(), type, phases);
+
+        CompletableFuture<Void> gate;
+        synchronized (jobs) {
+            List<CompletableFuture<Void>> predecessors = new ArrayList<>();
+            for (String service : job.services) {
+                CompletableFuture<Void> tail = serviceTails.put(service, job.completion);
+                if (tail != null) {
+                    predecessors.add(tail);
+                }
+            }
+            gate = CompletableFuture.allOf(predecessors.toArray(CompletableFuture[]::new));
+
+            jobs.put(job.id, job);
+            evictFinishedJobs();
+        }
+
+        // Predecessors always complete normally, so the gate does too
+        gate.thenRunAsync(() -> run(job), executor);
+        return job;
+    }
+
+    /**
+     * Run one call against a service on the caller's thread, in turn with that
+     * service's jobs: it waits for everything submitted for the service before it,
+     * and anything submitted meanwhile waits for it.
+     */
+    public <T> T runExclusive(String service, Supplier<T> action) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<Void> previous;
+        synchronized (jobs) {
+            previous = serviceTails.put(service, done);
+        }
+        try {
+            if (previous != null) {
+                // Predecessors always complete normally
+                previous.join();
+            }
+            return action.get();
+        } finally {
+            synchronized (jobs) {
+                serviceTails.remove(service, done);
+            }
+            done.complete(null);
+        }
+    }
+
+    public Job getJob(String id) {
+        synchronized (jobs) {
+            return jobs.get(id);
+        }
+    }
+
+    public List<Job> getRecentJobs() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    private void run(Job job) {
+        try {
+            job.markRunning();
+            for (List<Step> phase : job.phases) {
+                List<CompletableFuture<Void>> running = new ArrayList<>(phase.size());
+                for (Step step : phase) {
+                    running.add(CompletableFuture.runAsync(() -> runStep(job, step), executor));
+                }
+                CompletableFuture.allOf(running.toArray(CompletableFuture[]::new)).join();
+            }
+        } catch (Exception e) {
+            logger.error("Job {} ({}) failed", job.id, job.type, e);
+        } finally {
+            job.markFinished();
+            publish(job, null);
+            synchronized (jobs) {
+                job.services.forEach(service -> serviceTails.remove(service, job.completion));
+            }
+            job.completion.complete(null);
+        }
+    }
+
+    private void runStep(Job job, Step step) {
+        step.start();
+        publish(job, step);
+        try {
+            Object result = step.spec.action().call();
+            if (result == StepSpec.SKIPPED) {
+                step.finish(Status.SKIPPED, step.spec.service() + " is not registered", null);
+            } else {
+                String message = result instanceof String text ? text : step.spec.name() + " completed";
+                step.finish(Status.SUCCEEDED, message, result);
+            }
+        } catch (Exception e) {
+            String message = step.spec.name() + " " + step.spec.service() + " failed: " + e.getMessage();
+            step.finish(Status.FAILED, message, null);
+        }
+        publish(job, step);
+    }
+
+    private void publish(Job job, Step step) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("jobId", job.id);
+        event.put("jobType", job.type);
+        event.put("jobStatus", job.getStatus().name());
+        event.put("completedSteps", job.completedSteps());
+        event.put("totalSteps", job.totalSteps);
+        if (step != null) {
+            event.put("step", step.spec.name());
+            event.put("app", step.spec.service());
+            event.put("status", step.status.name());
+            if (step.message != null) {
+                event.put("message", step.message);
+            }
+        } else {
+            event.put("message", job.type + " " + job.getStatus().name().toLowerCase());
+        }
+        sseController.sendEvent("JOB_PROGRESS", event);
+    }
+
+    private void evictFinishedJobs() {
+        var iterator = jobs.values().iterator();
+        while (jobs.size() > MAX_RETAINED_JOBS && iterator.hasNext()) {
+            if (iterator.next().completion.isDone()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, SKIPPED, FAILED, COMPLETED_WITH_ERRORS
+    }
+
+    /**
+     * One unit of work against a single service. Returning {@link #SKIPPED} marks the
+     * step skipped, for example when the service is not registered.
+     */
+    public record StepSpec(String name, String service, Callable<Object> action) {
+        public static final Object SKIPPED = new Object();
+    }
+
+    public static final class Job {
+
+        private final String id;
+        private final String type;
+        private final List<List<Step>> phases = new ArrayList<>();
+        private final Set<String> services = new LinkedHashSet<>();
+        private final int totalSteps;
+        private final long createdAt = System.currentTimeMillis();
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private volatile Status status = Status.QUEUED;
+        private volatile long startedAt;
+        private volatile long finishedAt;
+
+        private Job(String id, String type, List<List<StepSpec>> specs) {
+            this.id = id;
+            this.type = type;
+            int count = 0;
+            for (List<StepSpec> phase : specs) {
+                List<Step> steps = new ArrayList<>(phase.size());
+                for (StepSpec spec : phase) {
+                    steps.add(new Step(spec));
+                    services.add(spec.service());
+                    count++;
+                }
+                phases.add(steps);
+            }
+            this.totalSteps = count;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public CompletableFuture<Void> getCompletion() {
+            return completion;
+        }
+
+        /**
+         * All steps in execution order.
+         */
+        public List<Step> getSteps() {
+            List<Step> all = new ArrayList<>(totalSteps);
+            phases.forEach(all::addAll);
+            return all;
+        }
+
+        private void markRunning() {
+            startedAt = System.currentTimeMillis();
+            status = Status.RUNNING;
+        }
+
+        private void markFinished() {
+            boolean failed = phases.stream().flatMap(List::stream).anyMatch(step -> step.status == Status.FAILED);
+            finishedAt = System.currentTimeMillis();
+            status = failed ? Status.COMPLETED_WITH_ERRORS : Status.SUCCEEDED;
+        }
+
+        private int completedSteps() {
+            return (int) phases.stream().flatMap(List::stream)
+                    .filter(step -> step.status != Status.QUEUED && step.status != Status.RUNNING)
+                    .count();
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("id", id);
+            map.put("type", type);
+            map.put("status", status.name());
+            map.put("services", services);
+            map.put("completedSteps", completedSteps());
+            map.put("totalSteps", totalSteps);
+            map.put("createdAt", createdAt);
+            map.put("startedAt", startedAt > 0 ? startedAt : null);
+            map.put("finishedAt", finishedAt > 0 ? finishedAt : null);
+            List<Map<String, Object>> steps = new ArrayList<>(totalSteps);
+            List<String> results = new ArrayList<>();
+            List<String> errors = new ArrayList<>();
+            for (Step step : getSteps()) {
+                steps.add(step.toMap());
+                if (step.status == Status.SUCCEEDED) {
+                    results.add(step.message);
+                } else if (step.status == Status.FAILED) {
+                    errors.add(step.message);
+                }
+            }
+            map.put("steps", steps);
+            map.put("results", results);
+            map.put("errors", errors);
+            return map;
+        }
+    }
+
+    public static final class Step {
+
+        private final StepSpec spec;
+        private volatile Status status = Status.QUEUED;
+        private volatile String message;
+        private volatile Object result;
+        private volatile long startedAt;
+        private volatile long finishedAt;
+
+        private Step(StepSpec spec) {
+            this.spec = spec;
+        }
+
+        public String getName() {
+            return spec.name();
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public Object getResult() {
+            return result;
+        }
+
+        private void start() {
+            startedAt = System.currentTimeMillis();
+            status = Status.RUNNING;
+        }
+
+        private void finish(Status status, String message, Object result) {
+            this.result = result;
+            this.message = message;
+            this.finishedAt = System.currentTimeMillis();
+            this.status = status;
+        }
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("name", spec.name());
+            map.put("service", spec.service());
+            map.put("status", status.name());
+            map.put("message", message);
+            map.put("startedAt", startedAt > 0 ? startedAt : null);
+            map.put("finishedAt", finishedAt > 0 ? finishedAt : null);
+            return map;
+        }
+    }
+}
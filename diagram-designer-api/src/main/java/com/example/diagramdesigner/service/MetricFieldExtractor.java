@@ -0,0 +1,65 @@
+package com.example.diagramdesigner.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves a diagram {@code valueField} path such as {@code measurements[0].value}
+ * against a JSON response decoded into maps and lists.
+ *
+ * Mirrors {@code getNestedValue} in the frontend's CustomNode.tsx so values pushed
+ * by the server match what the browser would have extracted itself.
+ */
+public final class MetricFieldExtractor {
+
+    private MetricFieldExtractor() {
+    }
+
+    public static Object extract(Object root, String path) {
+        if (path == null || path.isEmpty()) {
+            return root;
+        }
+
+        Object current = root;
+        for (String segment : path.split("[.\\[\\]]")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (current instanceof Map<?, ?> map) {
+                current = map.get(segment);
+            } else if (current instanceof List<?> list) {
+                try {
+                    int index = Integer.parseInt(segment);
+                    current = index >= 0 && index < list.size() ? list.get(index) : null;
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+            if (current == null) {
+                return null;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * The value at {@code path} as a number: numbers as they are, numeric strings
+     * parsed, anything else (including a missing value) NaN.
+     */
+    public static double extractNumber(Object root, String path) {
+        Object value = extract(root, path);
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        if (value instanceof String text) {
+            try {
+                return Double.parseDouble(text.trim());
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+        return Double.NaN;
+    }
+}
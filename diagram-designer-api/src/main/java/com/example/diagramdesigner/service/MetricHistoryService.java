@@ -0,0 +1,284 @@
+package com.example.diagramdesigner.service;
+
+import com.example.diagramdesigner.config.MetricsProxyProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server-side history of every tracked metric, so charts do not depend on each
+ * browser polling and remembering values itself.
+ *
+ * A metric is tracked once a dashboard has asked for it by URL and {@code valueField}
+ * (see {@link MetricsStreamService#track}). Every {@code metrics.proxy.history-sample-interval-ms}
+ * each distinct URL is fetched once through the proxy cache and the numeric value of
+ * each field is appended to that metric's {@link MetricRingBuffer}, stamped with when
+ * the response was fetched. A cached response is therefore recorded only once.
+ *
+ * Entries configured with {@code derive: rate} are read back as a per-second rate
+ * over {@code metrics.proxy.rate-window-ms} of that history; see {@link MetricRingBuffer#rate}.
+ *
+ * Every recorded sample is also written to the {@link MetricStore}, which answers
+ * history queries reaching further back than the ring buffer, including from before
+ * a restart.
+ *
+ * A metric no request has named for {@code metrics.proxy.stream-idle-ttl-ms} stops
+ * being sampled and frees its ring buffer and its place under
+ * {@code metrics.proxy.history-max-series}; what it wrote to the store stays readable.
+ */
+@Service
+public class MetricHistoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricHistoryService.class);
+    private static final int DEFAULT_POINTS = 120;
+
+    private final MetricsProxyService metricsProxyService;
+    private final MetricStore metricStore;
+    private final MetricsProxyProperties properties;
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+    @Autowired
+    public MetricHistoryService(MetricsProxyService metricsProxyService, MetricStore metricStore,
+                                MetricsProxyProperties properties) {
+        this.metricsProxyService = metricsProxyService;
+        this.metricStore = metricStore;
+        this.properties = properties;
+
+        long interval = properties.getHistorySampleIntervalMs();
+        scheduler.scheduleWithFixedDelay(this::sample, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Start recording a metric, unless it already is or the series limit is reached.
+     */
+    public void track(String displayUrl, String fetchUrl, String valueField, String nodeName) {
+        String key = key(displayUrl, valueField);
+        Series metric = series.get(key);
+        if (metric == null) {
+            if (series.size() >= properties.getHistoryMaxSeries()) {
+                logger.debug("Not recording history for {}: {} series already tracked", key, series.size());
+                return;
+            }
+            metric = series.computeIfAbsent(key, k -> new Series(displayUrl, fetchUrl, valueField, nodeName,
+                    new MetricRingBuffer(properties.getHistoryCapacity())));
+        }
+        metric.lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * The recorded values of a metric between {@code from} and {@code to}, reduced to
+     * min, max and average per {@code step} ms. A missing range defaults to everything
+     * in the ring buffer and a missing step to about {@value #DEFAULT_POINTS} buckets.
+     * Ranges starting before the ring buffer's oldest sample are read from the
+     * {@link MetricStore}. Returns null if the metric is neither tracked nor stored.
+     */
+    public Map<String, Object> history(String url, String valueField, Long from, Long to, Long step) {
+        String key = key(url, valueField);
+        Series metric = series.get(key);
+        if (metric == null && !metricStore.contains(key)) {
+            return null;
+        }
+        if (metric != null) {
+            metric.lastUsed = System.currentTimeMillis();
+        }
+
+        long interval = properties.getHistorySampleIntervalMs();
+        long end = to != null ? to : System.currentTimeMillis() + 1;
+        long start = from != null ? from : end - interval * properties.getHistoryCapacity();
+        long bucket = step != null && step > 0 ? step : Math.max(interval, (end - start) / DEFAULT_POINTS);
+
+        Downsampler.Downsampled downsampled;
+        String source;
+        if (metric != null && (metric.buffer.size() > 0 && start >= metric.buffer.firstTimestamp()
+                || !metricStore.isEnabled())) {
+            downsampled = metric.buffer.downsample(start, end, bucket);
+            source = "memory";
+        } else {
+            Downsampler downsampler = new Downsampler(bucket);
+            metricStore.read(key, start, end, downsampler);
+            downsampled = downsampler.result();
+            source = "store";
+        }
+
+        Map<String, Object> history = new LinkedHashMap<>();
+        history.put("url", url);
+        history.put("valueField", valueField);
+        history.put("node", metric != null ? metric.nodeName : null);
+        history.put("from", start);
+        history.put("to", end);
+        history.put("step", bucket);
+        history.put("source", source);
+        history.put("samples", metric != null ? metric.buffer.size() : null);
+        history.put("timestamps", downsampled.timestamps());
+        history.put("min", downsampled.min());
+        history.put("max", downsampled.max());
+        history.put("avg", downsampled.avg());
+        history.put("count", downsampled.count());
+        return history;
+    }
+
+    /**
+     * Record the metric's value from a response the proxy has fetched anyway, so a rate
+     * is current without waiting for the next sampling round.
+     */
+    public void record(String url, String valueField, MetricsProxyService.Fetched fetched) {
+        Series metric = series.get(key(url, valueField));
+        if (metric != null) {
+            record(List.of(metric), fetched);
+        }
+    }
+
+    /**
+     * The metric's per-second rate, or null until there are two samples to derive it from.
+     */
+    public Double rate(String url, String valueField) {
+        Series metric = series.get(key(url, valueField));
+        if (metric == null) {
+            return null;
+        }
+        metric.lastUsed = System.currentTimeMillis();
+        double rate = metric.buffer.rate(properties.getRateWindowMs());
+        return Double.isNaN(rate) ? null : rate;
+    }
+
+    /**
+     * Fetch a counter through the proxy cache, record it and answer with its rate
+     * instead of the raw response. Starts tracking the metric if needed.
+     */
+    public Mono<Map<String, Object>> derivedRate(String displayUrl, String fetchUrl, String valueField, String nodeName) {
+        track(displayUrl, fetchUrl, valueField, nodeName);
+        return metricsProxyService.fetch(fetchUrl, nodeName).map(fetched -> {
+            record(displayUrl, valueField, fetched);
+            Map<String, Object> derived = new LinkedHashMap<>();
+            derived.put("derive", "rate");
+            derived.put("value", rate(displayUrl, valueField));
+            derived.put("unit", "per_second");
+            derived.put("raw", fetched.data() != null ? MetricFieldExtractor.extract(fetched.data(), valueField) : null);
+            derived.put("fetchedAt", fetched.fetchedAt() > 0 ? fetched.fetchedAt() : null);
+            if (fetched.error() != null) {
+                derived.put("error", fetched.error());
+            }
+            return derived;
+        });
+    }
+
+    /**
+     * Tracked metrics with how many samples each holds in memory.
+     */
+    public List<Map<String, Object>> list() {
+        List<Map<String, Object>> metrics = new ArrayList<>(series.size());
+        for (Series metric : series.values()) {
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put("url", metric.displayUrl);
+            view.put("valueField", metric.valueField);
+            view.put("node", metric.nodeName);
+            view.put("samples", metric.buffer.size());
+            view.put("lastTimestamp", metric.buffer.lastTimestamp());
+            metrics.add(view);
+        }
+        return metrics;
+    }
+
+    /**
+     * Size and location of the persistent store; see {@link MetricStore#stats}.
+     */
+    public Map<String, Object> storeStats() {
+        return metricStore.stats();
+    }
+
+    /**
+     * Drop idle series, then fetch every remaining URL once and record its fields. Runs
+     * every {@code metrics.proxy.history-sample-interval-ms}.
+     */
+    void sample() {
+        evictIdle();
+        if (series.isEmpty()) {
+            return;
+        }
+
+        try {
+            // Several fields are usually read from the same response
+            Map<String, List<Series>> byUrl = new HashMap<>();
+            for (Series metric : series.values()) {
+                byUrl.computeIfAbsent(metric.fetchUrl, u -> new ArrayList<>()).add(metric);
+            }
+
+            Flux.fromIterable(byUrl.entrySet())
+                    .flatMap(entry -> metricsProxyService.fetch(entry.getKey(), entry.getValue().get(0).nodeName)
+                            .doOnNext(fetched -> record(entry.getValue(), fetched)), properties.getStreamConcurrency())
+                    .then()
+                    .block(Duration.ofMillis(properties.getTimeoutMs() + 1000L));
+        } catch (Exception e) {
+            logger.warn("Metric history sampling failed: {}", e.getMessage());
+        }
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - properties.getStreamIdleTtlMs();
+        int evicted = 0;
+        for (Series metric : series.values()) {
+            if (metric.lastUsed < cutoff && series.remove(key(metric.displayUrl, metric.valueField), metric)) {
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            logger.debug("Stopped recording history for {} idle metrics", evicted);
+        }
+    }
+
+    private void record(List<Series> metrics, MetricsProxyService.Fetched fetched) {
+        if (fetched.data() == null) {
+            return;
+        }
+        for (Series metric : metrics) {
+            double value = MetricFieldExtractor.extractNumber(fetched.data(), metric.valueField);
+            if (metric.buffer.append(fetched.fetchedAt(), value)) {
+                metricStore.append(key(metric.displayUrl, metric.valueField), fetched.fetchedAt(), value);
+            }
+        }
+    }
+
+    private static String key(String url, String valueField) {
+        return url + "#" + valueField;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private static final class Series {
+        private final String displayUrl;
+        private final String fetchUrl;
+        private final String valueField;
+        private final String nodeName;
+        private final MetricRingBuffer buffer;
+        // When a request last named or read this metric
+        private volatile long lastUsed;
+
+        private Series(String displayUrl, String fetchUrl, String valueField, String nodeName,
+                       MetricRingBuffer buffer) {
+            this.displayUrl = displayUrl;
+            this.fetchUrl = fetchUrl;
+            this.valueField = valueField;
+            this.nodeName = nodeName;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.example.diagramdesigner.service;
+
+import com.example.diagramdesigner.config.MetricStoreProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Aggregates the stored history of several metrics at once into fixed {@code step}
+ * buckets, for charts over days of data.
+ *
+ * Each series is a {@link RecursiveTask} on a dedicated {@link ForkJoinPool} that
+ * splits its range at {@link MetricStore} segment boundaries until each piece covers
+ * one segment. A piece reads the segment's precomputed rollup when the step is a
+ * multiple of a rollup resolution and the aggregation can be built from it (every
+ * one but {@code p95}), and decodes the raw samples otherwise. Pieces are merged in
+ * time order, and every series is handed to the caller as soon as it is complete.
+ *
+ * The range is widened to whole steps, so buckets never straddle its ends.
+ */
+@Service
+public class MetricQueryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricQueryService.class);
+    private static final int DEFAULT_POINTS = 200;
+
+    public enum Aggregation {
+        AVG, MIN, MAX, LAST, P95;
+
+        /**
+         * The aggregation for a request parameter, or null if unknown.
+         */
+        public static Aggregation parse(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * A query over {@code [from, to)}, already widened to multiples of {@code step}.
+     */
+    public record Query(List<String> keys, long from, long to, long step, Aggregation aggregation) {
+
+        public Query {
+            from = Math.floorDiv(from, step) * step;
+            to = Math.floorDiv(to + step - 1, step) * step;
+        }
+
+        public long buckets() {
+            return (to - from) / step;
+        }
+    }
+
+    private final MetricStore metricStore;
+    private final ForkJoinPool pool;
+
+    @Autowired
+    public MetricQueryService(MetricStore metricStore, MetricStoreProperties properties) {
+        this.metricStore = metricStore;
+        int parallelism = properties.getQueryParallelism() > 0
+                ? properties.getQueryParallelism() : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public boolean isAvailable() {
+        return metricStore.isEnabled();
+    }
+
+    /**
+     * {@code from} moved up to the start of retained history, so a range reaching
+     * further back does not split into a task per empty segment. Stays below {@code to}.
+     */
+    public long clampFrom(long from, long to) {
+        long retained = metricStore.retentionStart();
+        return from >= retained ? from : Math.min(retained, to - 1);
+    }
+
+    /**
+     * A step giving about {@value #DEFAULT_POINTS} buckets over the range, at least a
+     * minute, and rounded up to a multiple of a rollup resolution where one fits.
+     */
+    public long defaultStep(long from, long to) {
+        long step = Math.max(60_000L, (to - from) / DEFAULT_POINTS);
+        long unit = 60_000L;
+        for (long resolution : metricStore.rollupResolutions()) {
+            if (resolution <= step) {
+                unit = resolution;
+            }
+        }
+        return Math.floorDiv(step + unit - 1, unit) * unit;
+    }
+
+    /**
+     * Run the query, passing each series' result to {@code onSeries} as it completes,
+     * from a pool thread. Series whose key the store has never seen come back with an
+     * error. Stops early, skipping the remaining series, once {@code cancelled} is true.
+     */
+    public CompletableFuture<Void> query(Query query, Consumer<Map<String, Object>> onSeries, BooleanSupplier cancelled) {
+        long rollup = rollupFor(query);
+        List<CompletableFuture<Void>> series = new ArrayList<>(query.keys().size());
+        for (String key : query.keys()) {
+            series.add(CompletableFuture.supplyAsync(() -> run(query, key, rollup, cancelled), pool)
+                    .thenAccept(result -> {
+                        if (!cancelled.getAsBoolean()) {
+                            onSeries.accept(result);
+                        }
+                    }));
+        }
+        return CompletableFuture.allOf(series.toArray(CompletableFuture[]::new));
+    }
+
+    private Map<String, Object> run(Query query, String key, long rollup, BooleanSupplier cancelled) {
+        long started = System.nanoTime();
+        Map<String, Object> result = new LinkedHashMap<>();
+        int separator = key.lastIndexOf('#');
+        result.put("key", key);
+        result.put("url", key.substring(0, Math.max(separator, 0)));
+        result.put("valueField", key.substring(separator + 1));
+        if (!metricStore.contains(key)) {
+            result.put("error", "No history recorded for " + key);
+            return result;
+        }
+
+        try {
+            Partial merged = new RangeTask(query, key, rollup, query.from(), query.to(), cancelled).invoke();
+            merged.write(query, result);
+        } catch (RuntimeException e) {
+            logger.warn("Metric query for {} failed: {}", key, e.getMessage());
+            result.put("error", e.getMessage());
+        }
+        result.put("rollup", rollup > 0 ? rollup : null);
+        result.put("elapsedMs", (System.nanoTime() - started) / 1_000_000.0);
+        return result;
+    }
+
+    /**
+     * The largest rollup resolution the query's buckets are made of, or 0 to read raw samples.
+     */
+    private long rollupFor(Query query) {
+        if (query.aggregation() == Aggregation.P95) {
+            return 0;
+        }
+        long best = 0;
+        for (long resolution : metricStore.rollupResolutions()) {
+            if (query.step() % resolution == 0) {
+                best = resolution;
+            }
+        }
+        return best;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * One series over {@code [from, to)}: split at segment boundaries, halving the
+     * number of segments each time, and read directly once within one segment.
+     */
+    // Never serialized; RecursiveTask is Serializable only by inheritance
+    @SuppressWarnings("serial")
+    private final class RangeTask extends RecursiveTask<Partial> {
+
+        private final Query query;
+        private final String key;
+        private final long rollup;
+        private final long from;
+        private final long to;
+        private final BooleanSupplier cancelled;
+
+        private RangeTask(Query query, String key, long rollup, long from, long to, BooleanSupplier cancelled) {
+            this.query = query;
+            this.key = key;
+            this.rollup = rollup;
+            this.from = from;
+            this.to = to;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected Partial compute() {
+            long segmentMs = metricStore.segmentMs();
+            long firstSegment = Math.floorDiv(from, segmentMs);
+            long segments = Math.floorDiv(to - 1, segmentMs) - firstSegment + 1;
+            if (segments > 1) {
+                long middle = (firstSegment + segments / 2) * segmentMs;
+                RangeTask left = new RangeTask(query, key, rollup, from, middle, cancelled);
+                RangeTask right = new RangeTask(query, key, rollup, middle, to, cancelled);
+                left.fork();
+                Partial later = right.compute();
+                return left.join().merge(later);
+            }
+
+            Partial partial = new Partial(query, from, to);
+            if (cancelled.getAsBoolean()) {
+                return partial;
+            }
+            Downsampler.Downsampled buckets = rollup > 0
+                    ? metricStore.rollup(key, firstSegment * segmentMs, rollup) : null;
+            if (buckets != null) {
+                for (int b = 0; b < buckets.size(); b++) {
+                    long start = buckets.timestamps()[b];
+                    if (start >= from && start < to) {
+                        partial.add(start, buckets.min()[b], buckets.max()[b], buckets.avg()[b] * buckets.count()[b],
+                                buckets.last()[b], buckets.count()[b]);
+                    }
+                }
+            } else {
+                metricStore.read(key, from, to, partial);
+            }
+            return partial;
+        }
+    }
+
+    /**
+     * Running aggregates for the query buckets overlapping one stretch of time. Raw
+     * values are kept per bucket only for {@code p95}.
+     */
+    private static final class Partial implements MetricStore.SampleConsumer {
+
+        private final long step;
+        private final long origin;
+        private final int first;
+        private final double[] min;
+        private final double[] max;
+        private final double[] sum;
+        private final double[] last;
+        private final int[] count;
+        private final double[][] values;
+
+        private Partial(Query query, long from, long to) {
+            this(query.from(), query.step(), (int) ((from - query.from()) / query.step()),
+                    (int) ((to - 1 - query.from()) / query.step()) + 1, query.aggregation() == Aggregation.P95);
+        }
+
+        /**
+         * Buckets {@code first} (inclusive) to {@code end} (exclusive), counted from {@code origin}.
+         */
+        private Partial(long origin, long step, int first, int end, boolean keepValues) {
+            this.origin = origin;
+            this.step = step;
+            this.first = first;
+            int buckets = end - first;
+            this.min = new double[buckets];
+            this.max = new double[buckets];
+            this.sum = new double[buckets];
+            this.last = new double[buckets];
+            this.count = new int[buckets];
+            this.values = keepValues ? new double[buckets][] : null;
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        }
+
+        @Override
+        public void accept(long timestamp, double value) {
+            int b = (int) ((timestamp - origin) / step) - first;
+            add(b, value, value, value, value, 1);
+            if (values != null) {
+                int n = count[b];
+                if (values[b] == null) {
+                    values[b] = new double[8];
+                } else if (values[b].length < n) {
+                    values[b] = Arrays.copyOf(values[b], n * 2);
+                }
+                values[b][n - 1] = value;
+            }
+        }
+
+        private void add(long timestamp, double min, double max, double sum, double last, int count) {
+            add((int) ((timestamp - origin) / step) - first, min, max, sum, last, count);
+        }
+
+        private void add(int b, double bucketMin, double bucketMax, double bucketSum, double bucketLast, int n) {
+            if (n == 0) {
+                return;
+            }
+            min[b] = Math.min(min[b], bucketMin);
+            max[b] = Math.max(max[b], bucketMax);
+            sum[b] += bucketSum;
+            last[b] = bucketLast;
+            count[b] += n;
+        }
+
+        private int end() {
+            return first + count.length;
+        }
+
+        /**
+         * Combine with the partial for the time right after this one; at most the bucket
+         * on the boundary is shared.
+         */
+        private Partial merge(Partial later) {
+            Partial merged = new Partial(origin, step, Math.min(first, later.first), Math.max(end(), later.end()),
+                    values != null);
+            merged.absorb(this);
+            merged.absorb(later);
+            return merged;
+        }
+
+        private void absorb(Partial other) {
+            for (int i = 0; i < other.count.length; i++) {
+                int b = other.first + i - first;
+                int before = count[b];
+                add(b, other.min[i], other.max[i], other.sum[i], other.last[i], other.count[i]);
+                if (values != null && other.count[i] > 0) {
+                    double[] bucket = values[b] != null ? Arrays.copyOf(values[b], count[b]) : new double[count[b]];
+                    System.arraycopy(other.values[i], 0, bucket, before, other.count[i]);
+                    values[b] = bucket;
+                }
+            }
+        }
+
+        /**
+         * Put the non-empty buckets in the result as parallel arrays.
+         */
+        private void write(Query query, Map<String, Object> result) {
+            int buckets = 0;
+            for (int n : count) {
+                if (n > 0) {
+                    buckets++;
+                }
+            }
+            long[] timestamps = new long[buckets];
+            double[] aggregated = new double[buckets];
+            int[] counts = new int[buckets];
+            int out = 0;
+            for (int i = 0; i < count.length; i++) {
+                if (count[i] == 0) {
+                    continue;
+                }
+                timestamps[out] = origin + (long) (first + i) * step;
+                aggregated[out] = switch (query.aggregation()) {
+                    case AVG -> sum[i] / count[i];
+                    case MIN -> min[i];
+                    case MAX -> max[i];
+                    case LAST -> last[i];
+                    case P95 -> percentile(values[i], count[i], 0.95);
+                };
+                counts[out] = count[i];
+                out++;
+            }
+            result.put("timestamps", timestamps);
+            result.put("values", aggregated);
+            result.put("count", counts);
+        }
+
+        /**
+         * Nearest-rank percentile of the first {@code n} values.
+         */
+        private static double percentile(double[] values, int n, double p) {
+            double[] sorted = Arrays.copyOf(values, n);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(p * n) - 1];
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.diagramdesigner.service;
+
+/**
+ * Fixed-capacity history of one metric: timestamps and values in two preallocated
+ * primitive arrays, overwriting the oldest sample once full. Appending does not
+ * allocate. Timestamps only move forward; a sample not newer than the last one is
+ * dropped, which also discards re-reads of a cached value.
+ */
+public final class MetricRingBuffer {
+
+    private final long[] timestamps;
+    private final double[] values;
+    private int head;
+    private int size;
+
+    public MetricRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.timestamps = new long[capacity];
+        this.values = new double[capacity];
+    }
+
+    /**
+     * @return whether the sample was stored
+     */
+    public synchronized boolean append(long timestamp, double value) {
+        if (Double.isNaN(value) || (size > 0 && timestamp <= timestamps[physical(size - 1)])) {
+            return false;
+        }
+        int slot = (head + size) % timestamps.length;
+        timestamps[slot] = timestamp;
+        values[slot] = value;
+        if (size < timestamps.length) {
+            size++;
+        } else {
+            head = (head + 1) % timestamps.length;
+        }
+        return true;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Timestamp of the oldest sample, or 0 when empty.
+     */
+    public synchronized long firstTimestamp() {
+        return size > 0 ? timestamps[head] : 0;
+    }
+
+    /**
+     * Timestamp of the newest sample, or 0 when empty.
+     */
+    public synchronized long lastTimestamp() {
+        return size > 0 ? timestamps[physical(size - 1)] : 0;
+    }
+
+    /**
+     * Per-second rate of a cumulative counter over the samples in the last
+     * {@code windowMs} before the newest one, or NaN with fewer than two samples.
+     *
+     * The increase is summed between consecutive samples, so irregular intervals are
+     * weighted by their real length. A drop is taken as a counter reset: the counter
+     * restarted from zero, and the value after the drop is the increase for that step.
+     */
+    public synchronized double rate(long windowMs) {
+        if (size < 2) {
+            return Double.NaN;
+        }
+        int last = size - 1;
+        int first = Math.min(firstAtOrAfter(timestamps[physical(last)] - windowMs), last - 1);
+
+        double increase = 0;
+        double previous = values[physical(first)];
+        for (int i = first + 1; i <= last; i++) {
+            double value = values[physical(i)];
+            increase += value >= previous ? value - previous : value;
+            previous = value;
+        }
+        long elapsedMs = timestamps[physical(last)] - timestamps[physical(first)];
+        return increase * 1000.0 / elapsedMs;
+    }
+
+    /**
+     * Samples in {@code [from, to)} reduced to min, max and average per {@code step}
+     * milliseconds; see {@link Downsampler}.
+     */
+    public synchronized Downsampler.Downsampled downsample(long from, long to, long step) {
+        Downsampler downsampler = new Downsampler(step);
+        for (int i = firstAtOrAfter(from); i < size; i++) {
+            int slot = physical(i);
+            if (timestamps[slot] >= to) {
+                break;
+            }
+            downsampler.accept(timestamps[slot], values[slot]);
+        }
+        return downsampler.result();
+    }
+
+    /**
+     * Logical index (0 = oldest) of the first sample at or after {@code timestamp}.
+     */
+    private int firstAtOrAfter(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[physical(mid)] < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int physical(int logical) {
+        return (head + logical) % timestamps.length;
+    }
+}
@@ -0,0 +1,717 @@
+package com.example.diagramdesigner.service;
+
+import com.example.diagramdesigner.config.MetricStoreProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Embedded, persistent store for metric history, so it survives restarts.
+ *
+ * Time is cut into segments of {@code metric-store.segment-minutes}, one file each.
+ * Samples of each series collect in an in-memory {@link GorillaCodec} chunk that is
+ * appended to the current segment's {@code .log} file when it fills up, when its
+ * segment ends, and every {@code metric-store.flush-interval-ms}. Once a segment is
+ * over it is compacted to one chunk per series, written to a {@code .seg} file,
+ * and read through a {@link java.nio.MappedByteBuffer} from then on. Segments older
+ * than {@code metric-store.retention-days} are deleted.
+ *
+ * Both file kinds hold a header (magic, segment start, segment length) followed by
+ * records: a series record ({@code 1}, id, key length, UTF-8 key) before a series'
+ * first chunk, and chunk records ({@code 2}, series id, sample count, first and last
+ * timestamp, byte length, Gorilla bytes). A record cut short by a crash is dropped
+ * when the log is reopened.
+ *
+ * Sealed files also carry rollup records ({@code 3}, series id, resolution, bucket
+ * count, then start, min, max, avg, last and count of each non-empty bucket) for
+ * every {@code metric-store.rollup-minutes} that divides the segment length, so
+ * coarse queries over old data need not decode the raw samples.
+ *
+ * Steady 10 s samples take about 1 byte each for constants, 2 to 3 for integer
+ * counters and about 8 for values with arbitrary decimals, which XOR poorly. Each
+ * rollup bucket adds 44 bytes, about 1.6 bytes per sample for the default 5 and 60
+ * minute rollups. GorillaCodecBenchmark and MetricStoreBenchmark print these figures.
+ */
+@Service
+public class MetricStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricStore.class);
+    private static final int MAGIC = 0x4d545331; // "MTS1"
+    private static final int HEADER_BYTES = 4 + 8 + 8;
+    private static final byte SERIES_RECORD = 1;
+    private static final byte CHUNK_RECORD = 2;
+    private static final int SERIES_HEADER_BYTES = 1 + 4 + 2;
+    private static final int CHUNK_HEADER_BYTES = 1 + 4 + 4 + 8 + 8 + 4;
+    private static final byte ROLLUP_RECORD = 3;
+    private static final int ROLLUP_HEADER_BYTES = 1 + 4 + 4 + 4;
+    private static final int ROLLUP_BUCKET_BYTES = 8 + 8 + 8 + 8 + 8 + 4;
+    private static final int MAX_CHUNK_SAMPLES = 4096;
+    // Keeps deltas within one segment inside the codec's 32-bit range
+    private static final int MAX_SEGMENT_MINUTES = 7 * 24 * 60;
+    private static final String PREFIX = "segment-";
+    private static final String ACTIVE_SUFFIX = ".log";
+    private static final String SEALED_SUFFIX = ".seg";
+
+    /**
+     * Receives samples in time order, without boxing.
+     */
+    @FunctionalInterface
+    public interface SampleConsumer {
+        void accept(long timestamp, double value);
+    }
+
+    private final MetricStoreProperties properties;
+    private final long segmentMs;
+    private final List<Long> rollupResolutions;
+    private final Map<String, OpenChunk> open = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    // Guarded by this; lock order is an OpenChunk first, then this
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+
+    private Path directory;
+    private volatile boolean enabled;
+
+    @Autowired
+    public MetricStore(MetricStoreProperties properties) {
+        this.properties = properties;
+        this.segmentMs = Math.max(1, Math.min(properties.getSegmentMinutes(), MAX_SEGMENT_MINUTES)) * 60_000L;
+        this.rollupResolutions = properties.getRollupMinutes().stream()
+                .map(minutes -> minutes * 60_000L)
+                .filter(resolution -> resolution > 0 && resolution < segmentMs && segmentMs % resolution == 0)
+                .distinct()
+                .sorted()
+                .toList();
+    }
+
+    @PostConstruct
+    public void initialize() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        directory = Paths.get(properties.getDirectory()).toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(directory);
+            long current = segmentStart(System.currentTimeMillis());
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(directory)) {
+                // Sealed files first, so a log whose seal completed is recognised as redundant
+                files = listing.filter(path -> path.getFileName().toString().startsWith(PREFIX))
+                        .sorted(Comparator.comparing((Path path) -> !path.toString().endsWith(SEALED_SUFFIX))
+                                .thenComparing(Comparator.naturalOrder()))
+                        .toList();
+            }
+            synchronized (this) {
+                for (Path file : files) {
+                    load(file, current);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Metric store disabled, cannot use {}: {}", directory, e.getMessage());
+            return;
+        }
+        enabled = true;
+
+        long interval = properties.getFlushIntervalMs();
+        scheduler.scheduleWithFixedDelay(this::maintain, interval, interval, TimeUnit.MILLISECONDS);
+        logger.info("Metric store in {}: {} segments", directory, segments.size());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Add a sample to a series. Samples not newer than the series' last one are ignored.
+     */
+    public void append(String key, long timestamp, double value) {
+        if (!enabled || Double.isNaN(value)) {
+            return;
+        }
+        OpenChunk chunk = open.computeIfAbsent(key, k -> new OpenChunk());
+        synchronized (chunk) {
+            if (timestamp <= chunk.lastTimestamp) {
+                return;
+            }
+            long start = segmentStart(timestamp);
+            if (chunk.encoder != null && (start != chunk.segmentStart || chunk.encoder.count() >= MAX_CHUNK_SAMPLES)) {
+                flush(key, chunk);
+            }
+            if (chunk.encoder == null) {
+                chunk.encoder = new GorillaCodec.Encoder();
+                chunk.segmentStart = start;
+            }
+            chunk.encoder.append(timestamp, value);
+            chunk.lastTimestamp = timestamp;
+        }
+    }
+
+    /**
+     * Pass a series' samples in {@code [from, to)} to the consumer, oldest first.
+     */
+    public void read(String key, long from, long to, SampleConsumer consumer) {
+        if (!enabled || from >= to) {
+            return;
+        }
+        // Taken before the segments so that a flush in between repeats samples rather than losing them
+        ChunkData pending = null;
+        OpenChunk chunk = open.get(key);
+        if (chunk != null) {
+            synchronized (chunk) {
+                if (chunk.encoder != null) {
+                    pending = new ChunkData(ByteBuffer.wrap(chunk.encoder.toBytes()), 0, chunk.encoder.count());
+                }
+            }
+        }
+
+        List<ChunkData> stored = new ArrayList<>();
+        synchronized (this) {
+            for (Segment segment : segments.subMap(segmentStart(from), true, to, false).values()) {
+                for (ChunkRef ref : segment.chunks.getOrDefault(key, List.of())) {
+                    if (ref.lastTimestamp() >= from && ref.firstTimestamp() < to) {
+                        ChunkData data = segment.chunkData(ref);
+                        if (data != null) {
+                            stored.add(data);
+                        }
+                    }
+                }
+            }
+        }
+
+        SampleConsumer ordered = new SampleConsumer() {
+            private long last = Long.MIN_VALUE;
+
+            @Override
+            public void accept(long timestamp, double value) {
+                if (timestamp > last) {
+                    last = timestamp;
+                    consumer.accept(timestamp, value);
+                }
+            }
+        };
+        for (ChunkData data : stored) {
+            GorillaCodec.decode(data.buffer(), data.offset(), data.count(), from, to, ordered);
+        }
+        if (pending != null) {
+            GorillaCodec.decode(pending.buffer(), pending.offset(), pending.count(), from, to, ordered);
+        }
+    }
+
+    /**
+     * The precomputed buckets of a series in a sealed segment, or null if the segment
+     * is still active, has no such series or was written without this resolution.
+     */
+    public Downsampler.Downsampled rollup(String key, long segmentStart, long resolution) {
+        ByteBuffer buffer;
+        RollupRef ref;
+        synchronized (this) {
+            Segment segment = segments.get(segmentStart);
+            if (!enabled || segment == null || segment.mapped == null) {
+                return null;
+            }
+            ref = segment.rollups.getOrDefault(key, List.of()).stream()
+                    .filter(candidate -> candidate.resolution() == resolution)
+                    .findFirst()
+                    .orElse(null);
+            buffer = segment.mapped;
+        }
+        if (ref == null) {
+            return null;
+        }
+
+        int buckets = ref.buckets();
+        long[] timestamps = new long[buckets];
+        double[] min = new double[buckets];
+        double[] max = new double[buckets];
+        double[] avg = new double[buckets];
+        double[] last = new double[buckets];
+        int[] count = new int[buckets];
+        int position = ref.offset();
+        for (int b = 0; b < buckets; b++) {
+            timestamps[b] = buffer.getLong(position);
+            min[b] = buffer.getDouble(position + 8);
+            max[b] = buffer.getDouble(position + 16);
+            avg[b] = buffer.getDouble(position + 24);
+            last[b] = buffer.getDouble(position + 32);
+            count[b] = buffer.getInt(position + 40);
+            position += ROLLUP_BUCKET_BYTES;
+        }
+        return new Downsampler.Downsampled(timestamps, min, max, avg, last, count);
+    }
+
+    /**
+     * Bucket sizes in ms that sealed segments are rolled up to, smallest first.
+     */
+    public List<Long> rollupResolutions() {
+        return rollupResolutions;
+    }
+
+    /**
+     * Length of a segment in ms; segments start at multiples of it.
+     */
+    public long segmentMs() {
+        return segmentMs;
+    }
+
+    /**
+     * Start of the oldest segment retention still keeps; anything earlier is deleted.
+     */
+    public long retentionStart() {
+        return segmentStart(System.currentTimeMillis() - properties.getRetentionDays() * 86_400_000L);
+    }
+
+    public boolean contains(String key) {
+        if (!enabled) {
+            return false;
+        }
+        if (open.containsKey(key)) {
+            return true;
+        }
+        synchronized (this) {
+            return segments.values().stream().anyMatch(segment -> segment.chunks.containsKey(key));
+        }
+    }
+
+    /**
+     * Every series with stored samples, sorted.
+     */
+    public synchronized Set<String> keys() {
+        Set<String> keys = new TreeSet<>(open.keySet());
+        segments.values().forEach(segment -> keys.addAll(segment.chunks.keySet()));
+        return keys;
+    }
+
+    /**
+     * Size of the store on disk, for the history listing.
+     */
+    public synchronized Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        if (enabled) {
+            stats.put("directory", directory.toString());
+            stats.put("segments", segments.size());
+            stats.put("bytes", segments.values().stream().mapToLong(segment -> segment.size).sum());
+            stats.put("retentionDays", properties.getRetentionDays());
+        }
+        return stats;
+    }
+
+    private long segmentStart(long timestamp) {
+        return Math.floorDiv(timestamp, segmentMs) * segmentMs;
+    }
+
+    /**
+     * Write a series' open chunk to its segment. The caller holds the chunk's lock.
+     */
+    private void flush(String key, OpenChunk chunk) {
+        GorillaCodec.Encoder encoder = chunk.encoder;
+        chunk.encoder = null;
+        if (encoder == null || encoder.count() == 0) {
+            return;
+        }
+        synchronized (this) {
+            try {
+                Segment segment = segments.get(chunk.segmentStart);
+                if (segment == null) {
+                    segment = Segment.create(directory.resolve(fileName(chunk.segmentStart, ACTIVE_SUFFIX)),
+                            chunk.segmentStart, segmentMs);
+                    segments.put(chunk.segmentStart, segment);
+                }
+                if (segment.mapped != null) {
+                    logger.debug("Dropping {} samples of {} for already sealed segment {}", encoder.count(), key, segment.start);
+                    return;
+                }
+                segment.writeChunk(key, encoder);
+            } catch (IOException e) {
+                logger.warn("Could not write {} samples of {}: {}", encoder.count(), key, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Flush open chunks, seal finished segments and delete expired ones. Runs every
+     * {@code metric-store.flush-interval-ms}.
+     */
+    void maintain() {
+        try {
+            for (Map.Entry<String, OpenChunk> entry : open.entrySet()) {
+                OpenChunk chunk = entry.getValue();
+                synchronized (chunk) {
+                    flush(entry.getKey(), chunk);
+                }
+            }
+
+            long now = System.currentTimeMillis();
+            long current = segmentStart(now);
+            long expired = now - properties.getRetentionDays() * 86_400_000L;
+            synchronized (this) {
+                for (Segment segment : List.copyOf(segments.values())) {
+                    if (segment.start + segmentMs <= expired) {
+                        segments.remove(segment.start);
+                        segment.close();
+                        Files.deleteIfExists(segment.path);
+                        logger.info("Deleted expired metric segment {}", segment.path.getFileName());
+                    } else if (segment.channel != null && segment.start < current) {
+                        seal(segment);
+                    } else if (segment.channel != null) {
+                        segment.channel.force(false);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Metric store maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Open a segment file found at startup, after every sealed one. A log from an
+     * earlier segment is sealed now; the log of the current segment is appended to again.
+     */
+    private void load(Path file, long current) {
+        String name = file.getFileName().toString();
+        try {
+            if (name.endsWith(".tmp")) {
+                // Left over from a seal that did not finish; its log is still there
+                Files.deleteIfExists(file);
+                return;
+            }
+            boolean sealed = name.endsWith(SEALED_SUFFIX);
+            if (!sealed && !name.endsWith(ACTIVE_SUFFIX)) {
+                return;
+            }
+            if (!sealed && segments.containsKey(startOf(name))) {
+                // A seal was interrupted after the .seg was in place; the log is redundant
+                Files.deleteIfExists(file);
+                return;
+            }
+            Segment segment = sealed ? Segment.map(file) : Segment.reopen(file);
+            segments.put(segment.start, segment);
+            if (!sealed && segment.start < current) {
+                seal(segment);
+            }
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("Skipping unreadable metric segment {}: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * Rewrite a finished segment with one chunk per series and switch it to a mapped
+     * read-only file.
+     */
+    private void seal(Segment segment) throws IOException {
+        Path sealedPath = directory.resolve(fileName(segment.start, SEALED_SUFFIX));
+        Path tmp = sealedPath.resolveSibling(sealedPath.getFileName() + ".tmp");
+        Segment compacted = Segment.create(tmp, segment.start, segmentMs);
+        try {
+            for (Map.Entry<String, List<ChunkRef>> series : segment.chunks.entrySet()) {
+                GorillaCodec.Encoder encoder = new GorillaCodec.Encoder();
+                List<Downsampler> rollups = rollupResolutions.stream().map(Downsampler::new).toList();
+                long[] last = {Long.MIN_VALUE};
+                for (ChunkRef ref : series.getValue()) {
+                    ChunkData data = segment.chunkData(ref);
+                    if (data == null) {
+                        continue;
+                    }
+                    GorillaCodec.decode(data.buffer(), data.offset(), data.count(), Long.MIN_VALUE, Long.MAX_VALUE,
+                            (timestamp, value) -> {
+                                if (timestamp > last[0]) {
+                                    encoder.append(timestamp, value);
+                                    rollups.forEach(rollup -> rollup.accept(timestamp, value));
+                                    last[0] = timestamp;
+                                }
+                            });
+                }
+                if (encoder.count() > 0) {
+                    compacted.writeChunk(series.getKey(), encoder);
+                    for (int i = 0; i < rollups.size(); i++) {
+                        compacted.writeRollup(series.getKey(), rollupResolutions.get(i), rollups.get(i).result());
+                    }
+                }
+            }
+            compacted.channel.force(true);
+        } finally {
+            compacted.close();
+        }
+        Files.move(tmp, sealedPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        segment.close();
+        Files.deleteIfExists(segment.path);
+
+        Segment sealed = Segment.map(sealedPath);
+        segments.put(sealed.start, sealed);
+        logger.debug("Sealed metric segment {}: {} series, {} -> {} bytes", sealed.start, sealed.chunks.size(),
+                segment.size, sealed.size);
+    }
+
+    private static String fileName(long start, String suffix) {
+        return PREFIX + start + suffix;
+    }
+
+    private static long startOf(String fileName) {
+        return Long.parseLong(fileName.substring(PREFIX.length(), fileName.lastIndexOf('.')));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        if (!enabled) {
+            return;
+        }
+        for (Map.Entry<String, OpenChunk> entry : open.entrySet()) {
+            OpenChunk chunk = entry.getValue();
+            synchronized (chunk) {
+                flush(entry.getKey(), chunk);
+            }
+        }
+        synchronized (this) {
+            for (Segment segment : segments.values()) {
+                try {
+                    if (segment.channel != null) {
+                        segment.channel.force(true);
+                    }
+                } catch (IOException e) {
+                    logger.warn("Could not sync metric segment {}: {}", segment.path.getFileName(), e.getMessage());
+                }
+                segment.close();
+            }
+        }
+    }
+
+    /**
+     * The samples of a series not yet written to disk.
+     */
+    private static final class OpenChunk {
+        private GorillaCodec.Encoder encoder;
+        private long segmentStart;
+        private long lastTimestamp = Long.MIN_VALUE;
+    }
+
+    /**
+     * @param offset where the Gorilla bytes start in the file
+     */
+    private record ChunkRef(int offset, int length, int count, long firstTimestamp, long lastTimestamp) {
+    }
+
+    private record ChunkData(ByteBuffer buffer, int offset, int count) {
+    }
+
+    /**
+     * @param offset where the first bucket starts in the file
+     */
+    private record RollupRef(long resolution, int offset, int buckets) {
+    }
+
+    /**
+     * One segment file: appended through a channel while active, mapped once sealed.
+     */
+    private static final class Segment {
+
+        private final Path path;
+        private final long start;
+        private FileChannel channel;
+        private ByteBuffer mapped;
+        private long size;
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final Map<String, List<ChunkRef>> chunks = new HashMap<>();
+        private final Map<String, List<RollupRef>> rollups = new HashMap<>();
+
+        private Segment(Path path, long start) {
+            this.path = path;
+            this.start = start;
+        }
+
+        private static Segment create(Path path, long start, long length) throws IOException {
+            Segment segment = new Segment(path, start);
+            segment.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segment.append(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putLong(start).putLong(length).flip());
+            return segment;
+        }
+
+        private static Segment reopen(Path path) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                ByteBuffer contents = ByteBuffer.allocate((int) channel.size());
+                while (contents.hasRemaining() && channel.read(contents, contents.position()) >= 0) {
+                    // read until full
+                }
+                Segment segment = index(path, contents.flip());
+                if (segment.size < channel.size()) {
+                    channel.truncate(segment.size);
+                }
+                segment.channel = channel;
+                return segment;
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        private static Segment map(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                // The mapping stays valid after the channel is closed
+                ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                Segment segment = index(path, mapped);
+                segment.mapped = mapped;
+                return segment;
+            }
+        }
+
+        /**
+         * Parse a segment's records, stopping at the first incomplete one.
+         */
+        private static Segment index(Path path, ByteBuffer buffer) throws IOException {
+            if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException("not a metric segment");
+            }
+            Segment segment = new Segment(path, buffer.getLong(4));
+            Map<Integer, String> keys = new HashMap<>();
+            int position = HEADER_BYTES;
+            int limit = buffer.limit();
+            while (position < limit) {
+                byte type = buffer.get(position);
+                if (type == SERIES_RECORD && position + SERIES_HEADER_BYTES <= limit) {
+                    int id = buffer.getInt(position + 1);
+                    int length = Short.toUnsignedInt(buffer.getShort(position + 5));
+                    if (position + SERIES_HEADER_BYTES + length > limit) {
+                        break;
+                    }
+                    byte[] key = new byte[length];
+                    buffer.get(position + SERIES_HEADER_BYTES, key);
+                    String name = new String(key, StandardCharsets.UTF_8);
+                    keys.put(id, name);
+                    segment.ids.put(name, id);
+                    position += SERIES_HEADER_BYTES + length;
+                } else if (type == CHUNK_RECORD && position + CHUNK_HEADER_BYTES <= limit) {
+                    String key = keys.get(buffer.getInt(position + 1));
+                    int count = buffer.getInt(position + 5);
+                    long first = buffer.getLong(position + 9);
+                    long last = buffer.getLong(position + 17);
+                    int length = buffer.getInt(position + 25);
+                    if (key == null || length < 0 || position + CHUNK_HEADER_BYTES + length > limit) {
+                        break;
+                    }
+                    segment.chunks.computeIfAbsent(key, k -> new ArrayList<>())
+                            .add(new ChunkRef(position + CHUNK_HEADER_BYTES, length, count, first, last));
+                    position += CHUNK_HEADER_BYTES + length;
+                } else if (type == ROLLUP_RECORD && position + ROLLUP_HEADER_BYTES <= limit) {
+                    String key = keys.get(buffer.getInt(position + 1));
+                    int resolution = buffer.getInt(position + 5);
+                    int buckets = buffer.getInt(position + 9);
+                    long length = (long) buckets * ROLLUP_BUCKET_BYTES;
+                    if (key == null || buckets < 0 || position + ROLLUP_HEADER_BYTES + length > limit) {
+                        break;
+                    }
+                    segment.rollups.computeIfAbsent(key, k -> new ArrayList<>())
+                            .add(new RollupRef(resolution, position + ROLLUP_HEADER_BYTES, buckets));
+                    position += ROLLUP_HEADER_BYTES + (int) length;
+                } else {
+                    break;
+                }
+            }
+            segment.size = position;
+            return segment;
+        }
+
+        private void writeChunk(String key, GorillaCodec.Encoder encoder) throws IOException {
+            Integer id = ids.get(key);
+            if (id == null) {
+                byte[] name = key.getBytes(StandardCharsets.UTF_8);
+                if (name.length > 0xffff) {
+                    throw new IOException("series key too long");
+                }
+                id = ids.size();
+                append(ByteBuffer.allocate(SERIES_HEADER_BYTES + name.length)
+                        .put(SERIES_RECORD).putInt(id).putShort((short) name.length).put(name).flip());
+                ids.put(key, id);
+            }
+            byte[] bytes = encoder.toBytes();
+            long offset = size + CHUNK_HEADER_BYTES;
+            append(ByteBuffer.allocate(CHUNK_HEADER_BYTES + bytes.length)
+                    .put(CHUNK_RECORD).putInt(id).putInt(encoder.count())
+                    .putLong(encoder.firstTimestamp()).putLong(encoder.lastTimestamp())
+                    .putInt(bytes.length).put(bytes).flip());
+            chunks.computeIfAbsent(key, k -> new ArrayList<>()).add(new ChunkRef((int) offset, bytes.length,
+                    encoder.count(), encoder.firstTimestamp(), encoder.lastTimestamp()));
+        }
+
+        /**
+         * Write a series' rollup; its series record must already be written.
+         */
+        private void writeRollup(String key, long resolution, Downsampler.Downsampled rollup) throws IOException {
+            int buckets = rollup.size();
+            ByteBuffer record = ByteBuffer.allocate(ROLLUP_HEADER_BYTES + buckets * ROLLUP_BUCKET_BYTES)
+                    .put(ROLLUP_RECORD).putInt(ids.get(key)).putInt((int) resolution).putInt(buckets);
+            for (int b = 0; b < buckets; b++) {
+                record.putLong(rollup.timestamps()[b]).putDouble(rollup.min()[b]).putDouble(rollup.max()[b])
+                        .putDouble(rollup.avg()[b]).putDouble(rollup.last()[b]).putInt(rollup.count()[b]);
+            }
+            long offset = size + ROLLUP_HEADER_BYTES;
+            append(record.flip());
+            rollups.computeIfAbsent(key, k -> new ArrayList<>()).add(new RollupRef(resolution, (int) offset, buckets));
+        }
+
+        private void append(ByteBuffer record) throws IOException {
+            while (record.hasRemaining()) {
+                size += channel.write(record, size);
+            }
+        }
+
+        /**
+         * A chunk's bytes: a view of the mapping when sealed, a copy read from the log
+         * otherwise (the log may be sealed and closed once the caller lets go of the lock).
+         */
+        private ChunkData chunkData(ChunkRef ref) {
+            if (mapped != null) {
+                return new ChunkData(mapped, ref.offset(), ref.count());
+            }
+            ByteBuffer bytes = ByteBuffer.allocate(ref.length());
+            try {
+                while (bytes.hasRemaining() && channel.read(bytes, ref.offset() + bytes.position()) >= 0) {
+                    // read until full
+                }
+            } catch (IOException e) {
+                logger.warn("Could not read metric chunk from {}: {}", path.getFileName(), e.getMessage());
+                return null;
+            }
+            return new ChunkData(bytes, 0, ref.count());
+        }
+
+        private void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    logger.debug("Error closing metric segment {}: {}", path.getFileName(), e.getMessage());
+                }
+                channel = null;
+            }
+        }
+    }
+}
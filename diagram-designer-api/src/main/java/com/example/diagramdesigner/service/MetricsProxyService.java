@@ -16,6 +16,7 @@ import reactor.core.publisher.Mono;
 import java.time.Duration;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class MetricsProxyService {
@@ -68,6 +69,46 @@ public class MetricsProxyService {
                 .onErrorResume(this::handleError);
     }
 
+    /**
+     * Fetch through the same cache as {@link #proxyRequest}, recording when the value was
+     * fetched. A failure is returned as a result carrying the error and, if there is one,
+     * the last value cached for the URL, so callers can still show it as stale.
+     */
+    public Mono<Fetched> fetch(String targetUrl, String nodeName) {
+        if (properties.isEnableCaching()) {
+            CacheEntry cached = cache.get(targetUrl);
+            if (cached != null && !cached.isExpired()) {
+                return Mono.just(new Fetched(cached.getData(), cached.getFetchedAt(), null));
+            }
+        }
+
+        return makeAuthenticatedRequest(targetUrl, nodeName)
+                .map(response -> {
+                    CacheEntry entry = new CacheEntry(response, properties.getCacheTtlMs());
+                    if (properties.isEnableCaching()) {
+                        cache.put(targetUrl, entry);
+                    }
+                    return new Fetched(response, entry.getFetchedAt(), null);
+                })
+                .onErrorResume(error -> {
+                    String message = error instanceof WebClientResponseException wcre
+                            ? "HTTP " + wcre.getStatusCode().value()
+                            : error instanceof TimeoutException ? "Timed out"
+                            : error.getMessage() != null ? error.getMessage() : "Network error";
+                    CacheEntry previous = cache.get(targetUrl);
+                    return Mono.just(previous != null
+                            ? new Fetched(previous.getData(), previous.getFetchedAt(), message)
+                            : new Fetched(null, 0, message));
+                });
+    }
+
+    /**
+     * @param fetchedAt epoch millis the data was fetched, or 0 if there is none
+     * @param error     why the latest fetch failed, or null if it succeeded
+     */
+    public record Fetched(Object data, long fetchedAt, String error) {
+    }
+
     private Mono<Object> makeAuthenticatedRequest(String targetUrl) {
         return makeAuthenticatedRequest(targetUrl, null);
     }
@@ -120,17 +161,23 @@ public class MetricsProxyService {
 
     private static class CacheEntry {
         private final Object data;
+        private final long fetchedAt;
         private final long expiry;
 
         public CacheEntry(Object data, long ttlMs) {
             this.data = data;
-            this.expiry = System.currentTimeMillis() + ttlMs;
+            this.fetchedAt = System.currentTimeMillis();
+            this.expiry = fetchedAt + ttlMs;
         }
 
         public Object getData() {
             return data;
         }
 
+        public long getFetchedAt() {
+            return fetchedAt;
+        }
+
         public boolean isExpired() {
             return System.currentTimeMillis() > expiry;
         }
@@ -0,0 +1,311 @@
+package com.example.diagramdesigner.service;
+
+import com.example.diagramdesigner.config.MetricsProxyProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes metric values to dashboards as delta-encoded SSE frames.
+ *
+ * Each tracked metric (a proxied URL plus the {@code valueField} to read from it) gets
+ * a compact numeric ID. A client first receives a {@code snapshot} frame with the full
+ * ID-to-key dictionary and every current value; after that each {@code delta} frame
+ * carries only new keys and the IDs whose values changed, with {@code null} meaning
+ * the value disappeared. Frames carry a version that increases by one per delta, so
+ * a client that sees a gap knows to resync.
+ *
+ * At most {@code metrics.proxy.stream-max-series} metrics are tracked. One that no
+ * request has named for {@code metrics.proxy.stream-idle-ttl-ms} is dropped: the next
+ * delta lists its ID under {@code removed}, and the ID is never reused.
+ *
+ * Values travel as their canonical text so both ends can checksum them identically.
+ * Periodic {@code checksum} frames carry a 32-bit FNV-1a hash over
+ * {@code "<id>=<value>\n"} for every present value in ascending ID order, hashed over
+ * UTF-16 code units. A mismatch means drift and the client should resync.
+ */
+@Service
+public class MetricsStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsStreamService.class);
+
+    private final MetricsProxyService metricsProxyService;
+    private final MetricHistoryService metricHistoryService;
+    private final MetricsProxyProperties properties;
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+
+    private final Map<String, TrackedMetric> tracked = new ConcurrentHashMap<>();
+    private final Map<String, SseClient> clients = new ConcurrentHashMap<>();
+
+    // Guarded by stateLock: published state, the keys clients already know, and the version
+    private final Object stateLock = new Object();
+    private final TreeMap<Integer, String> values = new TreeMap<>();
+    private final Map<Integer, String> publishedKeys = new HashMap<>();
+    private long version;
+    private long ticks;
+    private int nextId = 1;
+
+    @Autowired
+    public MetricsStreamService(MetricsProxyService metricsProxyService, MetricHistoryService metricHistoryService,
+                                MetricsProxyProperties properties, ObjectMapper objectMapper) {
+        this.metricsProxyService = metricsProxyService;
+        this.metricHistoryService = metricHistoryService;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+
+        long tick = properties.getStreamTickMs();
+        scheduler.scheduleWithFixedDelay(this::tick, tick, tick, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Start pushing a metric, and recording its history. Called whenever the proxy
+     * serves a request that names the field it will be read from.
+     */
+    public void track(String displayUrl, String fetchUrl, String valueField, String nodeName) {
+        metricHistoryService.track(displayUrl, fetchUrl, valueField, nodeName);
+        String key = displayUrl + "#" + valueField;
+        TrackedMetric metric = tracked.get(key);
+        if (metric == null) {
+            if (tracked.size() >= properties.getStreamMaxSeries()) {
+                logger.debug("Not streaming {}: {} metrics already tracked", key, tracked.size());
+                return;
+            }
+            metric = tracked.computeIfAbsent(key, k -> {
+                synchronized (stateLock) {
+                    return new TrackedMetric(nextId++, k, fetchUrl, valueField, nodeName);
+                }
+            });
+        }
+        metric.lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Register a connected client and queue its initial snapshot ahead of any delta.
+     */
+    public void subscribe(SseClient client) {
+        synchronized (stateLock) {
+            client.offer(snapshotFrame(client.getId()));
+            clients.put(client.getId(), client);
+        }
+        if (client.isClosed()) {
+            clients.remove(client.getId());
+        }
+    }
+
+    public void unsubscribe(SseClient client) {
+        clients.remove(client.getId());
+    }
+
+    /**
+     * Queue a fresh snapshot for a client that detected drift.
+     *
+     * @return false if the client is not connected
+     */
+    public boolean resync(String clientId) {
+        SseClient client = clients.get(clientId);
+        if (client == null) {
+            return false;
+        }
+        synchronized (stateLock) {
+            client.offer(snapshotFrame(clientId));
+        }
+        return true;
+    }
+
+    /**
+     * Evict idle metrics, fetch every tracked value and push a delta if anything
+     * changed. Runs every {@code metrics.proxy.stream-tick-ms}.
+     */
+    void tick() {
+        List<Integer> removed = evictIdle();
+        if (clients.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<TrackedMetric> metrics = List.copyOf(tracked.values());
+            Map<Integer, String> fetched = Flux.fromIterable(metrics)
+                    .flatMap(metric -> fetchValue(metric)
+                            .map(value -> Map.entry(metric.id, value)), properties.getStreamConcurrency())
+                    .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                    .block(Duration.ofMillis(properties.getTimeoutMs() + 1000L));
+
+            publish(metrics, fetched != null ? fetched : Map.of(), removed);
+        } catch (Exception e) {
+            logger.warn("Metric stream refresh failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Stop tracking metrics no request has named within the idle TTL, and forget their
+     * published keys and values so snapshots no longer carry them.
+     *
+     * @return IDs that connected clients have seen and should now drop
+     */
+    private List<Integer> evictIdle() {
+        long cutoff = System.currentTimeMillis() - properties.getStreamIdleTtlMs();
+        List<Integer> removed = new ArrayList<>();
+        for (TrackedMetric metric : tracked.values()) {
+            if (metric.lastUsed < cutoff && tracked.remove(metric.key, metric)) {
+                synchronized (stateLock) {
+                    values.remove(metric.id);
+                    if (publishedKeys.remove(metric.id) != null) {
+                        removed.add(metric.id);
+                    }
+                }
+            }
+        }
+        if (!removed.isEmpty()) {
+            logger.debug("Stopped streaming {} idle metrics", removed.size());
+        }
+        return removed;
+    }
+
+    private Mono<String> fetchValue(TrackedMetric metric) {
+        return metricsProxyService.proxyRequest(metric.fetchUrl, metric.nodeName)
+                .filter(response -> response.getStatusCode().is2xxSuccessful() && response.getBody() != null)
+                .mapNotNull(response -> canonicalText(MetricFieldExtractor.extract(response.getBody(), metric.valueField)))
+                .onErrorResume(e -> Mono.empty());
+    }
+
+    private void publish(List<TrackedMetric> metrics, Map<Integer, String> fetched, List<Integer> removed) {
+        synchronized (stateLock) {
+            Map<Integer, String> newKeys = new TreeMap<>();
+            Map<Integer, String> changed = new TreeMap<>();
+
+            for (TrackedMetric metric : metrics) {
+                if (!publishedKeys.containsKey(metric.id)) {
+                    publishedKeys.put(metric.id, metric.key);
+                    newKeys.put(metric.id, metric.key);
+                }
+                String value = fetched.get(metric.id);
+                if (!Objects.equals(values.get(metric.id), value)) {
+                    changed.put(metric.id, value);
+                    if (value != null) {
+                        values.put(metric.id, value);
+                    } else {
+                        values.remove(metric.id);
+                    }
+                }
+            }
+
+            if (!newKeys.isEmpty() || !changed.isEmpty() || !removed.isEmpty()) {
+                version++;
+                Map<String, Object> delta = new HashMap<>();
+                delta.put("v", version);
+                if (!newKeys.isEmpty()) {
+                    delta.put("keys", newKeys);
+                }
+                if (!removed.isEmpty()) {
+                    delta.put("removed", removed);
+                }
+                delta.put("values", changed);
+                broadcast("delta", delta);
+            }
+
+            ticks++;
+            if (ticks % properties.getStreamChecksumEvery() == 0) {
+                Map<String, Object> checksum = new HashMap<>();
+                checksum.put("v", version);
+                checksum.put("count", values.size());
+                checksum.put("checksum", checksum());
+                broadcast("checksum", checksum);
+            }
+        }
+    }
+
+    private void broadcast(String eventName, Map<String, Object> data) {
+        SseFrame frame = encode(eventName, data);
+        if (frame != null) {
+            clients.values().forEach(client -> client.offer(frame));
+        }
+    }
+
+    private SseFrame snapshotFrame(String clientId) {
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("clientId", clientId);
+        snapshot.put("v", version);
+        snapshot.put("keys", new TreeMap<>(publishedKeys));
+        snapshot.put("values", new TreeMap<>(values));
+        snapshot.put("checksum", checksum());
+        return encode("snapshot", snapshot);
+    }
+
+    private long checksum() {
+        int hash = 0x811c9dc5;
+        for (Map.Entry<Integer, String> entry : values.entrySet()) {
+            String line = entry.getKey() + "=" + entry.getValue() + "\n";
+            for (int i = 0; i < line.length(); i++) {
+                hash ^= line.charAt(i);
+                hash *= 0x01000193;
+            }
+        }
+        return Integer.toUnsignedLong(hash);
+    }
+
+    private String canonicalText(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Map<?, ?> || value instanceof List<?>) {
+            try {
+                return objectMapper.writeValueAsString(value);
+            } catch (JsonProcessingException e) {
+                return null;
+            }
+        }
+        return String.valueOf(value);
+    }
+
+    private SseFrame encode(String eventName, Map<String, Object> data) {
+        try {
+            return SseFrame.encode(objectMapper, eventName, data);
+        } catch (JsonProcessingException e) {
+            logger.error("Failed to serialize metric stream frame {}", eventName, e);
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        clients.values().forEach(SseClient::close);
+    }
+
+    private static final class TrackedMetric {
+        private final int id;
+        private final String key;
+        private final String fetchUrl;
+        private final String valueField;
+        private final String nodeName;
+        // When a request last named this metric
+        private volatile long lastUsed;
+
+        private TrackedMetric(int id, String key, String fetchUrl, String valueField, String nodeName) {
+            this.id = id;
+            this.key = key;
+            this.fetchUrl = fetchUrl;
+            this.valueField = valueField;
+            this.nodeName = nodeName;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.diagramdesigner.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index of the node detail files ({@code <nodeName>.json}).
+ *
+ * With a configs directory on disk the files come from its {@code details}
+ * subdirectory and are kept current through {@link DiagramIndex}'s watcher; otherwise
+ * {@code details/*.json} and {@code configs/details/*.json} are enumerated once from the
+ * classpath, the former taking precedence as it always has. Each file is rendered
+ * (variables substituted, checked to be JSON) and compressed once, and rendered again
+ * only when the file or the service discovery results change. A rendering that still
+ * has unresolved placeholders is retried after {@code diagrams.render-ttl-ms}.
+ */
+@Service
+public class NodeDetailsIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(NodeDetailsIndex.class);
+    private static final String[] CLASSPATH_PATTERNS = {"classpath*:details/*.json", "classpath*:configs/details/*.json"};
+    private static final String SUFFIX = ".json";
+
+    private final DiagramIndex diagramIndex;
+    private final ConfigurationProcessor configurationProcessor;
+    private final ServiceDiscovery serviceDiscovery;
+    private final ObjectMapper objectMapper;
+    private final long renderTtlMs;
+    private final ConcurrentSkipListMap<String, Entry> entries = new ConcurrentSkipListMap<>();
+
+    private Path directory;
+
+    @Autowired
+    public NodeDetailsIndex(DiagramIndex diagramIndex, ConfigurationProcessor configurationProcessor,
+                            ServiceDiscovery serviceDiscovery, ObjectMapper objectMapper,
+                            @Value("${diagrams.render-ttl-ms:30000}") long renderTtlMs) {
+        this.diagramIndex = diagramIndex;
+        this.configurationProcessor = configurationProcessor;
+        this.serviceDiscovery = serviceDiscovery;
+        this.objectMapper = objectMapper;
+        this.renderTtlMs = renderTtlMs;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        if (diagramIndex.getDirectory() != null) {
+            directory = diagramIndex.getDirectory().resolve("details");
+            scanDirectory();
+            diagramIndex.addDetailsListener(this::onChange);
+            logger.info("Indexed {} node detail files in {}", entries.size(), directory);
+        } else {
+            loadFromClasspath();
+            logger.info("Indexed {} node detail files from classpath", entries.size());
+        }
+    }
+
+    /**
+     * Names of the nodes that have details, sorted.
+     */
+    public List<String> list() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    /**
+     * Where the detail files are read from, for display.
+     */
+    public String getLocation() {
+        return directory != null ? directory.toString() : String.join(", ", CLASSPATH_PATTERNS);
+    }
+
+    /**
+     * The node's details with variables substituted, precompressed, or null if the
+     * node has none.
+     *
+     * @throws IOException if the substituted file is not valid JSON
+     */
+    public CompressedPayload render(String nodeName) throws IOException {
+        Entry entry = entries.get(nodeName);
+        if (entry == null) {
+            return null;
+        }
+        long generation = serviceDiscovery.getGeneration();
+        long now = System.currentTimeMillis();
+        Rendered rendered = entry.rendered;
+        if (rendered == null || rendered.generation != generation
+                || (!rendered.resolved && now - rendered.renderedAt > renderTtlMs)) {
+            String processed = configurationProcessor.processVariableSubstitution(entry.content);
+            // Substitution hands back unparseable input unchanged; refuse to serve it
+            objectMapper.readTree(processed);
+            rendered = new Rendered(CompressedPayload.of(processed.getBytes(StandardCharsets.UTF_8), null),
+                    generation, now, !processed.contains("${"));
+            entry.rendered = rendered;
+        }
+        return rendered.payload;
+    }
+
+    private void scanDirectory() {
+        if (!Files.isDirectory(directory)) {
+            entries.clear();
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            List<String> seen = new ArrayList<>();
+            files.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).forEach(path -> {
+                String filename = path.getFileName().toString();
+                seen.add(nodeName(filename));
+                reload(filename);
+            });
+            entries.keySet().retainAll(seen);
+        } catch (IOException e) {
+            logger.error("Error listing node detail files in {}", directory, e);
+        }
+    }
+
+    private void loadFromClasspath() {
+        ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        for (String pattern : CLASSPATH_PATTERNS) {
+            try {
+                for (Resource resource : resolver.getResources(pattern)) {
+                    String filename = resource.getFilename();
+                    if (filename == null || entries.containsKey(nodeName(filename))) {
+                        continue;
+                    }
+                    try {
+                        entries.put(nodeName(filename), new Entry(resource.getContentAsString(StandardCharsets.UTF_8)));
+                    } catch (IOException e) {
+                        logger.warn("Could not read node details {} from classpath: {}", filename, e.getMessage());
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("Could not enumerate {}: {}", pattern, e.getMessage());
+            }
+        }
+    }
+
+    private void onChange(String filename) {
+        if (filename == null) {
+            scanDirectory();
+        } else if (filename.endsWith(SUFFIX)) {
+            reload(filename);
+        }
+    }
+
+    private void reload(String filename) {
+        String nodeName = nodeName(filename);
+        Path path = directory.resolve(filename);
+        if (!Files.isRegularFile(path)) {
+            if (entries.remove(nodeName) != null) {
+                logger.info("Node details {} deleted", nodeName);
+            }
+            return;
+        }
+        try {
+            String content = Files.readString(path);
+            Entry previous = entries.get(nodeName);
+            // Blank: created but not written yet, the modify event that follows carries the content
+            if (content.isBlank() || (previous != null && previous.content.equals(content))) {
+                return;
+            }
+            entries.put(nodeName, new Entry(content));
+            if (previous != null) {
+                logger.info("Node details {} modified", nodeName);
+            }
+        } catch (IOException e) {
+            // Usually a write still in progress; the next event picks it up
+            logger.debug("Could not read node details {}: {}", filename, e.getMessage());
+        }
+    }
+
+    private static String nodeName(String filename) {
+        return filename.substring(0, filename.length() - SUFFIX.length());
+    }
+
+    private static final class Entry {
+        private final String content;
+        private volatile Rendered rendered;
+
+        private Entry(String content) {
+            this.content = content;
+        }
+    }
+
+    /**
+     * @param resolved whether every placeholder was substituted
+     */
+    private record Rendered(CompressedPayload payload, long generation, long renderedAt, boolean resolved) {
+    }
+}
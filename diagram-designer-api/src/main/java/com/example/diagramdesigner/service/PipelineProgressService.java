@@ -0,0 +1,241 @@
+package com.example.diagramdesigner.service;
+
+import com.example.diagramdesigner.config.PipelineProgressProperties;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * File counts for the three RAG pipeline stages in one progress model.
+ *
+ * The stages are queried in parallel and their different response shapes (a map
+ * with a {@code files} array, a bare array, a files-processed counter) are counted
+ * with a streaming parser. The result is cached for {@code pipeline-progress.cache-ttl-ms}
+ * and shared by every viewer; concurrent requests for an expired result wait on a
+ * single refresh. Throughput comes from the change in each stage's count over
+ * {@code pipeline-progress.rate-window-ms}.
+ */
+@Service
+public class PipelineProgressService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelineProgressService.class);
+
+    private final ServiceRegistryService serviceRegistryService;
+    private final ServiceControlClient serviceControlClient;
+    private final ObjectMapper objectMapper;
+    private final PipelineProgressProperties properties;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Stage> stages = List.of(
+            new Stage("hdfswatcher", "ingest", "/api/files"),
+            new Stage("textproc", "text", "/api/files/processed"),
+            new Stage("embedproc", "embed", "/api/processing/files-processed"));
+
+    private volatile Map<String, Object> cached;
+    private volatile long cachedAt;
+    private CompletableFuture<Map<String, Object>> refreshing;
+
+    @Autowired
+    public PipelineProgressService(ServiceRegistryService serviceRegistryService,
+                                   ServiceControlClient serviceControlClient, ObjectMapper objectMapper,
+                                   PipelineProgressProperties properties) {
+        this.serviceRegistryService = serviceRegistryService;
+        this.serviceControlClient = serviceControlClient;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    public Map<String, Object> getProgress() {
+        Map<String, Object> progress = cached;
+        if (progress != null && System.currentTimeMillis() - cachedAt < properties.getCacheTtlMs()) {
+            return progress;
+        }
+
+        CompletableFuture<Map<String, Object>> refresh;
+        synchronized (this) {
+            if (cached != null && System.currentTimeMillis() - cachedAt < properties.getCacheTtlMs()) {
+                return cached;
+            }
+            if (refreshing == null) {
+                refreshing = CompletableFuture.supplyAsync(this::refresh, executor);
+            }
+            refresh = refreshing;
+        }
+        return refresh.join();
+    }
+
+    private Map<String, Object> refresh() {
+        try {
+            List<CompletableFuture<Void>> queries = new ArrayList<>(stages.size());
+            for (Stage stage : stages) {
+                queries.add(CompletableFuture.runAsync(() -> query(stage), executor));
+            }
+            CompletableFuture.allOf(queries.toArray(CompletableFuture[]::new)).join();
+
+            Map<String, Object> progress = buildProgress(System.currentTimeMillis());
+            synchronized (this) {
+                cached = progress;
+                cachedAt = System.currentTimeMillis();
+            }
+            return progress;
+        } finally {
+            synchronized (this) {
+                refreshing = null;
+            }
+        }
+    }
+
+    private void query(Stage stage) {
+        String serviceUrl = serviceRegistryService.getServiceUrl(stage.service);
+        if (serviceUrl == null) {
+            stage.fail("Service not found");
+            return;
+        }
+        try {
+            FileListingPager.Summary summary = serviceControlClient.execute("progress", HttpMethod.GET,
+                    serviceUrl + stage.path, response -> {
+                        try (JsonParser parser = objectMapper.getFactory().createParser(response.getBody())) {
+                            return FileListingPager.summarize(parser, "files");
+                        }
+                    });
+            stage.record(countOf(stage, summary), System.currentTimeMillis(),
+                    properties.getRateWindowMs());
+        } catch (Exception e) {
+            logger.debug("Progress query for {} failed: {}", stage.service, e.getMessage());
+            stage.fail(e.getMessage());
+        }
+    }
+
+    /**
+     * Files a stage has handled: hdfswatcher's reported total or listing size,
+     * textproc's array length, embedproc's filesProcessed counter.
+     */
+    private static long countOf(Stage stage, FileListingPager.Summary summary) {
+        Number filesProcessed = summary.numbers().get("filesProcessed");
+        if (filesProcessed != null) {
+            return filesProcessed.longValue();
+        }
+        Number totalFiles = summary.numbers().get("totalFiles");
+        if ("ingest".equals(stage.stage) && totalFiles != null && totalFiles.longValue() > 0) {
+            return totalFiles.longValue();
+        }
+        return Math.max(0, summary.entries());
+    }
+
+    private Map<String, Object> buildProgress(long now) {
+        Stage ingest = stages.get(0);
+        long totalFiles = ingest.count;
+        long completeFiles = stages.get(stages.size() - 1).count;
+
+        List<Map<String, Object>> stageViews = new ArrayList<>(stages.size());
+        Long pipelineEtaSeconds = 0L;
+        for (Stage stage : stages) {
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put("service", stage.service);
+            view.put("stage", stage.stage);
+            view.put("files", stage.count);
+            view.put("available", stage.error == null);
+            view.put("updatedAt", stage.updatedAt > 0 ? stage.updatedAt : null);
+            if (stage.error != null) {
+                view.put("error", stage.error);
+            }
+
+            Double perMinute = stage.filesPerMinute();
+            view.put("filesPerMinute", perMinute);
+            long remaining = Math.max(0, totalFiles - stage.count);
+            Long etaSeconds = null;
+            if (stage != ingest) {
+                if (remaining == 0) {
+                    etaSeconds = 0L;
+                } else if (perMinute != null && perMinute > 0) {
+                    etaSeconds = Math.round(remaining / perMinute * 60);
+                }
+                view.put("remaining", remaining);
+                view.put("etaSeconds", etaSeconds);
+                // The pipeline finishes with its slowest downstream stage
+                pipelineEtaSeconds = pipelineEtaSeconds == null || etaSeconds == null
+                        ? null : Math.max(pipelineEtaSeconds, etaSeconds);
+            }
+            stageViews.add(view);
+        }
+
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("hdfsFiles", totalFiles);
+        progress.put("textProcFiles", stages.get(1).count);
+        progress.put("embedProcFiles", completeFiles);
+        progress.put("completeFiles", completeFiles);
+        progress.put("percentComplete", totalFiles > 0 ? Math.min(100.0, 100.0 * completeFiles / totalFiles) : null);
+        progress.put("etaSeconds", pipelineEtaSeconds);
+        progress.put("stages", stageViews);
+        progress.put("timestamp", now);
+        return progress;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Latest count of one stage plus recent samples for its throughput. Counts are
+     * kept when a query fails so a flaky service does not make progress jump to zero.
+     */
+    private static final class Stage {
+
+        private final String service;
+        private final String stage;
+        private final String path;
+        private final Deque<long[]> samples = new ArrayDeque<>();
+        private volatile long count;
+        private volatile long updatedAt;
+        private volatile String error;
+
+        private Stage(String service, String stage, String path) {
+            this.service = service;
+            this.stage = stage;
+            this.path = path;
+        }
+
+        private synchronized void record(long count, long now, long windowMs) {
+            // A lower count means the stage was reset; earlier samples no longer apply
+            if (count < this.count) {
+                samples.clear();
+            }
+            samples.addLast(new long[]{now, count});
+            while (samples.size() > 2 && now - samples.peekFirst()[0] > windowMs) {
+                samples.removeFirst();
+            }
+            this.count = count;
+            this.updatedAt = now;
+            this.error = null;
+        }
+
+        private void fail(String error) {
+            this.error = error != null ? error : "unavailable";
+        }
+
+        private synchronized Double filesPerMinute() {
+            if (samples.size() < 2) {
+                return null;
+            }
+            long[] first = samples.peekFirst();
+            long[] last = samples.peekLast();
+            long elapsedMs = last[0] - first[0];
+            return elapsedMs > 0 ? (last[1] - first[1]) * 60_000.0 / elapsedMs : null;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.diagramdesigner.service;
+
+import com.example.diagramdesigner.config.SseProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Bus backed by a RabbitMQ fanout exchange; every instance binds its own
+ * auto-delete queue to it.
+ *
+ * Published events are collected for {@code sse.bus.batch-interval-ms} and sent
+ * as one message holding a JSON array, so a burst costs one broker round trip per
+ * batch rather than per event. Receivers drop their own events and any event
+ * whose sequence is not newer than the last one seen from the same origin, which
+ * covers broker redeliveries.
+ */
+@Component
+@ConditionalOnProperty(prefix = "sse.bus", name = "type", havingValue = "rabbitmq")
+public class RabbitEventBus implements EventBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(RabbitEventBus.class);
+
+    private final RabbitTemplate rabbitTemplate;
+    private final SseProperties properties;
+    private final ObjectMapper objectMapper;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private final ConcurrentLinkedQueue<Envelope> pending = new ConcurrentLinkedQueue<>();
+    private final Map<String, Long> lastSequenceByOrigin = new ConcurrentHashMap<>();
+    private long sequence;
+    private volatile Consumer<Envelope> listener = envelope -> { };
+
+    @Autowired
+    public RabbitEventBus(RabbitTemplate rabbitTemplate, SseProperties properties, ObjectMapper objectMapper) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+
+        long interval = properties.getBus().getBatchIntervalMs();
+        scheduler.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void publish(String eventName, String json) {
+        // Sequence assignment and enqueue happen together so batches stay in sequence order
+        pending.add(new Envelope(instanceId, ++sequence, eventName, json));
+    }
+
+    @Override
+    public void subscribe(Consumer<Envelope> listener) {
+        this.listener = listener;
+    }
+
+    @RabbitListener(queues = "#{sseBusQueue.name}")
+    public void receive(Message message) {
+        List<Envelope> batch;
+        try {
+            batch = objectMapper.readValue(message.getBody(), new TypeReference<List<Envelope>>() {});
+        } catch (Exception e) {
+            logger.warn("Discarding malformed event bus message: {}", e.getMessage());
+            return;
+        }
+
+        for (Envelope envelope : batch) {
+            if (instanceId.equals(envelope.origin())) {
+                continue;
+            }
+            Long last = lastSequenceByOrigin.get(envelope.origin());
+            if (last != null && envelope.sequence() <= last) {
+                continue;
+            }
+            if (last != null && envelope.sequence() > last + 1) {
+                logger.debug("Event bus gap from {}: {} events lost", envelope.origin(), envelope.sequence() - last - 1);
+            }
+            lastSequenceByOrigin.put(envelope.origin(), envelope.sequence());
+            listener.accept(envelope);
+        }
+    }
+
+    private void flush() {
+        int maxBatch = properties.getBus().getBatchMaxSize();
+        while (!pending.isEmpty()) {
+            List<Envelope> batch = new ArrayList<>(Math.min(maxBatch, pending.size()));
+            Envelope next;
+            while (batch.size() < maxBatch && (next = pending.poll()) != null) {
+                batch.add(next);
+            }
+            try {
+                Message message = MessageBuilder.withBody(objectMapper.writeValueAsBytes(batch))
+                        .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                        .build();
+                rabbitTemplate.send(properties.getBus().getExchange(), "", message);
+            } catch (Exception e) {
+                // Already delivered locally; other instances miss this batch rather than stall the queue
+                logger.warn("Failed to publish {} events to the event bus: {}", batch.size(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        flush();
+    }
+}
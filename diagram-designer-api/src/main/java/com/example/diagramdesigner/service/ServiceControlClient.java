@@ -0,0 +1,128 @@
+package com.example.diagramdesigner.service;
+
+import com.example.diagramdesigner.config.ServiceClientProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * HTTP client for control calls to the pipeline services (state, start/stop, file
+ * listings, resets).
+ *
+ * All calls share one JDK {@link HttpClient} and therefore one keep-alive connection
+ * pool. Each named operation gets its own read timeout and retry budget from
+ * {@code service-client.operations.<name>}; the RestTemplates come from Boot's
+ * builder so calls are recorded as {@code http.client.requests}.
+ */
+@Service
+public class ServiceControlClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServiceControlClient.class);
+
+    private final ServiceClientProperties properties;
+    private final RestTemplateBuilder restTemplateBuilder;
+    private final MeterRegistry meterRegistry;
+    private final HttpClient httpClient;
+    private final Map<String, RestTemplate> templates = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ServiceControlClient(ServiceClientProperties properties, RestTemplateBuilder restTemplateBuilder,
+                                MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.restTemplateBuilder = restTemplateBuilder;
+        this.meterRegistry = meterRegistry;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(properties.getConnectTimeoutMs()))
+                .build();
+    }
+
+    public <T> ResponseEntity<T> get(String operation, String url, Class<T> responseType) {
+        return exchange(operation, HttpMethod.GET, url, responseType);
+    }
+
+    public <T> ResponseEntity<T> post(String operation, String url, Class<T> responseType) {
+        return exchange(operation, HttpMethod.POST, url, responseType);
+    }
+
+    /**
+     * Perform the call, retrying connection failures, timeouts and 5xx responses up to
+     * the operation's retry budget with linear backoff. 4xx responses are not retried.
+     */
+    public <T> ResponseEntity<T> exchange(String operation, HttpMethod method, String url, Class<T> responseType) {
+        RestTemplate restTemplate = templates.computeIfAbsent(operation, this::createTemplate);
+        return withRetries(operation, method, url, () -> restTemplate.exchange(url, method, null, responseType), () -> false);
+    }
+
+    /**
+     * Perform the call and hand the open response to {@code extractor}, for example to
+     * stream the body elsewhere without buffering it. Failures are retried like
+     * {@link #exchange} only until the extractor has been invoked, since by then it may
+     * already have consumed or forwarded part of the body.
+     */
+    public <T> T execute(String operation, HttpMethod method, String url, ResponseExtractor<T> extractor) {
+        RestTemplate restTemplate = templates.computeIfAbsent(operation, this::createTemplate);
+        AtomicBoolean extracting = new AtomicBoolean();
+        return withRetries(operation, method, url, () -> restTemplate.execute(url, method, null, response -> {
+            extracting.set(true);
+            return extractor.extractData(response);
+        }), extracting::get);
+    }
+
+    private <T> T withRetries(String operation, HttpMethod method, String url, Supplier<T> call,
+                              BooleanSupplier committed) {
+        int retries = properties.retriesFor(operation);
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return call.get();
+            } catch (ResourceAccessException | HttpServerErrorException e) {
+                if (attempt >= retries || committed.getAsBoolean()) {
+                    throw e;
+                }
+                logger.debug("{} {} failed (attempt {} of {}): {}", method, url, attempt + 1, retries + 1, e.getMessage());
+                Counter.builder("service.client.retries")
+                        .description("Retried control calls to pipeline services")
+                        .tag("operation", operation)
+                        .register(meterRegistry)
+                        .increment();
+                backoff(attempt);
+            }
+        }
+    }
+
+    private RestTemplate createTemplate(String operation) {
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(properties.timeoutFor(operation)));
+        return restTemplateBuilder
+                .requestFactory(() -> requestFactory)
+                .build();
+    }
+
+    private void backoff(int attempt) {
+        try {
+            Thread.sleep(properties.getRetryBackoffMs() * (attempt + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted while retrying");
+        }
+    }
+}
@@ -15,6 +15,7 @@ import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.Map;
 
 @Service
@@ -29,6 +30,8 @@ public class ServiceDiscovery {
 
     // Cache for service URLs
     private final Map<String, String> serviceUrlCache = new ConcurrentHashMap<>();
+    // Bumped whenever the cached discovery results change
+    private final AtomicLong generation = new AtomicLong();
 
     @Autowired
     public ServiceDiscovery(DiscoveryClient discoveryClient, ObjectMapper objectMapper, Environment environment) {
@@ -40,6 +43,101 @@ public class ServiceDiscovery {
                 .build();
     }
 
+    /**
+     * Whether a metrics target is an absolute http(s) URL.
+     */
+    public boolean isHttpUrl(String url) {
+        try {
+            java.net.URI uri = java.net.URI.create(url);
+            return uri.getScheme() != null && (uri.getScheme().equals("http") || uri.getScheme().equals("https"));
+        } catch (Exception e) {
+            logger.warn("Invalid URL provided: {}", url, e);
+            return false;
+        }
+    }
+
+    /**
+     * Whether a metrics target looks like {@code service-name} or {@code service-name/path}.
+     */
+    public boolean isServiceReference(String input) {
+        // Check if this looks like a service name format
+        // Service names typically:
+        // - Don't start with http:// or https:// (those are full URLs)
+        // - May have a path after the service name
+        // - Match pattern: service-name or service-name/path
+
+        if (input.startsWith("http://") || input.startsWith("https://")) {
+            return false;
+        }
+
+        // Generic pattern for service names: letters, numbers, hyphens, optionally followed by a path
+        return input.matches("^[a-zA-Z0-9-]+(/.*)?$");
+    }
+
+    /**
+     * Resolve {@code service-name/path} to the service's base URL plus the path, or null
+     * if the service cannot be found.
+     */
+    public String resolveServiceReference(String serviceInput) {
+        try {
+            // Extract service name from input like "imc-db-server/api/db01/fleet/summary"
+            String serviceName;
+            String remainingPath = "";
+
+            if (serviceInput.contains("/")) {
+                String[] parts = serviceInput.split("/", 2);
+                serviceName = parts[0];
+                remainingPath = "/" + parts[1];
+            } else {
+                serviceName = serviceInput;
+            }
+
+            logger.debug("Attempting to resolve service: {} with path: {}", serviceName, remainingPath);
+
+            String baseUrl = discoverServiceUrl(serviceName);
+            if (baseUrl != null) {
+                // Ensure baseUrl doesn't end with "/" to avoid double slashes
+                if (baseUrl.endsWith("/")) {
+                    baseUrl = baseUrl.substring(0, baseUrl.length() - 1);
+                }
+                return baseUrl + remainingPath;
+            }
+
+            return null;
+        } catch (Exception e) {
+            logger.error("Error resolving service URL for input: {}", serviceInput, e);
+            return null;
+        }
+    }
+
+    /**
+     * The URL to fetch for a metrics target: the target itself if it is a URL, the
+     * resolved service URL if it is a service reference, otherwise null.
+     */
+    public String resolveTargetUrl(String target) {
+        if (target == null || target.isEmpty()) {
+            return null;
+        }
+        if (isHttpUrl(target)) {
+            return target;
+        }
+        return isServiceReference(target) ? resolveServiceReference(target) : null;
+    }
+
+    /**
+     * A counter that changes whenever a discovery result is added or the cache is
+     * cleared, so anything rendered from discovered URLs knows when to re-render.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    private void cacheServiceUrl(String nodeName, String serviceUrl) {
+        if (!serviceUrl.equals(serviceUrlCache.put(nodeName, serviceUrl))) {
+            generation.incrementAndGet();
+        }
+    }
+
     /**
      * Discover service URL by node name from the bound service registry
      */
@@ -54,7 +152,7 @@ public class ServiceDiscovery {
             // Try Spring Cloud DiscoveryClient first (best approach)
             String serviceUrl = discoverServiceViaDiscoveryClient(nodeName);
             if (serviceUrl != null) {
-                serviceUrlCache.put(nodeName, serviceUrl);
+                cacheServiceUrl(nodeName, serviceUrl);
                 logger.info("Discovered service URL using DiscoveryClient for {}: {}", nodeName, serviceUrl);
                 return serviceUrl;
             }
@@ -62,7 +160,7 @@ public class ServiceDiscovery {
             // Try Cloud Foundry URL patterns as fallback
             String cfUrl = tryCloudFoundryUrlPattern(nodeName);
             if (cfUrl != null) {
-                serviceUrlCache.put(nodeName, cfUrl);
+                cacheServiceUrl(nodeName, cfUrl);
                 logger.info("Discovered service URL using CF pattern for {}: {}", nodeName, cfUrl);
                 return cfUrl;
             }
@@ -72,7 +170,7 @@ public class ServiceDiscovery {
             if (registryUrl != null) {
                 String queryResult = queryRegistryForService(registryUrl, nodeName);
                 if (queryResult != null) {
-                    serviceUrlCache.put(nodeName, queryResult);
+                    cacheServiceUrl(nodeName, queryResult);
                     logger.info("Discovered service URL using registry query for {}: {}", nodeName, queryResult);
                     return queryResult;
                 }
@@ -554,6 +652,7 @@ public class ServiceDiscovery {
      */
     public void clearCache() {
         serviceUrlCache.clear();
+        generation.incrementAndGet();
         logger.info("Service URL cache cleared");
     }
 }
\ No newline at end of file
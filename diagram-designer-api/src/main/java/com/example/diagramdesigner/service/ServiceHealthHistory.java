@@ -0,0 +1,164 @@
+package com.example.diagramdesigner.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recent health samples per service, each kept in a fixed-size ring of a
+ * {@code long[]} of timestamps and a {@code byte[]} of states. Recording a sample
+ * overwrites the oldest slot and allocates nothing.
+ *
+ * A service counts as up while it is STARTED or STOPPED (reachable, whether or not
+ * it is processing) and down while it is ERROR or UNKNOWN. Each sample's state is
+ * taken to hold until the next sample, or until now for the latest one.
+ */
+public class ServiceHealthHistory {
+
+    private static final ServiceHealthTable.State[] STATES = ServiceHealthTable.State.values();
+
+    private final int capacity;
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+
+    public ServiceHealthHistory(int capacity) {
+        this.capacity = Math.max(2, capacity);
+    }
+
+    public void record(String serviceName, long timestampMs, ServiceHealthTable.State state) {
+        rings.computeIfAbsent(serviceName, name -> new Ring(capacity)).add(timestampMs, state);
+    }
+
+    public boolean contains(String serviceName) {
+        return rings.containsKey(serviceName);
+    }
+
+    /**
+     * Statistics for each window ending at {@code nowMs}, computed in one pass over
+     * the retained samples, oldest first. Returns null for an unknown service.
+     */
+    public Report report(String serviceName, long nowMs, long[] windowsMs) {
+        Ring ring = rings.get(serviceName);
+        return ring != null ? ring.report(nowMs, windowsMs) : null;
+    }
+
+    private static boolean isUp(byte state) {
+        return state == ServiceHealthTable.State.STARTED.ordinal() || state == ServiceHealthTable.State.STOPPED.ordinal();
+    }
+
+    /**
+     * @param coveredMs     part of the window the retained samples actually cover
+     * @param uptimePercent share of the covered time spent up, or null if nothing is covered
+     * @param transitions   state changes that happened inside the window
+     * @param recoveries    down periods that ended inside the window
+     * @param mttrMs        mean length of those down periods, or null if there were none
+     */
+    public record WindowStats(long windowMs, long coveredMs, Double uptimePercent, int transitions,
+                              int recoveries, Long mttrMs, int samples) {
+    }
+
+    /**
+     * @param currentState state of the latest sample
+     * @param streakMs     time since the latest transition, or since the oldest retained
+     *                     sample if every retained sample has the same state
+     */
+    public record Report(String currentState, long streakMs, List<WindowStats> windows) {
+    }
+
+    private static final class Ring {
+
+        private final long[] timestamps;
+        private final byte[] states;
+        private int next;
+        private int size;
+
+        private Ring(int capacity) {
+            this.timestamps = new long[capacity];
+            this.states = new byte[capacity];
+        }
+
+        private synchronized void add(long timestampMs, ServiceHealthTable.State state) {
+            timestamps[next] = timestampMs;
+            states[next] = (byte) state.ordinal();
+            next = (next + 1) % timestamps.length;
+            if (size < timestamps.length) {
+                size++;
+            }
+        }
+
+        private synchronized Report report(long nowMs, long[] windowsMs) {
+            int windowCount = windowsMs.length;
+            long[] starts = new long[windowCount];
+            long[] covered = new long[windowCount];
+            long[] upMs = new long[windowCount];
+            int[] transitions = new int[windowCount];
+            int[] recoveries = new int[windowCount];
+            long[] downTotalMs = new long[windowCount];
+            int[] samples = new int[windowCount];
+            for (int w = 0; w < windowCount; w++) {
+                starts[w] = nowMs - windowsMs[w];
+            }
+
+            int oldest = (next - size + timestamps.length) % timestamps.length;
+            long streakStart = size > 0 ? timestamps[oldest] : nowMs;
+            long downSince = -1;
+
+            for (int i = 0; i < size; i++) {
+                int slot = (oldest + i) % timestamps.length;
+                long from = timestamps[slot];
+                long to = i + 1 < size ? timestamps[(slot + 1) % timestamps.length] : nowMs;
+                byte state = states[slot];
+                boolean changed = i > 0 && states[(slot - 1 + timestamps.length) % timestamps.length] != state;
+
+                if (changed) {
+                    streakStart = from;
+                }
+                long recoveredDownMs = -1;
+                if (isUp(state)) {
+                    if (downSince >= 0) {
+                        recoveredDownMs = from - downSince;
+                        downSince = -1;
+                    }
+                } else if (downSince < 0) {
+                    downSince = from;
+                }
+
+                for (int w = 0; w < windowCount; w++) {
+                    long clippedFrom = Math.max(from, starts[w]);
+                    if (to > clippedFrom) {
+                        covered[w] += to - clippedFrom;
+                        if (isUp(state)) {
+                            upMs[w] += to - clippedFrom;
+                        }
+                    }
+                    if (from >= starts[w]) {
+                        samples[w]++;
+                        if (changed) {
+                            transitions[w]++;
+                        }
+                        if (recoveredDownMs >= 0) {
+                            recoveries[w]++;
+                            downTotalMs[w] += recoveredDownMs;
+                        }
+                    }
+                }
+            }
+
+            List<WindowStats> windows = new ArrayList<>(windowCount);
+            for (int w = 0; w < windowCount; w++) {
+                windows.add(new WindowStats(
+                        windowsMs[w],
+                        covered[w],
+                        covered[w] > 0 ? 100.0 * upMs[w] / covered[w] : null,
+                        transitions[w],
+                        recoveries[w],
+                        recoveries[w] > 0 ? downTotalMs[w] / recoveries[w] : null,
+                        samples[w]));
+            }
+
+            int latest = (next - 1 + timestamps.length) % timestamps.length;
+            String currentState = size > 0 ? STATES[states[latest]].name() : null;
+            return new Report(currentState, nowMs - streakStart, windows);
+        }
+    }
+}
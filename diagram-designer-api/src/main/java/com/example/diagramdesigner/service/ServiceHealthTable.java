@@ -0,0 +1,104 @@
+package com.example.diagramdesigner.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Latest health of every monitored service, held column-wise in parallel primitive
+ * arrays indexed by a per-service slot: a state byte, the check time in epoch millis,
+ * the sequence number of the applied result and the current probe interval.
+ * Recording a result allocates nothing.
+ */
+public class ServiceHealthTable {
+
+    public enum State {
+        UNKNOWN, STARTED, STOPPED, ERROR
+    }
+
+    public enum Change {
+        /** A newer result was already recorded. */
+        STALE,
+        UNCHANGED,
+        CHANGED
+    }
+
+    private static final State[] STATES = State.values();
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private byte[] states = new byte[16];
+    private long[] checkedAt = new long[16];
+    private long[] sequences = new long[16];
+    private long[] intervalsMs = new long[16];
+    private int size;
+
+    /**
+     * Add a service if it is not present yet; the initial state is UNKNOWN with no check time.
+     */
+    public synchronized void register(String name, long intervalMs) {
+        slotOf(name, intervalMs);
+    }
+
+    /**
+     * Apply a result unless one with a higher sequence number was already applied.
+     * Any state different from the recorded one, including the initial UNKNOWN, is a change.
+     */
+    public synchronized Change record(String name, long sequence, State state, long timestampMs) {
+        int slot = slotOf(name, 0);
+        if (sequences[slot] > sequence) {
+            return Change.STALE;
+        }
+        boolean changed = states[slot] != (byte) state.ordinal();
+        sequences[slot] = sequence;
+        states[slot] = (byte) state.ordinal();
+        checkedAt[slot] = timestampMs;
+        return changed ? Change.CHANGED : Change.UNCHANGED;
+    }
+
+    /**
+     * Current state, or null if the service has never been recorded or registered.
+     */
+    public synchronized State stateOf(String name) {
+        Integer slot = slots.get(name);
+        return slot != null ? STATES[states[slot]] : null;
+    }
+
+    /**
+     * Epoch millis of the last recorded result, or 0 if there is none.
+     */
+    public synchronized long checkedAtOf(String name) {
+        Integer slot = slots.get(name);
+        return slot != null ? checkedAt[slot] : 0;
+    }
+
+    public synchronized long intervalOf(String name) {
+        Integer slot = slots.get(name);
+        return slot != null ? intervalsMs[slot] : 0;
+    }
+
+    public synchronized void setInterval(String name, long intervalMs) {
+        intervalsMs[slotOf(name, intervalMs)] = intervalMs;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private int slotOf(String name, long intervalMs) {
+        Integer existing = slots.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        if (size == states.length) {
+            int capacity = size * 2;
+            states = Arrays.copyOf(states, capacity);
+            checkedAt = Arrays.copyOf(checkedAt, capacity);
+            sequences = Arrays.copyOf(sequences, capacity);
+            intervalsMs = Arrays.copyOf(intervalsMs, capacity);
+        }
+        int slot = size++;
+        intervalsMs[slot] = intervalMs;
+        slots.put(name, slot);
+        return slot;
+    }
+}
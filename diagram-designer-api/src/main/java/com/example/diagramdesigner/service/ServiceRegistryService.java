@@ -1,35 +1,82 @@
 package com.example.diagramdesigner.service;
 
+import com.example.diagramdesigner.config.HealthMonitorProperties;
+import com.example.diagramdesigner.controller.SSEController;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.client.ServiceInstance;
 import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class ServiceRegistryService {
 
-    @Autowired
-    private DiscoveryClient discoveryClient;
+    private static final Logger logger = LoggerFactory.getLogger(ServiceRegistryService.class);
+
+    private final DiscoveryClient discoveryClient;
+    private final HealthMonitorProperties healthProperties;
+    private final SSEController sseController;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final ServiceControlClient serviceControlClient;
+    // Probes are non-blocking, so this thread only starts them and never waits on a service
+    private final WebClient webClient = WebClient.builder().build();
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-    private final Map<String, ServiceStatus> serviceStatuses = new ConcurrentHashMap<>();
+    private final ServiceHealthTable healthTable = new ServiceHealthTable();
+    private final ServiceHealthHistory healthHistory;
+    // Advanced by the scheduler thread each tick; probes reschedule onto it from any thread
+    private final TimingWheel<Probe> healthWheel;
+    // Each service maps to the generation it was (re)added under; a wheel entry from an
+    // earlier generation belongs to a chain that was dropped and is discarded on expiry
+    private final Map<String, Long> monitoredServices = new ConcurrentHashMap<>();
+    private final AtomicLong monitorGeneration = new AtomicLong();
+    private final AtomicInteger probesInFlight = new AtomicInteger();
+    // Every probe and manual status change takes the next number; a result older than
+    // the one already applied for its service is discarded
+    private final AtomicLong statusSequence = new AtomicLong();
+    // Pipeline overview, rebuilt only when a pipeline service changes state or instance URL
+    private final Map<String, String> ragServiceUrls = new ConcurrentHashMap<>();
+    // Resolved instance URLs, reused for one discovery refresh period
+    private final Map<String, CachedUrl> serviceUrlCache = new ConcurrentHashMap<>();
+    private volatile Map<String, Object> ragOverview;
 
     // Service names as they appear in the service registry
     private static final List<String> RAG_SERVICES = Arrays.asList(
         "hdfswatcher", "textproc", "embedproc"
     );
 
-    public ServiceRegistryService() {
+    @Autowired
+    public ServiceRegistryService(DiscoveryClient discoveryClient, HealthMonitorProperties healthProperties,
+                                  SSEController sseController, ServiceControlClient serviceControlClient) {
+        this.discoveryClient = discoveryClient;
+        this.healthProperties = healthProperties;
+        this.sseController = sseController;
+        this.serviceControlClient = serviceControlClient;
+        this.healthWheel = new TimingWheel<>(healthProperties.getWheelSize(), healthProperties.getTickMs());
+        this.healthHistory = new ServiceHealthHistory(healthProperties.getHistorySize());
+    }
+
+    @PostConstruct
+    public void initialize() {
+        // Clients that reconnect after a long gap get the current overview in their SNAPSHOT
+        sseController.registerSnapshotSource("services", this::getRAGPipelineOverview);
         // Start health monitoring
         startHealthMonitoring();
     }
@@ -38,16 +85,15 @@ public class ServiceRegistryService {
         List<ServiceInfo> services = new ArrayList<>();
 
         for (String serviceName : RAG_SERVICES) {
-            List<ServiceInstance> instances = discoveryClient.getInstances(serviceName);
-            if (!instances.isEmpty()) {
-                ServiceInstance instance = instances.get(0);
-                ServiceStatus status = serviceStatuses.get(serviceName);
+            String url = getServiceUrl(serviceName);
+            if (url != null) {
+                ServiceStatus status = getServiceStatus(serviceName);
 
                 services.add(ServiceInfo.builder()
                     .name(serviceName)
                     .displayName(getDisplayName(serviceName))
                     .description(getDescription(serviceName))
-                    .url(instance.getUri().toString())
+                    .url(url)
                     .status(status != null ? status.getStatus() : "UNKNOWN")
                     .lastCheck(status != null ? status.getLastCheck() : null)
                     .build());
@@ -57,8 +103,72 @@ public class ServiceRegistryService {
         return services;
     }
 
+    /**
+     * Totals and per-service status for the RAG pipeline. Served from a cached aggregate;
+     * {@code lastCheck} on each service is as of its last state change.
+     */
+    public Map<String, Object> getRAGPipelineOverview() {
+        Map<String, Object> overview = ragOverview;
+        return overview != null ? overview : rebuildOverview();
+    }
+
+    private synchronized Map<String, Object> rebuildOverview() {
+        List<ServiceInfo> services = new ArrayList<>();
+        for (String serviceName : RAG_SERVICES) {
+            String url = ragServiceUrls.get(serviceName);
+            if (url != null) {
+                ServiceStatus status = getServiceStatus(serviceName);
+                services.add(ServiceInfo.builder()
+                    .name(serviceName)
+                    .displayName(getDisplayName(serviceName))
+                    .description(getDescription(serviceName))
+                    .url(url)
+                    .status(status != null ? status.getStatus() : "UNKNOWN")
+                    .lastCheck(status != null ? status.getLastCheck() : null)
+                    .build());
+            }
+        }
+
+        long activeServices = services.stream()
+            .filter(s -> "STARTED".equals(s.getStatus()))
+            .count();
+
+        long totalServices = services.size();
+        String overallStatus = activeServices == totalServices ? "HEALTHY" :
+                             activeServices > totalServices / 2 ? "DEGRADED" : "CRITICAL";
+
+        Map<String, Object> overview = Map.of(
+            "totalServices", totalServices,
+            "activeServices", activeServices,
+            "overallStatus", overallStatus,
+            "services", List.copyOf(services)
+        );
+        ragOverview = overview;
+        return overview;
+    }
+
     public ServiceStatus getServiceStatus(String serviceName) {
-        return serviceStatuses.get(serviceName);
+        ServiceHealthTable.State state = healthTable.stateOf(serviceName);
+        long checkedAt = healthTable.checkedAtOf(serviceName);
+        if (state == null || checkedAt == 0) {
+            return null;
+        }
+        return new ServiceStatus(state.name(), new Date(checkedAt));
+    }
+
+    /**
+     * Uptime, transitions, MTTR and current streak over each window, or null if the
+     * service has no recorded health samples.
+     */
+    public ServiceHealthHistory.Report getHealthReport(String serviceName, long[] windowsMs) {
+        return healthHistory.report(serviceName, System.currentTimeMillis(), windowsMs);
+    }
+
+    /**
+     * Names of every service currently under health monitoring.
+     */
+    public Set<String> getMonitoredServices() {
+        return Collections.unmodifiableSet(monitoredServices.keySet());
     }
 
     public Map<String, Object> getServiceState(String serviceName) {
@@ -66,7 +176,7 @@ public class ServiceRegistryService {
             String url = getServiceUrl(serviceName);
             if (url == null) return Map.of("error", "Service not found");
 
-            ResponseEntity<Map> response = restTemplate.getForEntity(
+            ResponseEntity<Map> response = serviceControlClient.get("state",
                 url + "/api/processing/state",
                 Map.class
             );
@@ -85,9 +195,8 @@ public class ServiceRegistryService {
             String url = getServiceUrl(serviceName);
             if (url == null) return false;
 
-            ResponseEntity<Map> response = restTemplate.postForEntity(
+            ResponseEntity<Map> response = serviceControlClient.post("start",
                 url + "/api/processing/start",
-                null,
                 Map.class
             );
 
@@ -106,9 +215,8 @@ public class ServiceRegistryService {
             String url = getServiceUrl(serviceName);
             if (url == null) return false;
 
-            ResponseEntity<Map> response = restTemplate.postForEntity(
+            ResponseEntity<Map> response = serviceControlClient.post("stop",
                 url + "/api/processing/stop",
-                null,
                 Map.class
             );
 
@@ -123,7 +231,7 @@ public class ServiceRegistryService {
     }
 
     public boolean toggleService(String serviceName) {
-        ServiceStatus currentStatus = serviceStatuses.get(serviceName);
+        ServiceStatus currentStatus = getServiceStatus(serviceName);
         if (currentStatus != null && "STARTED".equals(currentStatus.getStatus())) {
             return stopService(serviceName);
         } else {
@@ -132,51 +240,234 @@ public class ServiceRegistryService {
     }
 
     private void startHealthMonitoring() {
+        long tickMs = healthWheel.getTickMs();
         scheduler.scheduleAtFixedRate(() -> {
-            for (String serviceName : RAG_SERVICES) {
-                checkServiceHealth(serviceName);
+            try {
+                healthWheel.advance(this::checkServiceHealth);
+            } catch (Exception e) {
+                logger.error("Health check tick failed", e);
             }
-        }, 0, 10, TimeUnit.SECONDS);
+        }, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::refreshMonitoredServices,
+                0, healthProperties.getDiscoveryRefreshMs(), TimeUnit.MILLISECONDS);
     }
 
-    private void checkServiceHealth(String serviceName) {
+    /**
+     * Reconcile the monitored set with configuration and the service registry. New
+     * services get a first probe at a random offset so they are not checked in lockstep;
+     * removed ones fall off the wheel at their next expiry, even if they come back first.
+     */
+    private void refreshMonitoredServices() {
+        try {
+            Set<String> wanted = new HashSet<>(healthProperties.getServices());
+            if (healthProperties.isIncludeDiscovered()) {
+                wanted.addAll(discoveryClient.getServices());
+            }
+            healthProperties.getExclude().forEach(wanted::remove);
+
+            monitoredServices.keySet().retainAll(wanted);
+            for (String serviceName : wanted) {
+                if (!monitoredServices.containsKey(serviceName)) {
+                    long generation = monitorGeneration.incrementAndGet();
+                    monitoredServices.put(serviceName, generation);
+                    healthTable.register(serviceName, healthProperties.intervalFor(serviceName));
+                    healthWheel.schedule(new Probe(serviceName, generation), jitter());
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to refresh monitored services: {}", e.getMessage());
+        }
+        refreshRagServiceUrls();
+    }
+
+    private void refreshRagServiceUrls() {
+        boolean changed = false;
+        for (String serviceName : RAG_SERVICES) {
+            try {
+                String url = lookupServiceUrl(serviceName);
+                String previous = url != null ? ragServiceUrls.put(serviceName, url) : ragServiceUrls.remove(serviceName);
+                changed |= !Objects.equals(previous, url);
+            } catch (Exception e) {
+                logger.warn("Failed to resolve {}: {}", serviceName, e.getMessage());
+            }
+        }
+        if (changed) {
+            rebuildOverview();
+        }
+    }
+
+    private long jitter() {
+        long jitterMs = healthProperties.getJitterMs();
+        return jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0;
+    }
+
+    private void checkServiceHealth(Probe probe) {
+        if (!probe.isCurrent(monitoredServices)) {
+            return;
+        }
+        if (probesInFlight.get() >= healthProperties.getMaxConcurrentProbes()) {
+            // Over budget: retry next tick rather than pile more requests onto the network
+            healthWheel.schedule(probe, healthWheel.getTickMs());
+            return;
+        }
+
+        String serviceName = probe.serviceName();
+
+        long sequence = statusSequence.incrementAndGet();
         try {
             String url = getServiceUrl(serviceName);
             if (url == null) {
-                updateServiceStatus(serviceName, "UNKNOWN");
+                completeHealthCheck(probe, sequence, "UNKNOWN");
                 return;
             }
 
-            ResponseEntity<Map> response = restTemplate.getForEntity(
-                url + "/api/processing/state",
-                Map.class
-            );
-
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                Map<String, Object> state = response.getBody();
-                boolean enabled = Boolean.TRUE.equals(state.get("enabled")) ||
-                               Boolean.TRUE.equals(state.get("processing"));
-                updateServiceStatus(serviceName, enabled ? "STARTED" : "STOPPED");
-            } else {
-                updateServiceStatus(serviceName, "ERROR");
-            }
+            probesInFlight.incrementAndGet();
+            Mono<String> result = healthProperties.getServices().contains(serviceName)
+                    ? probeProcessingState(url)
+                    : probeHealthEndpoint(url);
+            result.timeout(Duration.ofMillis(healthProperties.getTimeoutMs()))
+                    .defaultIfEmpty("ERROR")
+                    .onErrorReturn("ERROR")
+                    .doFinally(signal -> probesInFlight.decrementAndGet())
+                    .subscribe(status -> completeHealthCheck(probe, sequence, status));
         } catch (Exception e) {
-            updateServiceStatus(serviceName, "ERROR");
+            completeHealthCheck(probe, sequence, "ERROR");
+        }
+    }
+
+    /**
+     * A pipeline service is STARTED while it is enabled or processing and STOPPED otherwise.
+     */
+    private Mono<String> probeProcessingState(String url) {
+        return webClient.get()
+                .uri(url + "/api/processing/state")
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                .map(state -> Boolean.TRUE.equals(state.get("enabled")) ||
+                        Boolean.TRUE.equals(state.get("processing")) ? "STARTED" : "STOPPED");
+    }
+
+    /**
+     * Any other registered app is checked through its Spring Boot health endpoint:
+     * UP is STARTED, OUT_OF_SERVICE is STOPPED and DOWN is ERROR. An app that answers
+     * with a 4xx does not expose health to us, so being registered and reachable is
+     * all there is to go on and it counts as STARTED.
+     */
+    private Mono<String> probeHealthEndpoint(String url) {
+        return webClient.get()
+                .uri(url + healthProperties.getDiscoveredHealthPath())
+                .exchangeToMono(response -> {
+                    if (response.statusCode().is4xxClientError()) {
+                        return response.releaseBody().thenReturn("STARTED");
+                    }
+                    // DOWN and OUT_OF_SERVICE come with a 503 and still carry a status
+                    return response.bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                            .map(health -> switch (String.valueOf(health.get("status"))) {
+                                case "UP" -> "STARTED";
+                                case "OUT_OF_SERVICE" -> "STOPPED";
+                                case "UNKNOWN" -> "UNKNOWN";
+                                default -> "ERROR";
+                            });
+                });
+    }
+
+    /**
+     * Record a probe result and schedule the next probe. A service whose state just
+     * changed is checked again at the minimum interval; each stable result stretches
+     * the interval by half, up to the maximum.
+     */
+    private void completeHealthCheck(Probe probe, long sequence, String status) {
+        String serviceName = probe.serviceName();
+        ServiceHealthTable.Change change = applyServiceStatus(serviceName, sequence, status);
+
+        long interval = healthTable.intervalOf(serviceName);
+        if (healthProperties.isAdaptive(serviceName)) {
+            interval = change == ServiceHealthTable.Change.CHANGED
+                    ? healthProperties.getMinIntervalMs()
+                    : Math.min(healthProperties.getMaxIntervalMs(), Math.max(interval, 1) * 3 / 2);
+            healthTable.setInterval(serviceName, interval);
+        }
+        if (probe.isCurrent(monitoredServices)) {
+            healthWheel.schedule(probe, interval + jitter());
         }
     }
 
     private void updateServiceStatus(String serviceName, String status) {
-        serviceStatuses.put(serviceName, new ServiceStatus(status, new Date()));
+        applyServiceStatus(serviceName, statusSequence.incrementAndGet(), status);
+    }
+
+    private ServiceHealthTable.Change applyServiceStatus(String serviceName, long sequence, String status) {
+        // A newer probe or a manual start/stop may already have landed; then this is STALE
+        ServiceHealthTable.State state = ServiceHealthTable.State.valueOf(status);
+        long now = System.currentTimeMillis();
+        ServiceHealthTable.Change change = healthTable.record(serviceName, sequence, state, now);
+        if (change != ServiceHealthTable.Change.STALE) {
+            healthHistory.record(serviceName, now, state);
+        }
+        if (change == ServiceHealthTable.Change.CHANGED) {
+            publishStatusChange(serviceName, status);
+        }
+        return change;
+    }
+
+    /**
+     * Push a state transition to SSE clients so dashboards do not need to poll.
+     */
+    private void publishStatusChange(String serviceName, String status) {
+        if (RAG_SERVICES.contains(serviceName)) {
+            rebuildOverview();
+        }
+        Map<String, Object> event = new HashMap<>();
+        event.put("app", serviceName);
+        event.put("status", status);
+        event.put("message", serviceName + " is " + status);
+        sseController.sendLocalEvent("SERVICE_STATUS", event);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
     }
 
-    private String getServiceUrl(String serviceName) {
+    /**
+     * Base URL of the first registered instance of a service, or null if none is
+     * registered. Found URLs are cached for {@code health-monitor.discovery-refresh-ms};
+     * misses are not cached so a newly registered service is picked up at once.
+     */
+    public String getServiceUrl(String serviceName) {
+        CachedUrl cached = serviceUrlCache.get(serviceName);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            return cached.url();
+        }
+        return lookupServiceUrl(serviceName);
+    }
+
+    private String lookupServiceUrl(String serviceName) {
         List<ServiceInstance> instances = discoveryClient.getInstances(serviceName);
         if (!instances.isEmpty()) {
-            return instances.get(0).getUri().toString();
+            String url = instances.get(0).getUri().toString();
+            serviceUrlCache.put(serviceName,
+                    new CachedUrl(url, System.currentTimeMillis() + healthProperties.getDiscoveryRefreshMs()));
+            return url;
         }
+        serviceUrlCache.remove(serviceName);
         return null;
     }
 
+    private record CachedUrl(String url, long expiresAt) {
+    }
+
+    /**
+     * A health wheel entry: the service to check and the monitoring generation whose
+     * probe chain it continues.
+     */
+    private record Probe(String serviceName, long generation) {
+        boolean isCurrent(Map<String, Long> monitored) {
+            Long current = monitored.get(serviceName);
+            return current != null && current == generation;
+        }
+    }
+
     private String getDisplayName(String serviceName) {
         switch (serviceName) {
             case "hdfswatcher":
@@ -0,0 +1,238 @@
+package com.example.diagramdesigner.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * One connected SSE subscriber with its own bounded outbound queue.
+ *
+ * Broadcasting only enqueues; a dedicated virtual thread drains the queue into the
+ * emitter, so a client stalled on a slow network blocks nobody but itself. When the
+ * queue is full the configured {@link OverflowPolicy} decides what gives way.
+ */
+public class SseClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(SseClient.class);
+
+    public enum OverflowPolicy {
+        /** Discard the oldest queued frame to make room. */
+        DROP_OLDEST,
+        /** Replace a queued frame with the same conflation key, else drop the oldest. */
+        CONFLATE,
+        /** Evict the client; it is expected to reconnect. */
+        DISCONNECT
+    }
+
+    private final String id;
+    private final SseEmitter emitter;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Set<String> topics;
+    private final long connectedAt = System.currentTimeMillis();
+
+    private final ArrayDeque<SseFrame> queue;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed;
+    // Guarded by lock: whether a close() has claimed the callback
+    private boolean released;
+    private Consumer<SseClient> onClose = client -> { };
+
+    public SseClient(String id, SseEmitter emitter, int capacity, OverflowPolicy overflowPolicy, Set<String> topics) {
+        this.id = id;
+        this.emitter = emitter;
+        this.capacity = Math.max(1, capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.topics = Set.copyOf(topics);
+        this.queue = new ArrayDeque<>(this.capacity);
+    }
+
+    /**
+     * Start the writer thread. The callback runs once when the client is closed for any
+     * reason, never under this client's lock: on the thread that called {@link #close},
+     * or on the writer thread after an overflow eviction, so it never runs inside a
+     * broadcaster's locks either.
+     */
+    public void start(Consumer<SseClient> onClose) {
+        this.onClose = onClose;
+        Thread.ofVirtual().name("sse-writer-" + id).start(this::drain);
+    }
+
+    /**
+     * Queue a frame for delivery without blocking the caller.
+     *
+     * @return false if the client is closed or was evicted by this offer
+     */
+    public boolean offer(SseFrame frame) {
+        if (closed) {
+            return false;
+        }
+
+        lock.lock();
+        try {
+            if (queue.size() >= capacity) {
+                switch (overflowPolicy) {
+                    case DISCONNECT -> {
+                        dropped.incrementAndGet();
+                        logger.debug("SSE client {} overflowed its queue of {}, disconnecting", id, capacity);
+                        // The writer wakes up, completes the emitter and runs the callback
+                        markClosedLocked();
+                        return false;
+                    }
+                    case CONFLATE -> {
+                        if (!replaceConflated(frame)) {
+                            queue.pollFirst();
+                            queue.addLast(frame);
+                        }
+                        dropped.incrementAndGet();
+                        return true;
+                    }
+                    default -> {
+                        queue.pollFirst();
+                        dropped.incrementAndGet();
+                    }
+                }
+            }
+            queue.addLast(frame);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() {
+        boolean release;
+        lock.lock();
+        try {
+            markClosedLocked();
+            // Claimed before unlocking, so the writer cannot take the callback off this thread
+            release = !released;
+            released = true;
+        } finally {
+            lock.unlock();
+        }
+        if (release) {
+            onClose.accept(this);
+        }
+    }
+
+    private void markClosedLocked() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.clear();
+        notEmpty.signal();
+    }
+
+    private boolean replaceConflated(SseFrame frame) {
+        if (frame.conflationKey() == null) {
+            return false;
+        }
+        Iterator<SseFrame> it = queue.iterator();
+        while (it.hasNext()) {
+            if (frame.conflationKey().equals(it.next().conflationKey())) {
+                it.remove();
+                queue.addLast(frame);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void drain() {
+        boolean failed = false;
+        while (!failed) {
+            SseFrame frame;
+            lock.lock();
+            try {
+                while (queue.isEmpty() && !closed) {
+                    notEmpty.await();
+                }
+                if (closed) {
+                    break;
+                }
+                frame = queue.pollFirst();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                frame.writeTo(emitter);
+                sent.incrementAndGet();
+            } catch (Exception e) {
+                logger.debug("SSE client {} write failed: {}", id, e.getMessage());
+                failed = true;
+            }
+        }
+
+        close();
+        if (!failed) {
+            // Completing from the writer keeps a blocked emitter monitor off the broadcasting thread
+            emitter.complete();
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    /**
+     * Topics this client subscribed to; empty means every event.
+     */
+    public Set<String> getTopics() {
+        return topics;
+    }
+
+    /**
+     * Whether a message frame falls within this client's topic subscription.
+     */
+    public boolean matches(SseFrame frame) {
+        return SseTopicIndex.matches(topics, frame.topics());
+    }
+
+    public long getConnectedAt() {
+        return connectedAt;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.diagramdesigner.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A single outbound SSE event, encoded once to its UTF-8 wire form and shared by
+ * every client queue it is offered to.
+ *
+ * The conflation key identifies frames that supersede each other (for example
+ * consecutive heartbeats) so a full queue can replace a stale frame instead of
+ * growing. Topics come from the payload and drive {@link SseTopicIndex} routing.
+ * An ID of 0 means the frame carries no {@code id:} field.
+ */
+public final class SseFrame {
+
+    private final long id;
+    private final String name;
+    private final String json;
+    private final String conflationKey;
+    private final List<String> topics;
+    private volatile Set<ResponseBodyEmitter.DataWithMediaType> payload;
+
+    private SseFrame(long id, String name, String json, String conflationKey, List<String> topics) {
+        this.id = id;
+        this.name = name;
+        this.json = json;
+        this.conflationKey = conflationKey;
+        this.topics = topics;
+    }
+
+    /**
+     * Serialize the event data with Jackson. The wire frame is rendered on first write.
+     */
+    public static SseFrame encode(ObjectMapper objectMapper, String name, Map<String, Object> data)
+            throws JsonProcessingException {
+        return of(name, objectMapper.writeValueAsString(data), data);
+    }
+
+    /**
+     * Rebuild a frame from JSON serialized elsewhere, such as another instance, keeping
+     * the JSON text as-is.
+     */
+    public static SseFrame decode(ObjectMapper objectMapper, String name, String json)
+            throws JsonProcessingException {
+        Map<String, Object> data = objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {});
+        return of(name, json, data);
+    }
+
+    private static SseFrame of(String name, String json, Map<String, Object> data) {
+        Object eventType = data.get("event");
+        Object app = data.get("app");
+        String key = name + ":" + (eventType != null ? eventType : "") + ":" + (app != null ? app : "");
+        return new SseFrame(0, name, json, key, SseTopicIndex.topicsOf(data));
+    }
+
+    /**
+     * Copy of this frame carrying the given event ID, reusing the serialized JSON.
+     */
+    public SseFrame withId(long id) {
+        return new SseFrame(id, name, json, conflationKey, topics);
+    }
+
+    /**
+     * Write the pre-encoded bytes, bypassing per-emitter event builders and message conversion.
+     */
+    public void writeTo(SseEmitter emitter) throws IOException {
+        emitter.send(payload());
+    }
+
+    /**
+     * The complete wire frame as UTF-8 bytes, rendered on first use.
+     */
+    public Set<ResponseBodyEmitter.DataWithMediaType> payload() {
+        Set<ResponseBodyEmitter.DataWithMediaType> encoded = payload;
+        if (encoded == null) {
+            // Racing writers may both render; the results are identical
+            String frame = (id > 0 ? "id:" + id + "\n" : "") + "event:" + name + "\ndata:" + json + "\n\n";
+            encoded = Set.of(new ResponseBodyEmitter.DataWithMediaType(
+                    frame.getBytes(StandardCharsets.UTF_8), MediaType.TEXT_EVENT_STREAM));
+            payload = encoded;
+        }
+        return encoded;
+    }
+
+    public long id() {
+        return id;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String json() {
+        return json;
+    }
+
+    public String conflationKey() {
+        return conflationKey;
+    }
+
+    public List<String> topics() {
+        return topics;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.diagramdesigner.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-size ring of the most recent SSE message frames, indexed by event ID.
+ *
+ * Event IDs are assigned consecutively by the caller, starting right after the
+ * base ID given at construction, so the slot holding any retained ID is computed
+ * directly instead of searched for. The slot array is allocated once; appending
+ * only overwrites the oldest reference.
+ *
+ * Not thread-safe: callers serialize ID assignment, appends and reads.
+ */
+public class SseReplayBuffer {
+
+    private final SseFrame[] slots;
+    private final long baseId;
+    private long latestId;
+
+    public SseReplayBuffer(int capacity, long baseId) {
+        this.slots = new SseFrame[Math.max(1, capacity)];
+        this.baseId = baseId;
+        this.latestId = baseId;
+    }
+
+    /**
+     * Store a frame whose ID must be exactly one greater than the previous one.
+     */
+    public void append(SseFrame frame) {
+        if (frame.id() != latestId + 1) {
+            throw new IllegalArgumentException("Expected event id " + (latestId + 1) + " but got " + frame.id());
+        }
+        slots[slot(frame.id())] = frame;
+        latestId = frame.id();
+    }
+
+    public long latestId() {
+        return latestId;
+    }
+
+    /**
+     * Oldest ID still retained, or {@code latestId + 1} when nothing has been appended.
+     */
+    public long oldestId() {
+        return Math.max(baseId + 1, latestId - slots.length + 1);
+    }
+
+    /**
+     * Whether every event after {@code lastEventId} is still retained.
+     */
+    public boolean canReplayFrom(long lastEventId) {
+        return lastEventId >= oldestId() - 1 && lastEventId <= latestId;
+    }
+
+    /**
+     * Frames with IDs greater than {@code lastEventId}, oldest first. Callers must
+     * check {@link #canReplayFrom(long)} first.
+     */
+    public List<SseFrame> framesAfter(long lastEventId) {
+        List<SseFrame> frames = new ArrayList<>((int) Math.max(0, latestId - lastEventId));
+        for (long id = lastEventId + 1; id <= latestId; id++) {
+            frames.add(slots[slot(id)]);
+        }
+        return frames;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    private int slot(long id) {
+        return (int) ((id - 1) % slots.length);
+    }
+}
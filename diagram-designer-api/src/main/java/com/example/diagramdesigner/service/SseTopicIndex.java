@@ -0,0 +1,156 @@
+package com.example.diagramdesigner.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Maps SSE topics to the clients subscribed to them.
+ *
+ * Topics take the form {@code <dimension>:<value>}, e.g. {@code node:telegen},
+ * {@code app:textproc}, {@code event:FILE_PROCESSED} or {@code diagram:Crash-Processing.json}.
+ * Clients that subscribe without topics receive everything. Delivering an event touches
+ * only the buckets for that event's own topics, so the cost follows the number of
+ * matching subscribers rather than the number of connected clients.
+ */
+public class SseTopicIndex {
+
+    public static final List<String> DIMENSIONS = List.of("event", "app", "node", "diagram");
+
+    private final Map<String, Set<SseClient>> subscribersByTopic = new ConcurrentHashMap<>();
+    private final Set<SseClient> unfiltered = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Parse a comma-separated {@code topics} request parameter. A token without a
+     * dimension prefix matches that value in any dimension.
+     */
+    public static Set<String> parseTopics(String topicsParam) {
+        if (topicsParam == null || topicsParam.isBlank()) {
+            return Collections.emptySet();
+        }
+
+        Set<String> topics = new LinkedHashSet<>();
+        for (String token : topicsParam.split(",")) {
+            String trimmed = token.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int separator = trimmed.indexOf(':');
+            String dimension = separator > 0 ? trimmed.substring(0, separator).toLowerCase(Locale.ROOT) : null;
+            if (dimension != null && DIMENSIONS.contains(dimension)) {
+                topics.add(dimension + ":" + trimmed.substring(separator + 1));
+            } else {
+                for (String candidate : DIMENSIONS) {
+                    topics.add(candidate + ":" + trimmed);
+                }
+            }
+        }
+        return topics;
+    }
+
+    /**
+     * Topics an event belongs to, taken from its well-known payload fields.
+     */
+    public static List<String> topicsOf(Map<String, Object> data) {
+        List<String> topics = new ArrayList<>(DIMENSIONS.size());
+        for (String dimension : DIMENSIONS) {
+            Object value = data.get(dimension);
+            if (value != null) {
+                topics.add(dimension + ":" + value);
+            }
+        }
+        return topics;
+    }
+
+    /**
+     * Whether an event with the given topics falls within a subscription; an empty
+     * subscription matches every event.
+     */
+    public static boolean matches(Set<String> subscribed, Collection<String> eventTopics) {
+        if (subscribed.isEmpty()) {
+            return true;
+        }
+        for (String topic : eventTopics) {
+            if (subscribed.contains(topic)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void subscribe(SseClient client) {
+        if (client.getTopics().isEmpty()) {
+            unfiltered.add(client);
+            return;
+        }
+        for (String topic : client.getTopics()) {
+            subscribersByTopic.compute(topic, (t, subscribers) -> {
+                Set<SseClient> bucket = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+                bucket.add(client);
+                return bucket;
+            });
+        }
+    }
+
+    public void unsubscribe(SseClient client) {
+        if (client.getTopics().isEmpty()) {
+            unfiltered.remove(client);
+            return;
+        }
+        for (String topic : client.getTopics()) {
+            subscribersByTopic.computeIfPresent(topic, (t, subscribers) -> {
+                subscribers.remove(client);
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+        }
+    }
+
+    /**
+     * Visit each client that should receive an event with the given topics exactly once.
+     */
+    public void forEachMatching(Collection<String> eventTopics, Consumer<SseClient> action) {
+        unfiltered.forEach(action);
+
+        Set<SseClient> first = null;
+        Set<SseClient> seen = null;
+        for (String topic : eventTopics) {
+            Set<SseClient> subscribers = subscribersByTopic.get(topic);
+            if (subscribers == null) {
+                continue;
+            }
+            if (first == null) {
+                // Common case: a single matching bucket needs no de-duplication
+                first = subscribers;
+                continue;
+            }
+            if (seen == null) {
+                seen = new HashSet<>();
+                for (SseClient client : first) {
+                    if (seen.add(client)) {
+                        action.accept(client);
+                    }
+                }
+            }
+            for (SseClient client : subscribers) {
+                if (seen.add(client)) {
+                    action.accept(client);
+                }
+            }
+        }
+        if (first != null && seen == null) {
+            first.forEach(action);
+        }
+    }
+
+    public int topicCount() {
+        return subscribersByTopic.size();
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.diagramdesigner.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel: a ring of slots advanced one slot per tick. An item due in
+ * {@code n} ticks goes into slot {@code (cursor + n) % size} with a count of full
+ * rotations to wait, so each tick only touches the items hashed to one slot no matter
+ * how many are scheduled.
+ *
+ * {@link #schedule} may be called from any thread; {@link #advance} must always be
+ * called from the same single thread.
+ */
+public class TimingWheel<T> {
+
+    private final List<Entry<T>>[] slots;
+    private final long tickMs;
+    private final ConcurrentLinkedQueue<Entry<T>> incoming = new ConcurrentLinkedQueue<>();
+    private int cursor;
+    private int scheduled;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(int size, long tickMs) {
+        this.slots = new List[Math.max(1, size)];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new ArrayList<>();
+        }
+        this.tickMs = Math.max(1, tickMs);
+    }
+
+    /**
+     * Queue an item to expire after at least {@code delayMs}, rounded up to whole ticks.
+     */
+    public void schedule(T item, long delayMs) {
+        incoming.add(new Entry<>(item, Math.max(1, (delayMs + tickMs - 1) / tickMs)));
+    }
+
+    /**
+     * Move to the next slot and hand every item due there to {@code onExpired}. Items
+     * scheduled from inside the callback are placed on the next advance.
+     */
+    public void advance(Consumer<T> onExpired) {
+        Entry<T> entry;
+        while ((entry = incoming.poll()) != null) {
+            place(entry);
+        }
+
+        cursor = (cursor + 1) % slots.length;
+        List<Entry<T>> slot = slots[cursor];
+        int i = 0;
+        while (i < slot.size()) {
+            entry = slot.get(i);
+            if (entry.rounds > 0) {
+                entry.rounds--;
+                i++;
+                continue;
+            }
+            // Swap-remove: order within a slot does not matter
+            Entry<T> last = slot.remove(slot.size() - 1);
+            if (i < slot.size()) {
+                slot.set(i, last);
+            }
+            scheduled--;
+            onExpired.accept(entry.item);
+        }
+    }
+
+    /**
+     * Items placed on the wheel, excluding ones scheduled since the last advance.
+     */
+    public int size() {
+        return scheduled;
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    private void place(Entry<T> entry) {
+        long ticks = entry.rounds;
+        entry.rounds = (ticks - 1) / slots.length;
+        slots[(int) ((cursor + ticks) % slots.length)].add(entry);
+        scheduled++;
+    }
+
+    private static final class Entry<T> {
+        private final T item;
+        // Holds the delay in ticks until placed, then the rotations still to wait
+        private long rounds;
+
+        private Entry(T item, long ticks) {
+            this.item = item;
+            this.rounds = ticks;
+        }
+    }
+}
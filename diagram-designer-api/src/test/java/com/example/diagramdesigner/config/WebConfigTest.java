@@ -0,0 +1,61 @@
+package com.example.diagramdesigner.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Cache headers for the built frontend's static files, served from the fixtures in
+ * {@code src/test/resources/static/assets}.
+ */
+class WebConfigTest {
+
+    private final AnnotationConfigWebApplicationContext context = new AnnotationConfigWebApplicationContext();
+
+    @AfterEach
+    void close() {
+        context.close();
+    }
+
+    @Test
+    void hashedBundlesAreImmutable() throws Exception {
+        mvc().perform(get("/assets/index-3f2a9c1b.js"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"));
+    }
+
+    @Test
+    void iconsAreRevalidatedSinceTheyKeepTheirNames() throws Exception {
+        MockMvc mvc = mvc();
+        String lastModified = mvc.perform(get("/assets/icons/test-icon.svg"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andReturn().getResponse().getHeader("Last-Modified");
+
+        mvc.perform(get("/assets/icons/test-icon.svg").header("If-Modified-Since", lastModified))
+                .andExpect(status().isNotModified());
+    }
+
+    private MockMvc mvc() {
+        context.setServletContext(new MockServletContext());
+        context.register(Mvc.class);
+        context.refresh();
+        return MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @Configuration
+    @EnableWebMvc
+    @Import(WebConfig.class)
+    static class Mvc {
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.diagramdesigner.controller;
+
+import com.example.diagramdesigner.config.SseProperties;
+import com.example.diagramdesigner.service.EventBus;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Resuming {@code /stream} from a Last-Event-ID: replay while the missed events are
+ * buffered, a single SNAPSHOT once they are not.
+ */
+class SSEControllerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<SSEController> controllers = new ArrayList<>();
+
+    @AfterEach
+    void shutdownControllers() {
+        controllers.forEach(SSEController::shutdown);
+    }
+
+    @Test
+    void replaysMissedEventsWhileTheyAreBuffered() throws Exception {
+        SSEController controller = controller(8, 256);
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(controller).build();
+        long base = connect(mvc, null, 1).get(0).id();
+
+        send(controller, 3);
+        List<Frame> frames = connect(mvc, base + 1, 3);
+
+        assertThat(frames.get(0).event()).isEqualTo("INIT");
+        assertThat(frames.subList(1, 3)).extracting(Frame::id).containsExactly(base + 2, base + 3);
+        assertThat(frames.subList(1, 3)).extracting(Frame::event).containsOnly("TEST");
+    }
+
+    @Test
+    void sendsASnapshotOnceMissedEventsAreNoLongerBuffered() throws Exception {
+        SSEController controller = controller(4, 256);
+        controller.registerSnapshotSource("services", () -> Map.of("textproc", "STARTED"));
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(controller).build();
+        long base = connect(mvc, null, 1).get(0).id();
+
+        send(controller, 6);
+        ResponseStream stream = open(mvc, base);
+        List<Frame> frames = stream.await(2);
+
+        assertThat(frames.get(0).event()).isEqualTo("INIT");
+        Frame snapshot = frames.get(1);
+        assertThat(snapshot.event()).isEqualTo("SNAPSHOT");
+        assertThat(snapshot.id()).isEqualTo(base + 6);
+        assertThat(snapshot.data().path("lastEventId").asLong()).isEqualTo(base);
+        assertThat(snapshot.data().path("latestEventId").asLong()).isEqualTo(base + 6);
+        assertThat(snapshot.data().path("state").path("services").path("textproc").asText()).isEqualTo("STARTED");
+
+        // Live events continue right after the snapshot
+        send(controller, 1);
+        frames = stream.await(3);
+        assertThat(frames).hasSize(3);
+        assertThat(frames.get(2).id()).isEqualTo(base + 7);
+    }
+
+    @Test
+    void sendsASnapshotWhenTheReplayWouldOverflowTheClientQueue() throws Exception {
+        SSEController controller = controller(64, 4);
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(controller).build();
+        long base = connect(mvc, null, 1).get(0).id();
+
+        send(controller, 4);
+        List<Frame> frames = connect(mvc, base, 2);
+
+        assertThat(frames).extracting(Frame::event).containsExactly("INIT", "SNAPSHOT");
+        assertThat(frames.get(1).id()).isEqualTo(base + 4);
+    }
+
+    @Test
+    void sendsASnapshotForAnIdFromAnotherProcess() throws Exception {
+        SSEController controller = controller(8, 256);
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(controller).build();
+        long base = connect(mvc, null, 1).get(0).id();
+
+        List<Frame> frames = connect(mvc, base + 100, 2);
+
+        assertThat(frames).extracting(Frame::event).containsExactly("INIT", "SNAPSHOT");
+        assertThat(frames.get(1).data().path("lastEventId").asLong()).isEqualTo(base + 100);
+        assertThat(frames.get(1).id()).isEqualTo(base);
+    }
+
+    @Test
+    void reactiveStreamReplaysOnlyMatchingTopicsThenContinuesLive() throws Exception {
+        SSEController controller = controller(8, 256);
+        long base = Long.parseLong(events(controller.reactiveStream(null, null, null), 1).get(0).id());
+
+        controller.sendEvent("TEST", Map.of("app", "textproc"));
+        controller.sendEvent("TEST", Map.of("app", "embedproc"));
+        controller.sendEvent("TEST", Map.of("app", "textproc"));
+        CompletableFuture<List<ServerSentEvent<String>>> resumed = messages(
+                controller.reactiveStream("app:textproc", Long.toString(base), null), 4).collectList().toFuture();
+        controller.sendEvent("TEST", Map.of("app", "embedproc"));
+        controller.sendEvent("TEST", Map.of("app", "textproc"));
+
+        List<ServerSentEvent<String>> events = resumed.get(5, TimeUnit.SECONDS);
+        assertThat(events.get(0).data()).contains("\"INIT\"").contains("app:textproc");
+        assertThat(events.subList(1, 4)).extracting(ServerSentEvent::id)
+                .containsExactly(Long.toString(base + 1), Long.toString(base + 3), Long.toString(base + 5));
+    }
+
+    @Test
+    void reactiveStreamSendsASnapshotOnceMissedEventsAreNoLongerBuffered() throws Exception {
+        SSEController controller = controller(2, 256);
+        long base = Long.parseLong(events(controller.reactiveStream(null, null, null), 1).get(0).id());
+
+        send(controller, 3);
+        List<ServerSentEvent<String>> events = events(controller.reactiveStream(null, null, Long.toString(base)), 2);
+
+        JsonNode snapshot = objectMapper.readTree(events.get(1).data());
+        assertThat(snapshot.path("event").asText()).isEqualTo("SNAPSHOT");
+        assertThat(events.get(1).id()).isEqualTo(Long.toString(base + 3));
+    }
+
+    @Test
+    void reactiveStreamSeesConcurrentBroadcastsInIdOrder() throws Exception {
+        SSEController controller = controller(8, 4096);
+        int threads = 4;
+        int perThread = 250;
+        CompletableFuture<List<ServerSentEvent<String>>> received = messages(
+                controller.reactiveStream(null, null, null), 1 + threads * perThread).collectList().toFuture();
+
+        List<Thread> senders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread sender = new Thread(() -> send(controller, perThread));
+            senders.add(sender);
+            sender.start();
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+
+        List<ServerSentEvent<String>> events = received.get(5, TimeUnit.SECONDS);
+        List<Long> ids = events.subList(1, events.size()).stream().map(event -> Long.parseLong(event.id())).toList();
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+        assertThat(ids.get(ids.size() - 1) - ids.get(0)).isEqualTo(threads * perThread - 1);
+    }
+
+    private static Flux<ServerSentEvent<String>> messages(Flux<ServerSentEvent<String>> stream, int count) {
+        // The first heartbeat may race the subscription
+        return stream.filter(event -> !"heartbeat".equals(event.event())).take(count);
+    }
+
+    private static List<ServerSentEvent<String>> events(Flux<ServerSentEvent<String>> stream, int count) {
+        return messages(stream, count).collectList().block(Duration.ofSeconds(5));
+    }
+
+    private SSEController controller(int replayBufferSize, int queueCapacity) {
+        SseProperties properties = new SseProperties();
+        properties.setReplayBufferSize(replayBufferSize);
+        properties.setClientQueueCapacity(queueCapacity);
+        properties.setHeartbeatIntervalMs(3_600_000);
+        SSEController controller = new SSEController(properties, new SimpleMeterRegistry(), objectMapper,
+                new EventBus() {
+                    @Override
+                    public void publish(String eventName, String json) {
+                    }
+
+                    @Override
+                    public void subscribe(Consumer<Envelope> listener) {
+                    }
+                });
+        controllers.add(controller);
+        return controller;
+    }
+
+    private static void send(SSEController controller, int count) {
+        for (int i = 0; i < count; i++) {
+            controller.sendEvent("TEST", Map.of("n", i));
+        }
+    }
+
+    private List<Frame> connect(MockMvc mvc, Long lastEventId, int frames) throws Exception {
+        return open(mvc, lastEventId).await(frames);
+    }
+
+    private ResponseStream open(MockMvc mvc, Long lastEventId) throws Exception {
+        var request = get("/stream");
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId.toString());
+        }
+        MockHttpServletResponse response = mvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+        return new ResponseStream(response);
+    }
+
+    private record Frame(long id, String event, JsonNode data) {
+    }
+
+    private final class ResponseStream {
+        private final MockHttpServletResponse response;
+
+        private ResponseStream(MockHttpServletResponse response) {
+            this.response = response;
+        }
+
+        /**
+         * Wait for the client's writer thread to have written at least {@code count} frames.
+         */
+        List<Frame> await(int count) throws Exception {
+            long deadline = System.currentTimeMillis() + 5000;
+            List<Frame> frames = parse();
+            while (frames.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+                frames = parse();
+            }
+            assertThat(frames).hasSizeGreaterThanOrEqualTo(count);
+            return frames;
+        }
+
+        private List<Frame> parse() throws Exception {
+            List<Frame> frames = new ArrayList<>();
+            for (String block : response.getContentAsString().split("\n\n")) {
+                long id = 0;
+                String data = null;
+                for (String line : block.split("\n")) {
+                    if (line.startsWith("id:")) {
+                        id = Long.parseLong(line.substring(3));
+                    } else if (line.startsWith("data:")) {
+                        data = line.substring(5);
+                    }
+                }
+                if (data != null) {
+                    JsonNode json = objectMapper.readTree(data);
+                    // The first heartbeat may race the connect
+                    if (!"HEARTBEAT".equals(json.path("event").asText())) {
+                        frames.add(new Frame(id, json.path("event").asText(), json));
+                    }
+                }
+            }
+            return frames;
+        }
+    }
+}
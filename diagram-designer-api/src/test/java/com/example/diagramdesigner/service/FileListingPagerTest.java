@@ -0,0 +1,172 @@
+package com.example.diagramdesigner.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileListingPagerTest {
+
+    private static final String LISTING = """
+            {"app": "hdfswatcher", "files": [
+              "a1.pdf",
+              {"name": "a2.pdf", "size": 2},
+              {"filename": "b1.pdf"},
+              {"path": "a3.pdf", "meta": {"pages": [1, 2]}},
+              {"size": 5},
+              "a4.pdf"
+            ], "totalSize": 12, "updated": true}""";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void copiesAnUnpagedObjectUnchangedApartFromThePageFields() throws IOException {
+        Result result = copyObject(LISTING, FileListingPager.Page.ALL);
+
+        assertThat(result.stats()).isEqualTo(new FileListingPager.Stats(6, 6, 6));
+        JsonNode expected = ((ObjectNode) objectMapper.readTree(LISTING))
+                .put("matched", 6).put("offset", 0);
+        assertThat(result.json()).isEqualTo(expected);
+        assertThat(result.json().has("limit")).isFalse();
+    }
+
+    @Test
+    void pagesByOffsetAndLimit() throws IOException {
+        Result result = copyObject(LISTING, new FileListingPager.Page(1, 2, null));
+
+        assertThat(result.stats()).isEqualTo(new FileListingPager.Stats(6, 6, 2));
+        assertThat(names(result.json().get("files"))).containsExactly("a2.pdf", "b1.pdf");
+        assertThat(result.json().get("matched").asInt()).isEqualTo(6);
+        assertThat(result.json().get("offset").asInt()).isEqualTo(1);
+        assertThat(result.json().get("limit").asInt()).isEqualTo(2);
+        // Fields after the array are still copied
+        assertThat(result.json().get("totalSize").asInt()).isEqualTo(12);
+        assertThat(result.json().get("updated").asBoolean()).isTrue();
+    }
+
+    @Test
+    void matchesThePrefixAgainstStringsAndEachNameField() throws IOException {
+        Result result = copyObject(LISTING, new FileListingPager.Page(0, -1, "a"));
+
+        assertThat(result.stats()).isEqualTo(new FileListingPager.Stats(6, 4, 4));
+        assertThat(names(result.json().get("files"))).containsExactly("a1.pdf", "a2.pdf", "a3.pdf", "a4.pdf");
+        // Matched entries are copied whole, nested structure included
+        assertThat(result.json().get("files").get(2).at("/meta/pages/1").asInt()).isEqualTo(2);
+    }
+
+    @Test
+    void appliesTheOffsetAndLimitToMatchingEntriesOnly() throws IOException {
+        Result result = copyObject(LISTING, new FileListingPager.Page(1, 2, "a"));
+
+        assertThat(result.stats()).isEqualTo(new FileListingPager.Stats(6, 4, 2));
+        assertThat(names(result.json().get("files"))).containsExactly("a2.pdf", "a3.pdf");
+        assertThat(result.json().get("matched").asInt()).isEqualTo(4);
+    }
+
+    @Test
+    void returnsNothingPastTheLastMatch() throws IOException {
+        Result result = copyObject(LISTING, new FileListingPager.Page(10, 5, null));
+
+        assertThat(result.stats()).isEqualTo(new FileListingPager.Stats(6, 6, 0));
+        assertThat(result.json().get("files")).isEmpty();
+    }
+
+    @Test
+    void pagesABareArray() throws IOException {
+        StringWriter out = new StringWriter();
+        FileListingPager.Stats stats;
+        try (JsonParser parser = objectMapper.createParser("[\"x\", \"y\", \"z\"]");
+             JsonGenerator generator = objectMapper.createGenerator(out)) {
+            stats = FileListingPager.copyArray(objectMapper, parser, generator, new FileListingPager.Page(1, 1, null));
+        }
+
+        assertThat(stats).isEqualTo(new FileListingPager.Stats(3, 3, 1));
+        assertThat(out.toString()).isEqualTo("[\"y\"]");
+    }
+
+    @Test
+    void rejectsTheWrongTopLevelShape() throws IOException {
+        try (JsonParser parser = objectMapper.createParser("[]");
+             JsonGenerator generator = objectMapper.createGenerator(new StringWriter())) {
+            assertThatThrownBy(() -> FileListingPager.copyObject(objectMapper, parser, generator, "files",
+                    FileListingPager.Page.ALL)).isInstanceOf(IOException.class);
+        }
+        try (JsonParser parser = objectMapper.createParser("{}");
+             JsonGenerator generator = objectMapper.createGenerator(new StringWriter())) {
+            assertThatThrownBy(() -> FileListingPager.copyArray(objectMapper, parser, generator,
+                    FileListingPager.Page.ALL)).isInstanceOf(IOException.class);
+        }
+    }
+
+    @Test
+    void summarizesAnObjectListing() throws IOException {
+        FileListingPager.Summary summary;
+        try (JsonParser parser = objectMapper.createParser(LISTING)) {
+            summary = FileListingPager.summarize(parser, "files");
+        }
+
+        assertThat(summary.entries()).isEqualTo(6);
+        assertThat(summary.numbers()).isEqualTo(Map.of("totalSize", 12));
+    }
+
+    @Test
+    void summarizesABareArrayAndAnObjectWithoutTheArray() throws IOException {
+        try (JsonParser parser = objectMapper.createParser("[1, {\"a\": [2, 3]}, \"x\"]")) {
+            assertThat(FileListingPager.summarize(parser, "files").entries()).isEqualTo(3);
+        }
+        try (JsonParser parser = objectMapper.createParser("{\"count\": 4, \"files\": \"none\"}")) {
+            FileListingPager.Summary summary = FileListingPager.summarize(parser, "files");
+            assertThat(summary.entries()).isEqualTo(-1);
+            assertThat(summary.numbers()).isEqualTo(Map.of("count", 4));
+        }
+    }
+
+    @Test
+    void treatsOnlyNonDefaultPagesAsActive() {
+        assertThat(FileListingPager.Page.ALL.isActive()).isFalse();
+        assertThat(new FileListingPager.Page(1, -1, null).isActive()).isTrue();
+        assertThat(new FileListingPager.Page(0, 0, null).isActive()).isTrue();
+        assertThat(new FileListingPager.Page(0, -1, "").isActive()).isTrue();
+    }
+
+    private Result copyObject(String json, FileListingPager.Page page) throws IOException {
+        StringWriter out = new StringWriter();
+        FileListingPager.Stats stats;
+        try (JsonParser parser = objectMapper.createParser(json);
+             JsonGenerator generator = objectMapper.createGenerator(out)) {
+            stats = FileListingPager.copyObject(objectMapper, parser, generator, "files", page);
+        }
+        return new Result(stats, objectMapper.readTree(out.toString()));
+    }
+
+    private static List<String> names(JsonNode entries) {
+        List<String> names = new ArrayList<>();
+        for (JsonNode entry : entries) {
+            if (entry.isTextual()) {
+                names.add(entry.asText());
+            } else {
+                for (String field : new String[]{"name", "filename", "path"}) {
+                    if (entry.has(field)) {
+                        names.add(entry.get(field).asText());
+                        break;
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    private record Result(FileListingPager.Stats stats, JsonNode json) {
+    }
+}
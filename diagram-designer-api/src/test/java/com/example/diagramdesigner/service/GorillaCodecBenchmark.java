@@ -0,0 +1,83 @@
+package com.example.diagramdesigner.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode throughput of one full chunk, in samples per microsecond, for
+ * typical value shapes. Prints the compressed size in bytes per sample for each shape.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@OperationsPerInvocation(GorillaCodecBenchmark.SAMPLES)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GorillaCodecBenchmark {
+
+    static final int SAMPLES = 4096;
+
+    @Param({"constant", "counter", "gauge", "random"})
+    public String shape;
+
+    private final long[] timestamps = new long[SAMPLES];
+    private final double[] values = new double[SAMPLES];
+    private ByteBuffer encoded;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        Random random = new Random(7);
+        double counter = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            // 10 s sampling with a few ms of scheduling jitter
+            timestamps[i] = 1_790_000_000_000L + i * 10_000L + random.nextInt(5);
+            values[i] = switch (shape) {
+                case "constant" -> 1;
+                case "counter" -> counter += random.nextInt(100);
+                case "gauge" -> Math.round((50 + 20 * Math.sin(i / 30.0)) * 1000) / 1000.0;
+                default -> random.nextDouble();
+            };
+        }
+        byte[] bytes = encode().toBytes();
+        encoded = ByteBuffer.wrap(bytes);
+        System.out.printf("%n%s: %.2f bytes/sample%n", shape, (double) bytes.length / SAMPLES);
+    }
+
+    @Benchmark
+    public byte[] encodeChunk() {
+        return encode().toBytes();
+    }
+
+    @Benchmark
+    public void decodeChunk(Blackhole blackhole) {
+        GorillaCodec.decode(encoded, 0, SAMPLES, Long.MIN_VALUE, Long.MAX_VALUE, (timestamp, value) -> {
+            blackhole.consume(timestamp);
+            blackhole.consume(value);
+        });
+    }
+
+    private GorillaCodec.Encoder encode() {
+        GorillaCodec.Encoder encoder = new GorillaCodec.Encoder();
+        for (int i = 0; i < SAMPLES; i++) {
+            encoder.append(timestamps[i], values[i]);
+        }
+        return encoder;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.diagramdesigner.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GorillaCodecTest {
+
+    private static final long START = 1_790_000_000_000L;
+
+    @Test
+    void roundTripsEveryDeltaOfDeltaWidth() {
+        // Each gap differs from the previous one by a delta-of-delta at the edge of a width
+        long[] deltaOfDeltas = {0, 1, -1, 63, -64, 64, -65, 255, -256, 256, -257, 2047, -2048, 2048, -2049,
+                1_000_000, -1_000_000, Integer.MAX_VALUE / 4, Integer.MIN_VALUE / 4};
+        List<Long> timestamps = new ArrayList<>();
+        long timestamp = START;
+        long delta = 10_000_000;
+        timestamps.add(timestamp);
+        for (long deltaOfDelta : deltaOfDeltas) {
+            delta += deltaOfDelta;
+            timestamp += delta;
+            timestamps.add(timestamp);
+        }
+
+        double[] values = new double[timestamps.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i;
+        }
+        assertRoundTrip(timestamps.stream().mapToLong(Long::longValue).toArray(), values);
+    }
+
+    @Test
+    void roundTripsValuesThatReuseAndReplaceTheXorWindow() {
+        // 1.5 -> 1.25 -> 1.75 fit the window opened by 1.0 -> 1.5; 1e300 and 1e-300 need new ones
+        double[] values = {1.0, 1.5, 1.25, 1.75, 1.75, 1e300, 1.0, 1e-300, 1e-300, 3.0};
+        assertRoundTrip(steady(values.length), values);
+    }
+
+    @Test
+    void roundTripsXorsWithAllSixtyFourBitsSignificant() {
+        // 0x8000000000000001 ^ 0 has no leading and no trailing zeros
+        double full = Double.longBitsToDouble(0x8000_0000_0000_0001L);
+        // Differ only in the lowest bit: 63 leading zeros, stored clamped to 31
+        double low = Double.longBitsToDouble(0x3ff0_0000_0000_0001L);
+        double[] values = {0.0, full, 0.0, full, 1.0, low, 1.0};
+        assertRoundTrip(steady(values.length), values);
+    }
+
+    @Test
+    void roundTripsNanInfinityAndSignedZerosBitForBit() {
+        double[] values = {0.0, -0.0, 0.0, Double.NaN, Double.longBitsToDouble(0x7ff8_dead_beef_0001L),
+                Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, -0.0, Double.MIN_VALUE, Double.MAX_VALUE};
+        assertRoundTrip(steady(values.length), values);
+    }
+
+    @Test
+    void roundTripsRandomSeries() {
+        Random random = new Random(42);
+        for (int run = 0; run < 50; run++) {
+            int count = 1 + random.nextInt(2000);
+            long[] timestamps = new long[count];
+            double[] values = new double[count];
+            long timestamp = START + random.nextInt(1_000_000);
+            for (int i = 0; i < count; i++) {
+                timestamp += 1 + (random.nextBoolean() ? 10_000 + random.nextInt(50) - 25 : random.nextInt(5_000_000));
+                timestamps[i] = timestamp;
+                values[i] = switch (random.nextInt(4)) {
+                    case 0 -> random.nextGaussian();
+                    case 1 -> i > 0 ? values[i - 1] : 0;
+                    case 2 -> Double.longBitsToDouble(random.nextLong());
+                    default -> Math.round(random.nextDouble() * 1000) / 1000.0;
+                };
+            }
+            assertRoundTrip(timestamps, values);
+        }
+    }
+
+    @Test
+    void decodesOnlyTheRequestedRange() {
+        long[] timestamps = steady(100);
+        double[] values = new double[100];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i * 0.5;
+        }
+        GorillaCodec.Encoder encoder = encode(timestamps, values);
+
+        List<Long> decoded = new ArrayList<>();
+        GorillaCodec.decode(ByteBuffer.wrap(encoder.toBytes()), 0, encoder.count(), timestamps[10], timestamps[20],
+                (timestamp, value) -> decoded.add(timestamp));
+        assertThat(decoded).hasSize(10).first().isEqualTo(timestamps[10]);
+        assertThat(decoded.get(9)).isEqualTo(timestamps[19]);
+    }
+
+    @Test
+    void decodesAtAnOffsetInASharedBuffer() {
+        GorillaCodec.Encoder encoder = encode(steady(3), new double[]{1, 2, 3});
+        byte[] bytes = encoder.toBytes();
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 7);
+        buffer.put(7, bytes);
+
+        List<Double> decoded = new ArrayList<>();
+        GorillaCodec.decode(buffer, 7, 3, Long.MIN_VALUE, Long.MAX_VALUE, (timestamp, value) -> decoded.add(value));
+        assertThat(decoded).containsExactly(1.0, 2.0, 3.0);
+    }
+
+    @Test
+    void steadySamplesOfAConstantCostTwoBitsEach() {
+        int count = 4096;
+        GorillaCodec.Encoder encoder = encode(steady(count), new double[count]);
+        // 16 raw bytes for the first sample, 36 bits for the first delta and one unchanged value,
+        // then one bit for the timestamp and one for the value
+        assertThat(encoder.toBytes().length).isLessThanOrEqualTo(16 + 5 + ((count - 2) * 2 + 7) / 8);
+    }
+
+    private static long[] steady(int count) {
+        long[] timestamps = new long[count];
+        for (int i = 0; i < count; i++) {
+            timestamps[i] = START + i * 10_000L;
+        }
+        return timestamps;
+    }
+
+    private static GorillaCodec.Encoder encode(long[] timestamps, double[] values) {
+        GorillaCodec.Encoder encoder = new GorillaCodec.Encoder();
+        for (int i = 0; i < timestamps.length; i++) {
+            encoder.append(timestamps[i], values[i]);
+        }
+        return encoder;
+    }
+
+    private static void assertRoundTrip(long[] timestamps, double[] values) {
+        GorillaCodec.Encoder encoder = encode(timestamps, values);
+        assertThat(encoder.count()).isEqualTo(timestamps.length);
+        assertThat(encoder.firstTimestamp()).isEqualTo(timestamps[0]);
+        assertThat(encoder.lastTimestamp()).isEqualTo(timestamps[timestamps.length - 1]);
+
+        List<Long> decodedTimestamps = new ArrayList<>();
+        List<Long> decodedBits = new ArrayList<>();
+        GorillaCodec.decode(ByteBuffer.wrap(encoder.toBytes()), 0, encoder.count(), Long.MIN_VALUE, Long.MAX_VALUE,
+                (timestamp, value) -> {
+                    decodedTimestamps.add(timestamp);
+                    decodedBits.add(Double.doubleToRawLongBits(value));
+                });
+
+        assertThat(decodedTimestamps).containsExactly(Arrays.stream(timestamps).boxed().toArray(Long[]::new));
+        Long[] expectedBits = Arrays.stream(values)
+                .mapToObj(value -> Double.doubleToRawLongBits(value)).toArray(Long[]::new);
+        assertThat(decodedBits).containsExactly(expectedBits);
+    }
+}
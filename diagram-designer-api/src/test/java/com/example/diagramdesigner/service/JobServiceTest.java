@@ -0,0 +1,108 @@
+package com.example.diagramdesigner.service;
+
+import com.example.diagramdesigner.config.SseProperties;
+import com.example.diagramdesigner.controller.SSEController;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JobServiceTest {
+
+    private final SSEController sseController = new SSEController(new SseProperties(), new SimpleMeterRegistry(),
+            new ObjectMapper(), new EventBus() {
+                @Override
+                public void publish(String eventName, String json) {
+                }
+
+                @Override
+                public void subscribe(Consumer<Envelope> listener) {
+                }
+            });
+    private final JobService jobService = new JobService(sseController);
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        jobService.shutdown();
+        sseController.shutdown();
+    }
+
+    @Test
+    void exclusiveCallWaitsForAQueuedJobOnTheSameService() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        JobService.Job job = jobService.submit("restart", List.of(List.of(
+                new JobService.StepSpec("stop", "textproc", () -> {
+                    release.await();
+                    calls.add("job");
+                    return null;
+                }))));
+
+        CompletableFuture<String> exclusive = CompletableFuture.supplyAsync(
+                () -> jobService.runExclusive("textproc", () -> {
+                    calls.add("exclusive");
+                    return "started";
+                }));
+        // Another service is not held up
+        assertThat(jobService.runExclusive("embedproc", () -> "other")).isEqualTo("other");
+        Thread.sleep(100);
+        assertThat(exclusive).isNotDone();
+
+        release.countDown();
+        assertThat(exclusive.get(5, TimeUnit.SECONDS)).isEqualTo("started");
+        assertThat(job.getCompletion().isDone()).isTrue();
+        assertThat(calls).containsExactly("job", "exclusive");
+    }
+
+    @Test
+    void jobSubmittedDuringAnExclusiveCallWaitsForIt() throws Exception {
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> exclusive = CompletableFuture.runAsync(() -> jobService.runExclusive("textproc", () -> {
+            inside.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            calls.add("exclusive");
+            return null;
+        }));
+        assertThat(inside.await(5, TimeUnit.SECONDS)).isTrue();
+
+        JobService.Job job = jobService.submit("reset", List.of(List.of(
+                new JobService.StepSpec("reset", "textproc", () -> {
+                    calls.add("job");
+                    return null;
+                }))));
+        Thread.sleep(100);
+        assertThat(job.getStatus()).isEqualTo(JobService.Status.QUEUED);
+
+        release.countDown();
+        exclusive.get(5, TimeUnit.SECONDS);
+        job.getCompletion().get(5, TimeUnit.SECONDS);
+        assertThat(calls).containsExactly("exclusive", "job");
+    }
+
+    @Test
+    void releasesTheServiceWhenTheCallFails() throws Exception {
+        try {
+            jobService.runExclusive("textproc", () -> {
+                throw new IllegalStateException("connection refused");
+            });
+        } catch (IllegalStateException expected) {
+            // Surfaces to the caller unchanged
+        }
+
+        assertThat(jobService.runExclusive("textproc", () -> "next")).isEqualTo("next");
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.diagramdesigner.service;
+
+import com.example.diagramdesigner.config.MetricStoreProperties;
+import com.example.diagramdesigner.config.MetricsProxyProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricHistoryServiceTest {
+
+    private static final String URL_A = "http://a/metrics";
+    private static final String URL_B = "http://b/metrics";
+
+    @TempDir
+    Path directory;
+
+    private final List<String> fetched = new CopyOnWriteArrayList<>();
+    private final AtomicLong clock = new AtomicLong(System.currentTimeMillis() - 60_000);
+    private MetricHistoryService history;
+    private MetricStore store;
+
+    @AfterEach
+    void shutdown() {
+        history.shutdown();
+        store.shutdown();
+    }
+
+    @Test
+    void stopsSamplingAMetricNoRequestHasNamedWithinTheTtl() throws Exception {
+        open(10, 300);
+        history.track(URL_A, URL_A, "value", null);
+        history.track(URL_B, URL_B, "value", null);
+        history.sample();
+        assertThat(fetched).containsExactlyInAnyOrder(URL_A, URL_B);
+
+        Thread.sleep(400);
+        // Reading the history counts as use
+        assertThat(history.history(URL_A, "value", null, null, null)).isNotNull();
+        fetched.clear();
+        history.sample();
+
+        assertThat(fetched).containsExactly(URL_A);
+        assertThat(history.list()).extracting(metric -> metric.get("url")).containsExactly(URL_A);
+    }
+
+    @Test
+    void anEvictedMetricFreesItsPlaceUnderTheLimit() throws Exception {
+        open(1, 300);
+        history.track(URL_A, URL_A, "value", null);
+        history.track(URL_B, URL_B, "typo", null);
+        assertThat(history.list()).extracting(metric -> metric.get("url")).containsExactly(URL_A);
+
+        Thread.sleep(400);
+        history.sample();
+        history.track(URL_B, URL_B, "value", null);
+
+        assertThat(history.list()).extracting(metric -> metric.get("valueField")).containsExactly("value");
+        assertThat(history.list()).extracting(metric -> metric.get("url")).containsExactly(URL_B);
+    }
+
+    @Test
+    void keepsWhatAnEvictedMetricStored() throws Exception {
+        open(10, 300);
+        history.track(URL_A, URL_A, "value", null);
+        history.sample();
+        history.sample();
+        Map<String, Object> before = history.history(URL_A, "value", 0L, null, 3_600_000L);
+
+        Thread.sleep(400);
+        history.sample();
+
+        assertThat(history.list()).isEmpty();
+        assertThat(history.rate(URL_A, "value")).isNull();
+        Map<String, Object> after = history.history(URL_A, "value", 0L, null, 3_600_000L);
+        assertThat(after).isNotNull();
+        assertThat(after.get("source")).isEqualTo("store");
+        assertThat((int[]) after.get("count")).containsExactly((int[]) before.get("count"));
+        assertThat(IntStream.of((int[]) after.get("count")).sum()).isEqualTo(2);
+    }
+
+    private void open(int maxSeries, long idleTtlMs) {
+        MetricsProxyProperties properties = new MetricsProxyProperties();
+        properties.setHistoryMaxSeries(maxSeries);
+        properties.setStreamIdleTtlMs(idleTtlMs);
+        // Sampling is run by the tests
+        properties.setHistorySampleIntervalMs(3_600_000);
+
+        MetricStoreProperties storeProperties = new MetricStoreProperties();
+        storeProperties.setDirectory(directory.toString());
+        storeProperties.setFlushIntervalMs(3_600_000);
+        store = new MetricStore(storeProperties);
+        store.initialize();
+
+        MetricsProxyService proxy = new MetricsProxyService(properties, new ObjectMapper(), null) {
+            @Override
+            public Mono<Fetched> fetch(String targetUrl, String nodeName) {
+                fetched.add(targetUrl);
+                long at = clock.addAndGet(1000);
+                return Mono.just(new Fetched(Map.of("value", at % 100_000), at, null));
+            }
+        };
+        history = new MetricHistoryService(proxy, store, properties);
+    }
+}
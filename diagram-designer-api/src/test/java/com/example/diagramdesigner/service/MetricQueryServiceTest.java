@@ -0,0 +1,252 @@
+package com.example.diagramdesigner.service;
+
+import com.example.diagramdesigner.config.MetricStoreProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Queries over a sealed segment, read from its rollups, followed by the active one,
+ * read raw, checked against the same data in a store without rollups and against
+ * aggregates computed here from the samples themselves.
+ */
+class MetricQueryServiceTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final long DAY = 24 * HOUR;
+    private static final String KEY = "http://host/metrics#value";
+
+    @TempDir
+    Path directory;
+
+    private final List<MetricStore> stores = new ArrayList<>();
+    private final List<MetricQueryService> services = new ArrayList<>();
+    private final List<Long> timestamps = new ArrayList<>();
+    private final List<Double> values = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        services.forEach(MetricQueryService::shutdown);
+        stores.forEach(MetricStore::shutdown);
+    }
+
+    @Test
+    void rollupsAndRawSamplesAgreeAcrossTheSegmentBoundary() throws Exception {
+        long boundary = currentSegment();
+        long step = stepCrossing(boundary);
+        MetricStore rollupStore = store("rollups", List.of(5), boundary);
+        MetricQueryService withRollups = service(rollupStore);
+        MetricQueryService rawOnly = service(store("raw", List.of(), boundary));
+        assertThat(rollupStore.rollup(KEY, boundary - HOUR, 5 * MINUTE)).isNotNull();
+        assertThat(rollupStore.rollup(KEY, boundary, 5 * MINUTE)).isNull();
+
+        for (MetricQueryService.Aggregation aggregation : List.of(MetricQueryService.Aggregation.AVG,
+                MetricQueryService.Aggregation.MIN, MetricQueryService.Aggregation.MAX,
+                MetricQueryService.Aggregation.LAST)) {
+            MetricQueryService.Query query = new MetricQueryService.Query(List.of(KEY),
+                    boundary - HOUR, boundary + 30 * MINUTE, step, aggregation);
+
+            Map<String, Object> fromRollups = run(withRollups, query).get(KEY);
+            Map<String, Object> raw = run(rawOnly, query).get(KEY);
+
+            assertThat(fromRollups.get("rollup")).isEqualTo(5 * MINUTE);
+            assertThat(raw.get("rollup")).isNull();
+            assertThat((long[]) fromRollups.get("timestamps")).containsExactly((long[]) raw.get("timestamps"));
+            assertThat((int[]) fromRollups.get("count")).containsExactly((int[]) raw.get("count"));
+            assertThat((double[]) fromRollups.get("values")).containsExactly((double[]) raw.get("values"), within(1e-9));
+            assertMatchesSamples(query, raw);
+        }
+    }
+
+    @Test
+    void mergesTheBucketOnTheSegmentBoundary() throws Exception {
+        long boundary = currentSegment();
+        long step = stepCrossing(boundary);
+        MetricQueryService service = service(store("rollups", List.of(5), boundary));
+        MetricQueryService.Query query = new MetricQueryService.Query(List.of(KEY),
+                boundary - HOUR, boundary + 30 * MINUTE, step, MetricQueryService.Aggregation.AVG);
+
+        Map<String, Object> result = run(service, query).get(KEY);
+
+        long crossing = Math.floorDiv(boundary, step) * step;
+        int index = Arrays.binarySearch((long[]) result.get("timestamps"), crossing);
+        assertThat(index).isNotNegative();
+        long before = timestamps.stream().filter(t -> t >= crossing && t < boundary).count();
+        long after = timestamps.stream().filter(t -> t >= boundary && t < crossing + step).count();
+        assertThat(before).isPositive();
+        assertThat(after).isPositive();
+        assertThat(((int[]) result.get("count"))[index]).isEqualTo((int) (before + after));
+    }
+
+    @Test
+    void p95ReadsRawSamplesAndMergesThemAcrossSegments() throws Exception {
+        long boundary = currentSegment();
+        long step = stepCrossing(boundary);
+        MetricQueryService service = service(store("rollups", List.of(5), boundary));
+        MetricQueryService.Query query = new MetricQueryService.Query(List.of(KEY),
+                boundary - HOUR, boundary + 30 * MINUTE, step, MetricQueryService.Aggregation.P95);
+
+        Map<String, Object> result = run(service, query).get(KEY);
+
+        assertThat(result.get("rollup")).isNull();
+        assertMatchesSamples(query, result);
+    }
+
+    @Test
+    void clampsARangeToRetainedHistory() throws Exception {
+        MetricStore store = store("retention", List.of(5), currentSegment());
+        MetricQueryService service = service(store);
+        long now = System.currentTimeMillis();
+        long retained = store.retentionStart();
+
+        assertThat(service.clampFrom(now - HOUR, now)).isEqualTo(now - HOUR);
+        assertThat(service.clampFrom(now - 5 * DAY, now)).isEqualTo(retained);
+
+        // Entirely before retention: an empty range just below its end, not a task per segment
+        long to = now - 5 * DAY;
+        long from = service.clampFrom(now - 10 * DAY, to);
+        assertThat(from).isEqualTo(to - 1);
+        Map<String, Object> result = run(service, new MetricQueryService.Query(List.of(KEY), from, to, HOUR,
+                MetricQueryService.Aggregation.AVG)).get(KEY);
+        assertThat(result).doesNotContainKey("error");
+        assertThat((long[]) result.get("timestamps")).isEmpty();
+    }
+
+    @Test
+    void reportsAnErrorForAKeyNeverStored() throws Exception {
+        long boundary = currentSegment();
+        MetricQueryService service = service(store("rollups", List.of(5), boundary));
+        String unknown = "http://other/metrics#missing";
+
+        Map<String, Map<String, Object>> results = run(service, new MetricQueryService.Query(List.of(KEY, unknown),
+                boundary - HOUR, boundary, 5 * MINUTE, MetricQueryService.Aggregation.MAX));
+
+        assertThat(results).containsOnlyKeys(KEY, unknown);
+        assertThat(results.get(KEY)).doesNotContainKey("error");
+        assertThat(results.get(unknown).get("error")).isEqualTo("No history recorded for " + unknown);
+        assertThat(results.get(unknown).get("url")).isEqualTo("http://other/metrics");
+        assertThat(results.get(unknown).get("valueField")).isEqualTo("missing");
+    }
+
+    /**
+     * Compare every bucket with the aggregate of the samples that fall in it.
+     */
+    private void assertMatchesSamples(MetricQueryService.Query query, Map<String, Object> result) {
+        long[] bucketStarts = (long[]) result.get("timestamps");
+        double[] aggregated = (double[]) result.get("values");
+        int[] counts = (int[]) result.get("count");
+        List<Long> expectedStarts = new ArrayList<>();
+        for (long start = query.from(); start < query.to(); start += query.step()) {
+            double[] bucket = samplesIn(start, start + query.step());
+            if (bucket.length == 0) {
+                continue;
+            }
+            int index = expectedStarts.size();
+            expectedStarts.add(start);
+            assertThat(counts[index]).isEqualTo(bucket.length);
+            double expected = switch (query.aggregation()) {
+                case AVG -> Arrays.stream(bucket).average().orElseThrow();
+                case MIN -> Arrays.stream(bucket).min().orElseThrow();
+                case MAX -> Arrays.stream(bucket).max().orElseThrow();
+                case LAST -> bucket[bucket.length - 1];
+                case P95 -> {
+                    double[] sorted = bucket.clone();
+                    Arrays.sort(sorted);
+                    yield sorted[(int) Math.ceil(0.95 * sorted.length) - 1];
+                }
+            };
+            assertThat(aggregated[index]).isCloseTo(expected, within(1e-9));
+        }
+        assertThat(bucketStarts).containsExactly(expectedStarts.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    private double[] samplesIn(long from, long to) {
+        List<Double> bucket = new ArrayList<>();
+        for (int i = 0; i < timestamps.size(); i++) {
+            long timestamp = timestamps.get(i);
+            if (timestamp >= from && timestamp < to) {
+                bucket.add(values.get(i));
+            }
+        }
+        return bucket.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    /**
+     * A step that is a multiple of the 5 minute rollup but not a divisor of the
+     * boundary, so one bucket straddles it.
+     */
+    private static long stepCrossing(long boundary) {
+        for (long minutes = 25; ; minutes += 10) {
+            if (boundary % (minutes * MINUTE) != 0) {
+                return minutes * MINUTE;
+            }
+        }
+    }
+
+    /**
+     * A store holding an hour of samples in the segment before {@code boundary}, sealed
+     * with the given rollups, and half an hour after it in the still open segment.
+     */
+    private MetricStore store(String name, List<Integer> rollupMinutes, long boundary) {
+        MetricStoreProperties properties = new MetricStoreProperties();
+        properties.setDirectory(directory.resolve(name).toString());
+        properties.setSegmentMinutes(60);
+        properties.setRollupMinutes(rollupMinutes);
+        properties.setRetentionDays(1);
+        // Maintenance is run by the tests
+        properties.setFlushIntervalMs(HOUR);
+        MetricStore store = new MetricStore(properties);
+        store.initialize();
+        stores.add(store);
+
+        boolean record = timestamps.isEmpty();
+        for (int i = 0; i < 360; i++) {
+            append(store, record, boundary - HOUR + i * 10_000L, (i * 37) % 101);
+        }
+        store.maintain();
+        for (int i = 0; i < 180; i++) {
+            append(store, record, boundary + i * 10_000L, (i * 53) % 97 + 0.5);
+        }
+        return store;
+    }
+
+    private void append(MetricStore store, boolean record, long timestamp, double value) {
+        store.append(KEY, timestamp, value);
+        if (record) {
+            timestamps.add(timestamp);
+            values.add(value);
+        }
+    }
+
+    private MetricQueryService service(MetricStore store) {
+        MetricStoreProperties properties = new MetricStoreProperties();
+        properties.setQueryParallelism(4);
+        MetricQueryService service = new MetricQueryService(store, properties);
+        services.add(service);
+        return service;
+    }
+
+    private static Map<String, Map<String, Object>> run(MetricQueryService service, MetricQueryService.Query query)
+            throws Exception {
+        Map<String, Map<String, Object>> results = new ConcurrentHashMap<>();
+        service.query(query, result -> results.put((String) result.get("key"), result), () -> false)
+                .get(10, TimeUnit.SECONDS);
+        return results;
+    }
+
+    private static long currentSegment() {
+        return Math.floorDiv(System.currentTimeMillis(), HOUR) * HOUR;
+    }
+}
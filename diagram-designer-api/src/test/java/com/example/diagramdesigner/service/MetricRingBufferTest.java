@@ -0,0 +1,107 @@
+package com.example.diagramdesigner.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class MetricRingBufferTest {
+
+    private static final long START = 1_790_000_000_000L;
+
+    @Test
+    void rateOfASteadyCounter() {
+        MetricRingBuffer buffer = new MetricRingBuffer(100);
+        for (int i = 0; i <= 6; i++) {
+            buffer.append(START + i * 10_000L, i * 100.0);
+        }
+
+        assertThat(buffer.rate(60_000)).isEqualTo(10.0);
+    }
+
+    @Test
+    void rateWeighsIrregularIntervalsByTheirLength() {
+        MetricRingBuffer buffer = new MetricRingBuffer(100);
+        buffer.append(START, 0);
+        buffer.append(START + 1_000, 10);
+        buffer.append(START + 11_000, 20);
+        buffer.append(START + 12_000, 120);
+
+        // 120 over 12 s, not the mean of the per-step rates (10, 1 and 100 per second)
+        assertThat(buffer.rate(60_000)).isEqualTo(10.0);
+    }
+
+    @Test
+    void rateCountsTheValueAfterAResetAsTheIncrease() {
+        MetricRingBuffer buffer = new MetricRingBuffer(100);
+        buffer.append(START, 100);
+        buffer.append(START + 10_000, 150);
+        // Restarted from zero and counted 20 since
+        buffer.append(START + 20_000, 20);
+        buffer.append(START + 30_000, 70);
+
+        // 50 + 20 + 50 over 30 s
+        assertThat(buffer.rate(60_000)).isEqualTo(4.0);
+    }
+
+    @Test
+    void rateTreatsAResetToZeroAsNoIncrease() {
+        MetricRingBuffer buffer = new MetricRingBuffer(100);
+        buffer.append(START, 500);
+        buffer.append(START + 10_000, 0);
+        buffer.append(START + 20_000, 30);
+
+        assertThat(buffer.rate(60_000)).isEqualTo(1.5);
+    }
+
+    @Test
+    void rateOnlyLooksBackOverTheWindow() {
+        MetricRingBuffer buffer = new MetricRingBuffer(100);
+        double counter = 0;
+        for (int i = 0; i <= 10; i++) {
+            buffer.append(START + i * 10_000L, counter);
+            counter += i < 5 ? 10 : 50;
+        }
+
+        // 70 s to 100 s, all at 5 per second
+        assertThat(buffer.rate(30_000)).isEqualTo(5.0);
+        // 0 s to 100 s: 50 + 250 over 100 s
+        assertThat(buffer.rate(100_000)).isEqualTo(3.0);
+    }
+
+    @Test
+    void rateUsesTheLastTwoSamplesWhenTheWindowIsShorterThanTheirGap() {
+        MetricRingBuffer buffer = new MetricRingBuffer(100);
+        buffer.append(START, 0);
+        buffer.append(START + 60_000, 600);
+
+        assertThat(buffer.rate(1_000)).isEqualTo(10.0);
+    }
+
+    @Test
+    void rateNeedsTwoSamples() {
+        MetricRingBuffer buffer = new MetricRingBuffer(100);
+        assertThat(buffer.rate(60_000)).isNaN();
+
+        buffer.append(START, 1);
+        assertThat(buffer.rate(60_000)).isNaN();
+
+        // Neither NaN nor an older timestamp is stored
+        assertThat(buffer.append(START + 1_000, Double.NaN)).isFalse();
+        assertThat(buffer.append(START, 5)).isFalse();
+        assertThat(buffer.rate(60_000)).isNaN();
+    }
+
+    @Test
+    void rateCoversOnlyRetainedSamplesOnceFull() {
+        MetricRingBuffer buffer = new MetricRingBuffer(3);
+        buffer.append(START, 0);
+        buffer.append(START + 10_000, 1_000);
+        buffer.append(START + 20_000, 1_010);
+        buffer.append(START + 30_000, 1_020);
+        buffer.append(START + 40_000, 1_040);
+
+        assertThat(buffer.firstTimestamp()).isEqualTo(START + 20_000);
+        assertThat(buffer.rate(3_600_000)).isCloseTo(1.5, within(1e-9));
+    }
+}
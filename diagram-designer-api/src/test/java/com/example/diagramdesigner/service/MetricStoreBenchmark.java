@@ -0,0 +1,115 @@
+package com.example.diagramdesigner.service;
+
+import com.example.diagramdesigner.config.MetricStoreProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Store throughput in samples per microsecond: appending to open chunks (flushed to
+ * the log as they fill), and reading back a sealed, memory-mapped segment. The setup
+ * prints the sealed size in bytes per sample.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricStoreBenchmark {
+
+    private static final long HOUR = 3_600_000L;
+    private static final int SERIES = 100;
+    private static final int SAMPLES_PER_SERIES = 2160;
+
+    private final String[] sealedKeys = new String[SERIES];
+    private final String[] liveKeys = new String[SERIES];
+    private Path directory;
+    private MetricStore store;
+    private long sealedStart;
+    private long nextTimestamp;
+    private int nextSeries;
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        for (int s = 0; s < SERIES; s++) {
+            sealedKeys[s] = "http://host-" + s + "/metrics#value";
+            liveKeys[s] = "http://live-" + s + "/metrics#value";
+        }
+        directory = Files.createTempDirectory("metric-store-benchmark");
+        MetricStoreProperties properties = new MetricStoreProperties();
+        properties.setDirectory(directory.toString());
+        properties.setSegmentMinutes(360);
+        properties.setFlushIntervalMs(HOUR);
+        store = new MetricStore(properties);
+        store.initialize();
+
+        // Six hours at 10 s, two segments back so maintain() seals it
+        sealedStart = Math.floorDiv(System.currentTimeMillis(), 6 * HOUR) * 6 * HOUR - 12 * HOUR;
+        for (int s = 0; s < SERIES; s++) {
+            double counter = 0;
+            for (int i = 0; i < SAMPLES_PER_SERIES; i++) {
+                counter += (i * 31 + s) % 100;
+                store.append(sealedKeys[s], sealedStart + i * 10_000L + (i + s) % 5, s % 2 == 0 ? counter : i % 60);
+            }
+        }
+        store.maintain();
+        long bytes = Files.size(directory.resolve("segment-" + sealedStart + ".seg"));
+        System.out.printf("%nsealed: %.2f bytes/sample%n", (double) bytes / (SERIES * SAMPLES_PER_SERIES));
+
+        nextTimestamp = Math.floorDiv(System.currentTimeMillis(), 6 * HOUR) * 6 * HOUR;
+    }
+
+    @TearDown(Level.Trial)
+    public void cleanUp() throws IOException {
+        store.shutdown();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public void append() {
+        int series = nextSeries++ % SERIES;
+        if (series == 0) {
+            nextTimestamp += 10_000;
+        }
+        store.append(liveKeys[series], nextTimestamp, nextTimestamp % 977);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES_PER_SERIES)
+    public void readSealedSeries(Blackhole blackhole) {
+        store.read(sealedKeys[nextSeries++ % SERIES], sealedStart, sealedStart + 6 * HOUR, (timestamp, value) -> {
+            blackhole.consume(timestamp);
+            blackhole.consume(value);
+        });
+    }
+
+    @Benchmark
+    public void readSealedRollup(Blackhole blackhole) {
+        List<Long> resolutions = store.rollupResolutions();
+        blackhole.consume(store.rollup(sealedKeys[nextSeries++ % SERIES], sealedStart, resolutions.get(0)));
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.diagramdesigner.service;
+
+import com.example.diagramdesigner.config.MetricStoreProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricStoreTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final String KEY = "http://host/metrics#value";
+
+    @TempDir
+    Path directory;
+
+    private final List<MetricStore> stores = new ArrayList<>();
+
+    @AfterEach
+    void shutdownStores() {
+        stores.forEach(MetricStore::shutdown);
+    }
+
+    @Test
+    void readsBackSamplesNotYetFlushed() {
+        MetricStore store = open();
+        long now = currentSegment();
+        appendSteady(store, KEY, now, 10, 1000);
+
+        assertThat(readAll(store, KEY)).hasSize(10);
+        assertThat(store.contains(KEY)).isTrue();
+        assertThat(store.contains("other#x")).isFalse();
+    }
+
+    @Test
+    void sealsFinishedSegmentsWithRollups() throws IOException {
+        MetricStore store = open();
+        long start = currentSegment() - 2 * HOUR;
+        appendSteady(store, KEY, start, 360, 10_000);
+
+        store.maintain();
+
+        assertThat(files()).containsExactly("segment-" + start + ".seg");
+        List<double[]> samples = readAll(store, KEY);
+        assertThat(samples).hasSize(360);
+        assertThat(samples.get(359)[1]).isEqualTo(359.0);
+
+        Downsampler.Downsampled rollup = store.rollup(KEY, start, 5 * 60_000L);
+        assertThat(rollup).isNotNull();
+        assertThat(rollup.size()).isEqualTo(12);
+        assertThat(rollup.count()[0]).isEqualTo(30);
+        assertThat(rollup.min()[1]).isEqualTo(30.0);
+        assertThat(rollup.max()[1]).isEqualTo(59.0);
+        assertThat(rollup.last()[1]).isEqualTo(59.0);
+        assertThat(rollup.avg()[1]).isEqualTo(44.5);
+        assertThat(store.rollup(KEY, currentSegment(), 5 * 60_000L)).isNull();
+    }
+
+    @Test
+    void keepsSealedSegmentsAcrossRestarts() {
+        MetricStore store = open();
+        long start = currentSegment() - 2 * HOUR;
+        appendSteady(store, KEY, start, 100, 10_000);
+        store.maintain();
+        close(store);
+
+        assertThat(readAll(open(), KEY)).hasSize(100);
+    }
+
+    @Test
+    void sealsAnOldLogAtStartup() throws IOException {
+        MetricStore store = open();
+        long start = currentSegment() - 2 * HOUR;
+        appendSteady(store, KEY, start, 100, 10_000);
+        // Flushes to the log without sealing
+        close(store);
+        assertThat(files()).containsExactly("segment-" + start + ".log");
+
+        MetricStore reopened = open();
+        assertThat(files()).containsExactly("segment-" + start + ".seg");
+        assertThat(readAll(reopened, KEY)).hasSize(100);
+    }
+
+    @Test
+    void dropsATornRecordWhenReopeningTheLog() throws IOException {
+        MetricStore store = open();
+        long start = currentSegment();
+        appendSteady(store, KEY, start, 50, 1000);
+        close(store);
+
+        Path log = directory.resolve("segment-" + start + ".log");
+        long size = Files.size(log);
+        // A chunk record header cut off mid-way
+        Files.write(log, new byte[]{2, 0, 0, 0, 0, 0, 0}, StandardOpenOption.APPEND);
+
+        MetricStore reopened = open();
+        assertThat(Files.size(log)).isEqualTo(size);
+        assertThat(readAll(reopened, KEY)).hasSize(50);
+
+        // Appends continue after the last complete record
+        appendSteady(reopened, KEY, start + 50_000, 5, 1000);
+        close(reopened);
+        assertThat(readAll(open(), KEY)).hasSize(55);
+    }
+
+    @Test
+    void deletesSegmentsPastRetention() throws IOException {
+        MetricStoreProperties properties = properties();
+        properties.setRetentionDays(1);
+        MetricStore store = open(properties);
+        long expired = currentSegment() - 72 * HOUR;
+        long kept = currentSegment() - 2 * HOUR;
+        appendSteady(store, KEY, expired, 10, 10_000);
+        appendSteady(store, KEY, kept, 10, 10_000);
+
+        store.maintain();
+
+        assertThat(files()).containsExactly("segment-" + kept + ".seg");
+        assertThat(readAll(store, KEY)).hasSize(10);
+    }
+
+    @Test
+    void keepsTheSealedCopyWhenALogSurvivesItsSeal() throws IOException {
+        MetricStore store = open();
+        long start = currentSegment() - 2 * HOUR;
+        appendSteady(store, KEY, start, 100, 10_000);
+        close(store);
+        Path log = directory.resolve("segment-" + start + ".log");
+        Path saved = directory.resolveSibling(directory.getFileName() + "-saved.log");
+        Files.copy(log, saved);
+
+        // Seals the log at startup, then put it back as if the delete after the seal had not happened
+        close(open());
+        Files.copy(saved, log, StandardCopyOption.REPLACE_EXISTING);
+        Files.delete(saved);
+        assertThat(files()).containsExactly("segment-" + start + ".log", "segment-" + start + ".seg");
+
+        MetricStore recovered = open();
+        assertThat(files()).containsExactly("segment-" + start + ".seg");
+        assertThat(readAll(recovered, KEY)).hasSize(100);
+        close(recovered);
+
+        assertThat(files()).containsExactly("segment-" + start + ".seg");
+        assertThat(readAll(open(), KEY)).hasSize(100);
+    }
+
+    @Test
+    void deletesLeftoverTempFiles() throws IOException {
+        Files.write(directory.resolve("segment-0.seg.tmp"), new byte[]{1, 2, 3});
+        open();
+        assertThat(files()).isEmpty();
+    }
+
+    @Test
+    void sealedSteadySamplesStayCompact() throws IOException {
+        MetricStoreProperties properties = properties();
+        properties.setRollupMinutes(List.of());
+        MetricStore store = open(properties);
+        long start = currentSegment() - 2 * HOUR;
+        int series = 300;
+        int samples = 360;
+        for (int s = 0; s < series; s++) {
+            String key = "http://host-" + s + "/metrics#value";
+            double counter = 0;
+            for (int i = 0; i < samples; i++) {
+                long timestamp = start + i * 10_000L + (i * 7L + s) % 5;
+                double value = switch (s % 3) {
+                    case 0 -> 42;
+                    case 1 -> counter += (i * 31 + s) % 17;
+                    default -> Math.round(50 + 20 * Math.sin(i / 30.0));
+                };
+                store.append(key, timestamp, value);
+            }
+        }
+        store.maintain();
+
+        long bytes = Files.size(directory.resolve("segment-" + start + ".seg"));
+        double bytesPerSample = (double) bytes / (series * samples);
+        // Constants, integer counters and whole-number gauges with a few ms of jitter: about 1.9
+        assertThat(bytesPerSample).isLessThan(2.5);
+    }
+
+    private MetricStore open() {
+        return open(properties());
+    }
+
+    private MetricStore open(MetricStoreProperties properties) {
+        MetricStore store = new MetricStore(properties);
+        store.initialize();
+        stores.add(store);
+        return store;
+    }
+
+    private void close(MetricStore store) {
+        store.shutdown();
+        stores.remove(store);
+    }
+
+    private MetricStoreProperties properties() {
+        MetricStoreProperties properties = new MetricStoreProperties();
+        properties.setDirectory(directory.toString());
+        properties.setSegmentMinutes(60);
+        properties.setRollupMinutes(List.of(5));
+        // Maintenance is run by the tests
+        properties.setFlushIntervalMs(HOUR);
+        return properties;
+    }
+
+    private static long currentSegment() {
+        return Math.floorDiv(System.currentTimeMillis(), HOUR) * HOUR;
+    }
+
+    private static void appendSteady(MetricStore store, String key, long start, int count, long interval) {
+        for (int i = 0; i < count; i++) {
+            store.append(key, start + i * interval, i);
+        }
+    }
+
+    private static List<double[]> readAll(MetricStore store, String key) {
+        List<double[]> samples = new ArrayList<>();
+        store.read(key, 0, Long.MAX_VALUE, (timestamp, value) -> samples.add(new double[]{timestamp, value}));
+        return samples;
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> listing = Files.list(directory)) {
+            return listing.map(path -> path.getFileName().toString()).sorted().toList();
+        }
+    }
+}
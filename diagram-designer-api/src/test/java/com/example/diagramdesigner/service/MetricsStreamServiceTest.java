@@ -0,0 +1,266 @@
+package com.example.diagramdesigner.service;
+
+import com.example.diagramdesigner.config.MetricStoreProperties;
+import com.example.diagramdesigner.config.MetricsProxyProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The snapshot/delta protocol of the metric stream, driven one tick at a time.
+ */
+class MetricsStreamServiceTest {
+
+    private static final String URL_A = "http://a/metrics";
+    private static final String URL_B = "http://b/metrics";
+    // FNV-1a offset basis: the checksum of no values
+    private static final long EMPTY_CHECKSUM = 2166136261L;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Map<String, Object>> bodies = new ConcurrentHashMap<>();
+    private final List<MetricsStreamService> services = new ArrayList<>();
+
+    @AfterEach
+    void shutdownServices() {
+        services.forEach(MetricsStreamService::shutdown);
+    }
+
+    @Test
+    void sendsASnapshotThenOnlyChangedValues() throws Exception {
+        MetricsStreamService service = service(properties());
+        bodies.put(URL_A, new HashMap<>(Map.of("cpu", 1.5, "mem", 100)));
+        bodies.put(URL_B, new HashMap<>(Map.of("x", 7)));
+        service.track(URL_A, URL_A, "cpu", null);
+        service.track(URL_A, URL_A, "mem", null);
+        service.track(URL_B, URL_B, "x", null);
+
+        CapturingClient client = subscribe(service, "first");
+        JsonNode snapshot = client.only("snapshot");
+        assertThat(snapshot.path("clientId").asText()).isEqualTo("first");
+        assertThat(snapshot.path("v").asLong()).isZero();
+        assertThat(snapshot.path("keys")).isEmpty();
+        assertThat(snapshot.path("checksum").asLong()).isEqualTo(EMPTY_CHECKSUM);
+
+        service.tick();
+        JsonNode first = client.last("delta");
+        assertThat(first.path("v").asLong()).isEqualTo(1);
+        Map<String, String> keys = text(first.path("keys"));
+        assertThat(keys).containsOnlyKeys("1", "2", "3");
+        assertThat(keys.values()).containsExactlyInAnyOrder(URL_A + "#cpu", URL_A + "#mem", URL_B + "#x");
+        Map<String, String> values = text(first.path("values"));
+        assertThat(values).hasSize(3);
+        String memId = idOf(keys, URL_A + "#mem");
+        String xId = idOf(keys, URL_B + "#x");
+        String cpuId = idOf(keys, URL_A + "#cpu");
+        assertThat(values).containsEntry(cpuId, "1.5").containsEntry(memId, "100").containsEntry(xId, "7");
+
+        bodies.get(URL_A).put("mem", 101);
+        bodies.get(URL_B).remove("x");
+        service.tick();
+        JsonNode second = client.last("delta");
+        assertThat(second.path("v").asLong()).isEqualTo(2);
+        assertThat(second.has("keys")).isFalse();
+        assertThat(second.path("values").size()).isEqualTo(2);
+        assertThat(second.path("values").path(memId).asText()).isEqualTo("101");
+        // A vanished value is sent as null
+        assertThat(second.path("values").has(xId)).isTrue();
+        assertThat(second.path("values").path(xId).isNull()).isTrue();
+
+        // Nothing changed, so no delta
+        service.tick();
+        assertThat(client.named("delta")).hasSize(2);
+
+        JsonNode resumed = subscribe(service, "second").only("snapshot");
+        assertThat(resumed.path("v").asLong()).isEqualTo(2);
+        assertThat(text(resumed.path("keys"))).isEqualTo(keys);
+        assertThat(text(resumed.path("values"))).containsOnly(Map.entry(cpuId, "1.5"), Map.entry(memId, "101"));
+        assertThat(resumed.path("checksum").asLong())
+                .isEqualTo(fnv1a(cpuId + "=1.5\n" + memId + "=101\n"));
+    }
+
+    @Test
+    void checksumsPresentValuesOverUtf16CodeUnits() throws Exception {
+        MetricsProxyProperties properties = properties();
+        properties.setStreamChecksumEvery(2);
+        MetricsStreamService service = service(properties);
+        // Outside the BMP: two UTF-16 code units, four UTF-8 bytes
+        bodies.put(URL_A, Map.of("status", "ok 😀", "count", 12));
+        service.track(URL_A, URL_A, "status", null);
+        service.track(URL_A, URL_A, "count", null);
+        CapturingClient client = subscribe(service, "c");
+
+        service.tick();
+        assertThat(client.named("checksum")).isEmpty();
+        service.tick();
+
+        JsonNode checksum = client.only("checksum");
+        assertThat(checksum.path("v").asLong()).isEqualTo(1);
+        assertThat(checksum.path("count").asInt()).isEqualTo(2);
+        // IDs follow tracking order, and the hash runs over them in ascending order
+        assertThat(checksum.path("checksum").asLong())
+                .isEqualTo(fnv1a("1=ok 😀\n2=12\n"))
+                .isNotEqualTo(fnv1aUtf8("1=ok 😀\n2=12\n"));
+    }
+
+    @Test
+    void listsIdleMetricsAsRemovedAndDropsThemFromSnapshots() throws Exception {
+        MetricsProxyProperties properties = properties();
+        properties.setStreamIdleTtlMs(300);
+        MetricsStreamService service = service(properties);
+        bodies.put(URL_A, Map.of("cpu", 1, "mem", 2));
+        service.track(URL_A, URL_A, "cpu", null);
+        service.track(URL_A, URL_A, "mem", null);
+        CapturingClient client = subscribe(service, "c");
+        service.tick();
+
+        Thread.sleep(400);
+        // Still requested, so kept
+        service.track(URL_A, URL_A, "cpu", null);
+        service.tick();
+
+        JsonNode delta = client.last("delta");
+        assertThat(delta.path("v").asLong()).isEqualTo(2);
+        assertThat(delta.path("removed").toString()).isEqualTo("[2]");
+        assertThat(delta.path("values")).isEmpty();
+
+        JsonNode snapshot = subscribe(service, "late").only("snapshot");
+        assertThat(text(snapshot.path("keys"))).containsOnly(Map.entry("1", URL_A + "#cpu"));
+        assertThat(text(snapshot.path("values"))).containsOnly(Map.entry("1", "1"));
+        assertThat(snapshot.path("checksum").asLong()).isEqualTo(fnv1a("1=1\n"));
+
+        // Requested again, it comes back under a new ID
+        service.track(URL_A, URL_A, "mem", null);
+        service.tick();
+        assertThat(text(client.last("delta").path("keys"))).containsOnly(Map.entry("3", URL_A + "#mem"));
+    }
+
+    @Test
+    void refusesNewMetricsPastTheLimit() throws Exception {
+        MetricsProxyProperties properties = properties();
+        properties.setStreamMaxSeries(1);
+        MetricsStreamService service = service(properties);
+        bodies.put(URL_A, Map.of("cpu", 1, "mem", 2));
+        service.track(URL_A, URL_A, "cpu", null);
+        service.track(URL_A, URL_A, "mem", null);
+        CapturingClient client = subscribe(service, "c");
+
+        service.tick();
+
+        assertThat(text(client.last("delta").path("keys"))).containsOnly(Map.entry("1", URL_A + "#cpu"));
+    }
+
+    /**
+     * 32-bit FNV-1a over UTF-16 code units, as a browser computes it from a JS string.
+     */
+    private static long fnv1a(String text) {
+        long hash = EMPTY_CHECKSUM;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash = (hash * 16777619L) & 0xffffffffL;
+        }
+        return hash;
+    }
+
+    private static long fnv1aUtf8(String text) {
+        long hash = EMPTY_CHECKSUM;
+        for (byte b : text.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash = (hash * 16777619L) & 0xffffffffL;
+        }
+        return hash;
+    }
+
+    private static String idOf(Map<String, String> keys, String key) {
+        return keys.entrySet().stream().filter(entry -> entry.getValue().equals(key)).findFirst().orElseThrow().getKey();
+    }
+
+    private static Map<String, String> text(JsonNode object) {
+        Map<String, String> entries = new HashMap<>();
+        object.fields().forEachRemaining(entry -> entries.put(entry.getKey(), entry.getValue().asText()));
+        return entries;
+    }
+
+    private CapturingClient subscribe(MetricsStreamService service, String id) {
+        CapturingClient client = new CapturingClient(id);
+        service.subscribe(client);
+        return client;
+    }
+
+    private MetricsProxyProperties properties() {
+        MetricsProxyProperties properties = new MetricsProxyProperties();
+        // Ticks are run by the tests
+        properties.setStreamTickMs(3_600_000);
+        properties.setHistorySampleIntervalMs(3_600_000);
+        properties.setStreamChecksumEvery(1000);
+        return properties;
+    }
+
+    private MetricsStreamService service(MetricsProxyProperties properties) {
+        MetricsProxyService proxy = new MetricsProxyService(properties, objectMapper, null) {
+            @Override
+            public Mono<ResponseEntity<Object>> proxyRequest(String targetUrl, String nodeName) {
+                Map<String, Object> body = bodies.get(targetUrl);
+                return body != null ? Mono.just(ResponseEntity.ok(Map.copyOf(body))) : Mono.empty();
+            }
+        };
+        // Never initialized, so disabled
+        MetricStore store = new MetricStore(new MetricStoreProperties());
+        MetricHistoryService history = new MetricHistoryService(proxy, store, properties);
+        MetricsStreamService service = new MetricsStreamService(proxy, history, properties, objectMapper);
+        services.add(service);
+        // Its sampling is not under test
+        history.shutdown();
+        return service;
+    }
+
+    private final class CapturingClient extends SseClient {
+        private final List<SseFrame> frames = new CopyOnWriteArrayList<>();
+
+        private CapturingClient(String id) {
+            super(id, new SseEmitter(), 64, OverflowPolicy.DROP_OLDEST, Set.of());
+        }
+
+        @Override
+        public boolean offer(SseFrame frame) {
+            frames.add(frame);
+            return true;
+        }
+
+        List<JsonNode> named(String name) throws Exception {
+            List<JsonNode> matching = new ArrayList<>();
+            for (SseFrame frame : frames) {
+                if (frame.name().equals(name)) {
+                    matching.add(objectMapper.readTree(frame.json()));
+                }
+            }
+            return matching;
+        }
+
+        JsonNode only(String name) throws Exception {
+            List<JsonNode> matching = named(name);
+            assertThat(matching).hasSize(1);
+            return matching.get(0);
+        }
+
+        JsonNode last(String name) throws Exception {
+            List<JsonNode> matching = named(name);
+            assertThat(matching).isNotEmpty();
+            return matching.get(matching.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.diagramdesigner.service;
+
+import org.junit.jupiter.api.Test;
+
+import static com.example.diagramdesigner.service.ServiceHealthTable.State.ERROR;
+import static com.example.diagramdesigner.service.ServiceHealthTable.State.STARTED;
+import static com.example.diagramdesigner.service.ServiceHealthTable.State.STOPPED;
+import static com.example.diagramdesigner.service.ServiceHealthTable.State.UNKNOWN;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ServiceHealthHistoryTest {
+
+    private static final long START = 1_790_000_000_000L;
+    private static final long SECOND = 1000L;
+    private static final long HOUR = 3_600_000L;
+
+    private final ServiceHealthHistory history = new ServiceHealthHistory(64);
+
+    @Test
+    void uptimeIsTheShareOfCoveredTimeSpentUp() {
+        record(0, STARTED);
+        record(60, ERROR);
+        record(90, STARTED);
+
+        ServiceHealthHistory.WindowStats stats = report(120, HOUR).windows().get(0);
+
+        // Samples reach back only 120 s of the hour
+        assertThat(stats.coveredMs()).isEqualTo(120 * SECOND);
+        assertThat(stats.uptimePercent()).isEqualTo(75.0);
+        assertThat(stats.transitions()).isEqualTo(2);
+        assertThat(stats.recoveries()).isEqualTo(1);
+        assertThat(stats.mttrMs()).isEqualTo(30 * SECOND);
+        assertThat(stats.samples()).isEqualTo(3);
+    }
+
+    @Test
+    void clipsEachWindowInTheSamePass() {
+        record(0, STARTED);
+        record(60, ERROR);
+        record(90, STARTED);
+
+        ServiceHealthHistory.Report report = report(120, 45 * SECOND, HOUR);
+
+        ServiceHealthHistory.WindowStats recent = report.windows().get(0);
+        assertThat(recent.windowMs()).isEqualTo(45 * SECOND);
+        // 75 s to 120 s: 15 s of the ERROR period, then 30 s up
+        assertThat(recent.coveredMs()).isEqualTo(45 * SECOND);
+        assertThat(recent.uptimePercent()).isCloseTo(200.0 / 3, within(1e-9));
+        assertThat(recent.samples()).isEqualTo(1);
+        assertThat(recent.transitions()).isEqualTo(1);
+        // A recovery inside the window counts its whole outage, including the part before it
+        assertThat(recent.mttrMs()).isEqualTo(30 * SECOND);
+
+        assertThat(report.windows().get(1).uptimePercent()).isEqualTo(75.0);
+    }
+
+    @Test
+    void countsStoppedAsUpAndUnknownAsDown() {
+        record(0, STARTED);
+        record(10, ERROR);
+        // Still down: a transition but not a recovery
+        record(20, UNKNOWN);
+        record(40, STOPPED);
+        record(50, ERROR);
+        record(60, STARTED);
+
+        ServiceHealthHistory.WindowStats stats = report(70, HOUR).windows().get(0);
+
+        // Up 0-10, 40-50 and 60-70
+        assertThat(stats.uptimePercent()).isCloseTo(300.0 / 7, within(1e-9));
+        assertThat(stats.transitions()).isEqualTo(5);
+        assertThat(stats.recoveries()).isEqualTo(2);
+        // Outages of 30 s and 10 s
+        assertThat(stats.mttrMs()).isEqualTo(20 * SECOND);
+    }
+
+    @Test
+    void streakRunsFromTheLatestTransition() {
+        record(0, ERROR);
+        record(10, STARTED);
+        record(20, STARTED);
+
+        ServiceHealthHistory.Report report = report(45, HOUR);
+
+        assertThat(report.currentState()).isEqualTo("STARTED");
+        assertThat(report.streakMs()).isEqualTo(35 * SECOND);
+    }
+
+    @Test
+    void streakRunsFromTheOldestSampleWithoutATransition() {
+        record(0, STOPPED);
+        record(10, STOPPED);
+
+        ServiceHealthHistory.Report report = report(30, HOUR);
+
+        assertThat(report.currentState()).isEqualTo("STOPPED");
+        assertThat(report.streakMs()).isEqualTo(30 * SECOND);
+        assertThat(report.windows().get(0).transitions()).isZero();
+        assertThat(report.windows().get(0).mttrMs()).isNull();
+    }
+
+    @Test
+    void coversOnlyRetainedSamplesOnceTheRingWraps() {
+        ServiceHealthHistory small = new ServiceHealthHistory(4);
+        ServiceHealthTable.State[] states = {ERROR, ERROR, STARTED, STARTED, STOPPED, STARTED};
+        for (int i = 0; i < states.length; i++) {
+            small.record("textproc", START + i * 10 * SECOND, states[i]);
+        }
+
+        ServiceHealthHistory.Report report = small.report("textproc", START + 60 * SECOND, new long[]{HOUR});
+        ServiceHealthHistory.WindowStats stats = report.windows().get(0);
+
+        // 20 s onwards; the outage and its recovery were overwritten
+        assertThat(stats.samples()).isEqualTo(4);
+        assertThat(stats.coveredMs()).isEqualTo(40 * SECOND);
+        assertThat(stats.uptimePercent()).isEqualTo(100.0);
+        assertThat(stats.transitions()).isEqualTo(2);
+        assertThat(stats.recoveries()).isZero();
+        assertThat(report.currentState()).isEqualTo("STARTED");
+        assertThat(report.streakMs()).isEqualTo(10 * SECOND);
+    }
+
+    @Test
+    void hasNoUptimeWhenNothingIsCovered() {
+        record(0, STARTED);
+
+        ServiceHealthHistory.WindowStats stats = report(0, HOUR).windows().get(0);
+
+        assertThat(stats.coveredMs()).isZero();
+        assertThat(stats.uptimePercent()).isNull();
+        assertThat(stats.samples()).isEqualTo(1);
+    }
+
+    @Test
+    void reportsNothingForAnUnknownService() {
+        assertThat(history.contains("textproc")).isFalse();
+        assertThat(history.report("textproc", START, new long[]{HOUR})).isNull();
+
+        record(0, STARTED);
+        assertThat(history.contains("textproc")).isTrue();
+    }
+
+    private void record(long seconds, ServiceHealthTable.State state) {
+        history.record("textproc", START + seconds * SECOND, state);
+    }
+
+    private ServiceHealthHistory.Report report(long nowSeconds, long... windowsMs) {
+        return history.report("textproc", START + nowSeconds * SECOND, windowsMs);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.diagramdesigner.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ServiceHealthTableTest {
+
+    private final ServiceHealthTable table = new ServiceHealthTable();
+
+    @Test
+    void registersAsUnknownWithNoCheckTime() {
+        table.register("textproc", 10_000);
+
+        assertThat(table.stateOf("textproc")).isEqualTo(ServiceHealthTable.State.UNKNOWN);
+        assertThat(table.checkedAtOf("textproc")).isZero();
+        assertThat(table.intervalOf("textproc")).isEqualTo(10_000);
+        assertThat(table.size()).isEqualTo(1);
+    }
+
+    @Test
+    void reportsNothingForAnUnknownService() {
+        assertThat(table.stateOf("missing")).isNull();
+        assertThat(table.checkedAtOf("missing")).isZero();
+        assertThat(table.intervalOf("missing")).isZero();
+        assertThat(table.size()).isZero();
+    }
+
+    @Test
+    void registeringTwiceKeepsTheSlotAndItsState() {
+        table.register("textproc", 10_000);
+        table.record("textproc", 1, ServiceHealthTable.State.STARTED, 1000);
+
+        table.register("textproc", 99);
+
+        assertThat(table.size()).isEqualTo(1);
+        assertThat(table.stateOf("textproc")).isEqualTo(ServiceHealthTable.State.STARTED);
+        assertThat(table.intervalOf("textproc")).isEqualTo(10_000);
+    }
+
+    @Test
+    void reportsWhetherEachResultChangedTheState() {
+        table.register("textproc", 10_000);
+
+        assertThat(table.record("textproc", 1, ServiceHealthTable.State.STARTED, 1000))
+                .isEqualTo(ServiceHealthTable.Change.CHANGED);
+        assertThat(table.record("textproc", 2, ServiceHealthTable.State.STARTED, 2000))
+                .isEqualTo(ServiceHealthTable.Change.UNCHANGED);
+        assertThat(table.record("textproc", 3, ServiceHealthTable.State.ERROR, 3000))
+                .isEqualTo(ServiceHealthTable.Change.CHANGED);
+
+        assertThat(table.stateOf("textproc")).isEqualTo(ServiceHealthTable.State.ERROR);
+        assertThat(table.checkedAtOf("textproc")).isEqualTo(3000);
+    }
+
+    @Test
+    void anUnknownResultForANewServiceIsNotAChange() {
+        assertThat(table.record("textproc", 1, ServiceHealthTable.State.UNKNOWN, 1000))
+                .isEqualTo(ServiceHealthTable.Change.UNCHANGED);
+        // Recording registers the service, with no interval yet
+        assertThat(table.checkedAtOf("textproc")).isEqualTo(1000);
+        assertThat(table.intervalOf("textproc")).isZero();
+    }
+
+    @Test
+    void discardsAResultOlderThanTheOneApplied() {
+        // A manual stop lands while an earlier probe is still in flight
+        table.record("textproc", 5, ServiceHealthTable.State.STOPPED, 2000);
+
+        assertThat(table.record("textproc", 4, ServiceHealthTable.State.STARTED, 2500))
+                .isEqualTo(ServiceHealthTable.Change.STALE);
+
+        assertThat(table.stateOf("textproc")).isEqualTo(ServiceHealthTable.State.STOPPED);
+        assertThat(table.checkedAtOf("textproc")).isEqualTo(2000);
+    }
+
+    @Test
+    void setsTheIntervalOfAnExistingOrNewService() {
+        table.register("textproc", 10_000);
+        table.setInterval("textproc", 2_000);
+        table.setInterval("embedproc", 30_000);
+
+        assertThat(table.intervalOf("textproc")).isEqualTo(2_000);
+        assertThat(table.intervalOf("embedproc")).isEqualTo(30_000);
+        assertThat(table.stateOf("embedproc")).isEqualTo(ServiceHealthTable.State.UNKNOWN);
+    }
+
+    @Test
+    void keepsEveryServiceWhenTheColumnsGrow() {
+        int services = 100;
+        for (int i = 0; i < services; i++) {
+            table.register("service-" + i, i);
+            ServiceHealthTable.State state = ServiceHealthTable.State.values()[i % 4];
+            table.record("service-" + i, i + 1, state, 1000L + i);
+        }
+
+        assertThat(table.size()).isEqualTo(services);
+        for (int i = 0; i < services; i++) {
+            assertThat(table.stateOf("service-" + i)).isEqualTo(ServiceHealthTable.State.values()[i % 4]);
+            assertThat(table.checkedAtOf("service-" + i)).isEqualTo(1000L + i);
+            assertThat(table.intervalOf("service-" + i)).isEqualTo(i);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.diagramdesigner.service;
+
+import com.example.diagramdesigner.config.HealthMonitorProperties;
+import com.example.diagramdesigner.config.SseProperties;
+import com.example.diagramdesigner.controller.SSEController;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Which endpoint each monitored service is probed on, and how its answer maps to a state.
+ */
+class ServiceRegistryServiceTest {
+
+    private final Map<String, HttpServer> apps = new HashMap<>();
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final List<Runnable> cleanup = new ArrayList<>();
+
+    @AfterEach
+    void stop() {
+        cleanup.forEach(Runnable::run);
+        apps.values().forEach(server -> server.stop(0));
+    }
+
+    @Test
+    void probesPipelineServicesForProcessingStateAndOtherAppsForHealth() throws Exception {
+        app("textproc", Map.of("/api/processing/state", new Answer(200, "{\"enabled\": true}")));
+        app("embedproc", Map.of("/api/processing/state", new Answer(200, "{\"enabled\": false, \"processing\": false}")));
+        app("config-server", Map.of("/actuator/health", new Answer(200, "{\"status\": \"UP\"}")));
+        app("drained", Map.of("/actuator/health", new Answer(503, "{\"status\": \"OUT_OF_SERVICE\"}")));
+        app("broken", Map.of("/actuator/health", new Answer(503, "{\"status\": \"DOWN\"}")));
+        // No actuator at all, or one that wants credentials
+        app("legacy", Map.of());
+        app("secured", Map.of("/actuator/health", new Answer(401, "")));
+
+        HealthMonitorProperties properties = properties();
+        properties.setServices(new ArrayList<>(List.of("textproc", "embedproc")));
+        ServiceRegistryService registry = registry(properties);
+
+        assertThat(awaitStatus(registry, "textproc")).isEqualTo("STARTED");
+        assertThat(awaitStatus(registry, "embedproc")).isEqualTo("STOPPED");
+        assertThat(awaitStatus(registry, "config-server")).isEqualTo("STARTED");
+        assertThat(awaitStatus(registry, "drained")).isEqualTo("STOPPED");
+        assertThat(awaitStatus(registry, "broken")).isEqualTo("ERROR");
+        assertThat(awaitStatus(registry, "legacy")).isEqualTo("STARTED");
+        assertThat(awaitStatus(registry, "secured")).isEqualTo("STARTED");
+
+        assertThat(requests).contains("textproc /api/processing/state", "config-server /actuator/health")
+                .noneMatch(request -> request.startsWith("textproc /actuator"))
+                .noneMatch(request -> !request.startsWith("textproc") && !request.startsWith("embedproc")
+                        && request.endsWith("/api/processing/state"));
+    }
+
+    @Test
+    void monitorsOnlyConfiguredServicesUnlessDiscoveredAreIncluded() throws Exception {
+        app("textproc", Map.of("/api/processing/state", new Answer(200, "{\"processing\": true}")));
+        app("config-server", Map.of("/actuator/health", new Answer(200, "{\"status\": \"UP\"}")));
+
+        HealthMonitorProperties properties = properties();
+        properties.setServices(new ArrayList<>(List.of("textproc")));
+        properties.setIncludeDiscovered(false);
+        ServiceRegistryService registry = registry(properties);
+
+        assertThat(awaitStatus(registry, "textproc")).isEqualTo("STARTED");
+        assertThat(registry.getMonitoredServices()).containsExactly("textproc");
+        assertThat(requests).noneMatch(request -> request.startsWith("config-server"));
+    }
+
+    private String awaitStatus(ServiceRegistryService registry, String serviceName) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        ServiceRegistryService.ServiceStatus status = registry.getServiceStatus(serviceName);
+        while ((status == null || "UNKNOWN".equals(status.getStatus())) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            status = registry.getServiceStatus(serviceName);
+        }
+        return status != null ? status.getStatus() : null;
+    }
+
+    private HealthMonitorProperties properties() {
+        HealthMonitorProperties properties = new HealthMonitorProperties();
+        properties.setTickMs(10);
+        properties.setWheelSize(64);
+        properties.setJitterMs(0);
+        properties.setIntervalMs(50);
+        properties.setMinIntervalMs(50);
+        return properties;
+    }
+
+    private ServiceRegistryService registry(HealthMonitorProperties properties) {
+        SseProperties sseProperties = new SseProperties();
+        sseProperties.setHeartbeatIntervalMs(3_600_000);
+        SSEController sseController = new SSEController(sseProperties, new SimpleMeterRegistry(), new ObjectMapper(),
+                new EventBus() {
+                    @Override
+                    public void publish(String eventName, String json) {
+                    }
+
+                    @Override
+                    public void subscribe(Consumer<Envelope> listener) {
+                    }
+                });
+        ServiceRegistryService registry = new ServiceRegistryService(discovery(), properties, sseController, null);
+        registry.initialize();
+        cleanup.add(registry::shutdown);
+        cleanup.add(sseController::shutdown);
+        return registry;
+    }
+
+    private DiscoveryClient discovery() {
+        return new DiscoveryClient() {
+            @Override
+            public String description() {
+                return "test";
+            }
+
+            @Override
+            public List<ServiceInstance> getInstances(String serviceId) {
+                HttpServer server = apps.get(serviceId);
+                if (server == null) {
+                    return List.of();
+                }
+                return List.of(new DefaultServiceInstance(serviceId + "-1", serviceId, "localhost",
+                        server.getAddress().getPort(), false));
+            }
+
+            @Override
+            public List<String> getServices() {
+                return List.copyOf(apps.keySet());
+            }
+        };
+    }
+
+    private void app(String name, Map<String, Answer> answers) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            requests.add(name + " " + path);
+            Answer answer = answers.getOrDefault(path, new Answer(404, ""));
+            byte[] body = answer.body().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(answer.status(), body.length > 0 ? body.length : -1);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        apps.put(name, server);
+    }
+
+    private record Answer(int status, String body) {
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.diagramdesigner.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SseClientTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void runsTheCloseCallbackOnceOnTheClosingThread() {
+        // The writer wakes on close and closes too; it must never take the callback
+        for (int i = 0; i < 500; i++) {
+            SseClient client = new SseClient("c" + i, new SseEmitter(), 4, SseClient.OverflowPolicy.DROP_OLDEST, Set.of());
+            List<String> closedOn = new CopyOnWriteArrayList<>();
+            client.start(closed -> {
+                assertThat(closed.isClosed()).isTrue();
+                closedOn.add(Thread.currentThread().getName());
+            });
+
+            client.close();
+            client.close();
+
+            assertThat(closedOn).containsExactly(Thread.currentThread().getName());
+        }
+    }
+
+    @Test
+    void runsTheCallbackForAnOverflowEvictionOnTheWriterThread() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        SseEmitter emitter = new SseEmitter() {
+            @Override
+            public void send(Set<DataWithMediaType> items) throws IOException {
+                // Stall the first write, as a client on a slow network would
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        SseClient client = new SseClient("slow", emitter, 1, SseClient.OverflowPolicy.DISCONNECT, Set.of());
+        List<String> closedOn = new CopyOnWriteArrayList<>();
+        CountDownLatch closed = new CountDownLatch(1);
+        client.start(c -> {
+            closedOn.add(Thread.currentThread().getName());
+            closed.countDown();
+        });
+
+        assertThat(client.offer(frame(1))).isTrue();
+        assertThat(writing.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(client.offer(frame(2))).isTrue();
+        assertThat(client.offer(frame(3))).isFalse();
+
+        // Closed at once, but the callback waits for the writer rather than running in offer()
+        assertThat(client.isClosed()).isTrue();
+        assertThat(client.offer(frame(4))).isFalse();
+        assertThat(closedOn).isEmpty();
+
+        release.countDown();
+        assertThat(closed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(closedOn).containsExactly("sse-writer-slow");
+        assertThat(client.getDroppedCount()).isEqualTo(1);
+    }
+
+    private SseFrame frame(long id) throws JsonProcessingException {
+        return SseFrame.encode(objectMapper, "message", Map.of("event", "TEST")).withId(id);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.diagramdesigner.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one broadcast in microseconds: building and converting the event separately
+ * for every client, as SseEmitter.event() does, against encoding one SseFrame and writing
+ * its bytes to each client. Both paths go through the message converters the servlet
+ * emitter handler would use, into an in-memory response.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SseFrameBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int clients;
+
+    @Param({"status", "snapshot"})
+    public String event;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MappingJackson2HttpMessageConverter jsonConverter = new MappingJackson2HttpMessageConverter(objectMapper);
+    private final StringHttpMessageConverter stringConverter = new StringHttpMessageConverter();
+    private final ByteArrayHttpMessageConverter bytesConverter = new ByteArrayHttpMessageConverter();
+    private Map<String, Object> data;
+    private long nextId;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        data = new HashMap<>();
+        if (event.equals("status")) {
+            // A SERVICE_STATUS transition
+            data.put("app", "document-processor");
+            data.put("status", "online");
+            data.put("message", "document-processor is online");
+            data.put("event", "SERVICE_STATUS");
+        } else {
+            // A metrics snapshot for a diagram with 40 nodes
+            List<Map<String, Object>> nodes = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                Map<String, Object> node = new HashMap<>();
+                node.put("name", "node-" + i);
+                node.put("status", i % 7 == 0 ? "degraded" : "online");
+                node.put("requestsPerSecond", 12.5 * i);
+                node.put("p99Ms", 40 + i % 13);
+                nodes.add(node);
+            }
+            data.put("diagram", "platform-overview.json");
+            data.put("nodes", nodes);
+            data.put("event", "SNAPSHOT");
+        }
+        data.put("timestamp", 1_790_000_000_000L);
+    }
+
+    @Benchmark
+    public void perClient(Blackhole blackhole) throws IOException {
+        long id = ++nextId;
+        for (int c = 0; c < clients; c++) {
+            MockHttpOutputMessage response = new MockHttpOutputMessage();
+            for (ResponseBodyEmitter.DataWithMediaType part :
+                    SseEmitter.event().id(Long.toString(id)).name("message").data(data).build()) {
+                write(part, response);
+            }
+            blackhole.consume(response);
+        }
+    }
+
+    @Benchmark
+    public void encodeOnce(Blackhole blackhole) throws IOException {
+        SseFrame frame = SseFrame.encode(objectMapper, "message", data).withId(++nextId);
+        for (int c = 0; c < clients; c++) {
+            MockHttpOutputMessage response = new MockHttpOutputMessage();
+            for (ResponseBodyEmitter.DataWithMediaType part : frame.payload()) {
+                write(part, response);
+            }
+            blackhole.consume(response);
+        }
+    }
+
+    private void write(ResponseBodyEmitter.DataWithMediaType part, MockHttpOutputMessage response) throws IOException {
+        // The converter selection the servlet emitter handler makes for each part
+        if (part.getData() instanceof byte[] bytes) {
+            bytesConverter.write(bytes, part.getMediaType(), response);
+        } else if (part.getData() instanceof String text) {
+            stringConverter.write(text, part.getMediaType(), response);
+        } else {
+            jsonConverter.write(part.getData(), MediaType.APPLICATION_JSON, response);
+        }
+    }
+}
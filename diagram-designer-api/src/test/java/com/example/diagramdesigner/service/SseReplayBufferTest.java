@@ -0,0 +1,101 @@
+package com.example.diagramdesigner.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SseReplayBufferTest {
+
+    private static final long BASE = 1_790_000_000_000L;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void startsEmptyRightAfterTheBaseId() {
+        SseReplayBuffer buffer = new SseReplayBuffer(4, BASE);
+
+        assertThat(buffer.latestId()).isEqualTo(BASE);
+        assertThat(buffer.oldestId()).isEqualTo(BASE + 1);
+        assertThat(buffer.canReplayFrom(BASE)).isTrue();
+        assertThat(buffer.framesAfter(BASE)).isEmpty();
+        assertThat(buffer.canReplayFrom(BASE - 1)).isFalse();
+        assertThat(buffer.canReplayFrom(BASE + 1)).isFalse();
+    }
+
+    @Test
+    void rejectsIdsThatAreNotConsecutive() throws JsonProcessingException {
+        SseReplayBuffer buffer = new SseReplayBuffer(4, BASE);
+        buffer.append(frame(BASE + 1));
+
+        assertThatThrownBy(() -> buffer.append(frame(BASE + 3))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> buffer.append(frame(BASE + 1))).isInstanceOf(IllegalArgumentException.class);
+        assertThat(buffer.latestId()).isEqualTo(BASE + 1);
+    }
+
+    @Test
+    void replaysEverythingWhileWithinCapacity() throws JsonProcessingException {
+        SseReplayBuffer buffer = new SseReplayBuffer(4, BASE);
+        appendThrough(buffer, BASE + 4);
+
+        assertThat(buffer.oldestId()).isEqualTo(BASE + 1);
+        assertThat(buffer.canReplayFrom(BASE)).isTrue();
+        assertThat(ids(buffer.framesAfter(BASE))).containsExactly(BASE + 1, BASE + 2, BASE + 3, BASE + 4);
+        assertThat(ids(buffer.framesAfter(BASE + 2))).containsExactly(BASE + 3, BASE + 4);
+        assertThat(buffer.framesAfter(BASE + 4)).isEmpty();
+    }
+
+    @Test
+    void keepsOnlyTheLatestCapacityFramesAcrossWrapAround() throws JsonProcessingException {
+        SseReplayBuffer buffer = new SseReplayBuffer(4, BASE);
+        appendThrough(buffer, BASE + 11);
+
+        assertThat(buffer.oldestId()).isEqualTo(BASE + 8);
+        // The client saw 7, so 8 onwards is all it needs
+        assertThat(buffer.canReplayFrom(BASE + 7)).isTrue();
+        assertThat(ids(buffer.framesAfter(BASE + 7))).containsExactly(BASE + 8, BASE + 9, BASE + 10, BASE + 11);
+        // 7 itself was overwritten: a gap
+        assertThat(buffer.canReplayFrom(BASE + 6)).isFalse();
+        assertThat(buffer.canReplayFrom(BASE)).isFalse();
+    }
+
+    @Test
+    void treatsIdsAheadOfTheLatestAsAGap() throws JsonProcessingException {
+        SseReplayBuffer buffer = new SseReplayBuffer(4, BASE);
+        appendThrough(buffer, BASE + 2);
+
+        // An ID from a previous process that had gone further
+        assertThat(buffer.canReplayFrom(BASE + 2)).isTrue();
+        assertThat(buffer.canReplayFrom(BASE + 3)).isFalse();
+    }
+
+    @Test
+    void holdsOneFrameAtCapacityOne() throws JsonProcessingException {
+        SseReplayBuffer buffer = new SseReplayBuffer(0, BASE);
+        appendThrough(buffer, BASE + 3);
+
+        assertThat(buffer.capacity()).isEqualTo(1);
+        assertThat(buffer.oldestId()).isEqualTo(BASE + 3);
+        assertThat(ids(buffer.framesAfter(BASE + 2))).containsExactly(BASE + 3);
+        assertThat(buffer.canReplayFrom(BASE + 1)).isFalse();
+    }
+
+    private SseFrame frame(long id) throws JsonProcessingException {
+        return SseFrame.encode(objectMapper, "message", Map.of("event", "TEST", "n", id)).withId(id);
+    }
+
+    private void appendThrough(SseReplayBuffer buffer, long lastId) throws JsonProcessingException {
+        for (long id = buffer.latestId() + 1; id <= lastId; id++) {
+            buffer.append(frame(id));
+        }
+    }
+
+    private static List<Long> ids(List<SseFrame> frames) {
+        return frames.stream().map(SseFrame::id).toList();
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.diagramdesigner.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimingWheelTest {
+
+    @Test
+    void expiresAnItemAfterItsDelayInTicks() {
+        TimingWheel<String> wheel = new TimingWheel<>(8, 100);
+        wheel.schedule("a", 300);
+
+        assertThat(advanceUntilExpired(wheel, "a")).isEqualTo(3);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void roundsDelaysUpToWholeTicksWithAtLeastOne() {
+        TimingWheel<String> wheel = new TimingWheel<>(8, 100);
+        wheel.schedule("zero", 0);
+        wheel.schedule("partial", 101);
+
+        assertThat(advance(wheel)).containsExactly("zero");
+        assertThat(advance(wheel)).containsExactly("partial");
+    }
+
+    @Test
+    void waitsFullRotationsForDelaysLongerThanTheWheel() {
+        TimingWheel<String> wheel = new TimingWheel<>(4, 10);
+        wheel.schedule("once", 40);
+        wheel.schedule("twice", 80);
+        wheel.schedule("past", 90);
+
+        assertThat(advanceUntilExpired(wheel, "once")).isEqualTo(4);
+        assertThat(advanceUntilExpired(wheel, "twice")).isEqualTo(4);
+        assertThat(advanceUntilExpired(wheel, "past")).isEqualTo(1);
+    }
+
+    @Test
+    void expiresEveryItemHashedToTheSameSlot() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(4, 10);
+        for (int i = 0; i < 10; i++) {
+            wheel.schedule(i, 20);
+        }
+        // Same slot, next rotation
+        wheel.schedule(99, 60);
+
+        advance(wheel);
+        assertThat(wheel.size()).isEqualTo(11);
+        assertThat(advance(wheel)).containsExactlyInAnyOrder(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        assertThat(wheel.size()).isEqualTo(1);
+        advance(wheel);
+        advance(wheel);
+        advance(wheel);
+        assertThat(advance(wheel)).containsExactly(99);
+    }
+
+    @Test
+    void placesItemsScheduledFromTheCallbackOnTheNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(4, 10);
+        wheel.schedule("a", 10);
+        List<String> expired = new ArrayList<>();
+
+        wheel.advance(item -> {
+            expired.add(item);
+            wheel.schedule(item, 10);
+        });
+        assertThat(expired).containsExactly("a");
+        assertThat(wheel.size()).isZero();
+
+        // One tick from the advance that placed it
+        assertThat(advance(wheel)).containsExactly("a");
+    }
+
+    @Test
+    void countsOnlyPlacedItems() {
+        TimingWheel<String> wheel = new TimingWheel<>(4, 10);
+        wheel.schedule("a", 50);
+        assertThat(wheel.size()).isZero();
+
+        advance(wheel);
+        assertThat(wheel.size()).isEqualTo(1);
+    }
+
+    private static <T> List<T> advance(TimingWheel<T> wheel) {
+        List<T> expired = new ArrayList<>();
+        wheel.advance(expired::add);
+        return expired;
+    }
+
+    private static <T> int advanceUntilExpired(TimingWheel<T> wheel, T item) {
+        for (int ticks = 1; ticks <= 100; ticks++) {
+            if (advance(wheel).contains(item)) {
+                return ticks;
+            }
+        }
+        throw new AssertionError(item + " never expired");
+    }
+}
@@ -0,0 +1 @@
+export const bundle = 1;
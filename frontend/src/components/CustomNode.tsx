@@ -27,22 +27,26 @@ const MetricRow: React.FC<{ metric: DataGridItem; nodeName: string }> = ({ metri
   useEffect(() => {
     const fetchMetric = async () => {
       try {
-        const proxyUrl = buildMetricsUrl(metric.url, nodeName);
+        const proxyUrl = buildMetricsUrl(metric.url, nodeName, metric.valueField, metric.derive);
         log.debug(`Fetching metric for ${nodeName}:`, proxyUrl);
 
         const response = await fetch(proxyUrl);
 
         if (response.ok) {
           const data = await response.json();
-          const metricValue = getNestedValue(data, metric.valueField);
+          const metricValue = metric.derive ? data.value : getNestedValue(data, metric.valueField);
 
           if (metricValue !== undefined && metricValue !== null) {
             // Format numbers nicely
             const formatted = typeof metricValue === 'number'
-              ? metricValue.toLocaleString()
+              ? metricValue.toLocaleString(undefined, metric.derive ? { maximumFractionDigits: 2 } : undefined)
               : metricValue.toString();
             setValue(formatted);
             setError(false);
+          } else if (metric.derive && data.raw !== undefined && data.raw !== null) {
+            // The server needs a second sample before it can work out a rate
+            setValue('…');
+            setError(false);
           } else {
             setValue('N/A');
             setError(true);
@@ -71,7 +75,7 @@ const MetricRow: React.FC<{ metric: DataGridItem; nodeName: string }> = ({ metri
     // Refresh metrics every 30 seconds
     const interval = setInterval(fetchMetric, 30000);
     return () => clearInterval(interval);
-  }, [metric.url, metric.valueField, nodeName]);
+  }, [metric.url, metric.valueField, metric.derive, nodeName]);
 
   return (
     <div className="diagram-node-metric-row">
@@ -111,7 +115,7 @@ const CustomNode: React.FC<NodeProps<NodeData>> = ({ data, xPos, yPos }) => {
       });
 
       // Use the metrics proxy for all requests
-      const proxyUrl = buildMetricsUrl(data.status.url, data.name);
+      const proxyUrl = buildMetricsUrl(data.status.url, data.name, data.status.valueField);
       log.debug(`Using proxy URL: ${proxyUrl}`);
 
       const response = await fetch(proxyUrl, {
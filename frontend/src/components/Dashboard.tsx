@@ -1,5 +1,6 @@
 import { useState, useEffect } from 'react'
 import { Link } from 'react-router-dom'
+import { onSharedEvent } from '../lib/sse'
 import type { EventDto } from '../lib/sse'
 
 function Dashboard({ recent }: { recent: EventDto[] }) {
@@ -36,8 +37,15 @@ function Dashboard({ recent }: { recent: EventDto[] }) {
     };
 
     fetchServices();
-    const interval = setInterval(fetchServices, 10000); // Refresh every 10 seconds
-    return () => clearInterval(interval);
+    // Status changes are pushed over SSE; the slow poll only covers a dropped stream
+    const unsubscribe = onSharedEvent(e => {
+      if (e.event === 'SERVICE_STATUS' || e.event === 'SNAPSHOT') fetchServices();
+    });
+    const interval = setInterval(fetchServices, 60000);
+    return () => {
+      unsubscribe();
+      clearInterval(interval);
+    };
   }, []);
 
   const totalEvents = recent.length
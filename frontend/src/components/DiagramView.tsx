@@ -11,6 +11,7 @@ import {
 } from 'reactflow';
 import type { Connection, Edge } from 'reactflow';
 import 'reactflow/dist/style.css';
+import { onSharedEvent } from '../lib/sse';
 
 import CustomNode from './CustomNode';
 import CustomCurvedEdge from './CustomEdge';
@@ -82,6 +83,14 @@ const DiagramView: React.FC<DiagramViewProps> = ({ onConfigLoad, selectedDiagram
   const [edges, setEdges, onEdgesChange] = useEdgesState([]);
   const [config, setConfig] = useState<DiagramConfig | null>(null);
   const [loading, setLoading] = useState(true);
+  const [reloadKey, setReloadKey] = useState(0);
+
+  // Reload when the server reports that this diagram's file changed
+  useEffect(() => {
+    return onSharedEvent(e => {
+      if (e.event === 'DIAGRAM_UPDATED' && e.filename === selectedDiagram) setReloadKey(k => k + 1);
+    });
+  }, [selectedDiagram]);
 
   // Load configuration
   useEffect(() => {
@@ -219,7 +228,7 @@ const DiagramView: React.FC<DiagramViewProps> = ({ onConfigLoad, selectedDiagram
     };
 
     loadConfig();
-  }, [selectedDiagram]);
+  }, [selectedDiagram, reloadKey]);
 
   const onConnect = useCallback(
     (params: Connection) => setEdges((eds) => addEdge(params, eds)),
@@ -1,4 +1,5 @@
 import { useEffect, useState } from 'react'
+import { onSharedEvent } from '../lib/sse'
 
 function RAGPipeline() {
   // Real service data from service registry
@@ -141,8 +142,15 @@ function RAGPipeline() {
 
   // Periodic refresh - separate intervals to avoid flashing
   useEffect(() => {
-    const servicesInterval = setInterval(fetchServices, 10000);
-    return () => clearInterval(servicesInterval);
+    // Status changes are pushed over SSE; the slow poll only covers a dropped stream
+    const unsubscribe = onSharedEvent(e => {
+      if (e.event === 'SERVICE_STATUS' || e.event === 'SNAPSHOT') fetchServices();
+    });
+    const servicesInterval = setInterval(fetchServices, 60000);
+    return () => {
+      unsubscribe();
+      clearInterval(servicesInterval);
+    };
   }, [loading]);
 
   useEffect(() => {
@@ -197,41 +205,29 @@ function RAGPipeline() {
   // Fetch pipeline progress from all services
   const fetchPipelineProgress = async () => {
     try {
-      const [textProcResponse, embedProcResponse] = await Promise.all([
-        fetch('/api/services/textproc/files/processed', { credentials: 'include' }).catch(() => null),
-        fetch('/api/services/embedproc/files/processed', { credentials: 'include' }).catch(() => null)
-      ]);
-
-      let textProcFiles = 0;
-      let embedProcFiles = 0;
-
-      // Get textProc processed files
-      if (textProcResponse && textProcResponse.ok) {
-        const textData = await textProcResponse.json();
-        textProcFiles = (textData.files && textData.files.length > 0) ? textData.files.length : (textData.processedCount || 0);
+      // One aggregated call; the server fans out to the three services and caches the result
+      const response = await fetch('/api/services/rag-pipeline/progress', { credentials: 'include' });
+      if (!response.ok) {
+        console.warn('Failed to fetch pipeline progress:', response.status);
+        return;
       }
+      const data = await response.json();
 
-      // Get embedProc processed files
-      if (embedProcResponse && embedProcResponse.ok) {
-        const embedData = await embedProcResponse.json();
-        embedProcFiles = (embedData.files && embedData.files.length > 0) ? embedData.files.length : (embedData.processedCount || 0);
-        console.log('EmbedProc API response:', embedData, 'Extracted count:', embedProcFiles);
+      // Keep the persistent total if hdfsWatcher is temporarily unreachable
+      if (data.hdfsFiles > 0) {
+        setTotalFilesCount(data.hdfsFiles);
+        localStorage.setItem('imc-totalFilesCount', data.hdfsFiles.toString());
       }
-
-      // Use persistent total files count to prevent jumping to 0
-      // FIXED: Always use totalFilesCount if it's been set, never allow hdfsFiles to drop to 0
-      const currentHdfsCount = totalFilesCount > 0 ? totalFilesCount : 0;
-
-      console.log('DEBUG: hdfsFiles.length =', hdfsFiles.length, 'totalFilesCount =', totalFilesCount, 'currentHdfsCount =', currentHdfsCount);
+      const currentHdfsCount = data.hdfsFiles > 0 ? data.hdfsFiles : totalFilesCount;
 
       const newProgress = {
         hdfsFiles: currentHdfsCount,
-        textProcFiles,
-        embedProcFiles,
-        completeFiles: embedProcFiles // Complete = embedProc finished
+        textProcFiles: data.textProcFiles || 0,
+        embedProcFiles: data.embedProcFiles || 0,
+        completeFiles: data.completeFiles || 0
       };
 
-      console.log('Setting pipeline progress:', newProgress);
+      console.log('Setting pipeline progress:', newProgress, 'ETA (s):', data.etaSeconds);
       setPipelineProgress(newProgress);
 
     } catch (error) {
@@ -239,6 +235,39 @@ function RAGPipeline() {
     }
   };
 
+  // Wait for a background job to finish: JOB_PROGRESS events wake us up early, polling covers a missed event.
+  // Gives up with an error after timeoutMs; the job itself keeps running on the server.
+  const waitForJob = (jobId: string, timeoutMs = 5 * 60 * 1000): Promise<any> => new Promise(resolve => {
+    let done = false;
+    const check = async () => {
+      if (done) return;
+      try {
+        const res = await fetch(`/api/jobs/${jobId}`, { credentials: 'include' });
+        const job = await res.json();
+        if (!res.ok || ['SUCCEEDED', 'COMPLETED_WITH_ERRORS'].includes(job.status)) {
+          finish(job);
+        }
+      } catch (error) {
+        console.error('Error checking job status:', error);
+      }
+    };
+    const unsubscribe = onSharedEvent(e => {
+      if (e.event === 'JOB_PROGRESS' && e.jobId === jobId && e.step === undefined) check();
+    });
+    const poll = setInterval(check, 2000);
+    const deadline = setTimeout(() => finish({
+      error: `Job ${jobId} did not finish within ${Math.round(timeoutMs / 1000)}s; it may still be running`
+    }), timeoutMs);
+    const finish = (job: any) => {
+      if (done) return;
+      done = true;
+      clearInterval(poll);
+      clearTimeout(deadline);
+      unsubscribe();
+      resolve(job);
+    };
+  });
+
   // Restart entire pipeline
   const restartPipeline = async () => {
     try {
@@ -252,8 +281,9 @@ function RAGPipeline() {
       });
 
       if (response.ok) {
-        const data = await response.json();
-        console.log('Pipeline restart response:', data);
+        const accepted = await response.json();
+        console.log('Pipeline restart accepted:', accepted);
+        const data = await waitForJob(accepted.jobId);
 
         if (data.error) {
           alert(`Error: ${data.error}`);
@@ -43,10 +43,14 @@ export const buildApiUrl = (endpoint: string): string => {
 };
 
 // Helper function for metrics proxy
-export const buildMetricsUrl = (targetUrl: string, nodeName?: string): string => {
+export const buildMetricsUrl = (targetUrl: string, nodeName?: string, valueField?: string, derive?: string): string => {
   const encodedUrl = encodeURIComponent(targetUrl);
   const nodeParam = nodeName ? `&node=${encodeURIComponent(nodeName)}` : '';
-  return buildApiUrl(`${appConfig.api.metricsEndpoint}?url=${encodedUrl}${nodeParam}`);
+  // Naming the field lets the server push this value over /api/metrics/stream
+  const fieldParam = valueField ? `&field=${encodeURIComponent(valueField)}` : '';
+  // With derive the server answers { value: <derived value> } instead of the upstream response
+  const deriveParam = derive ? `&derive=${encodeURIComponent(derive)}` : '';
+  return buildApiUrl(`${appConfig.api.metricsEndpoint}?url=${encodedUrl}${nodeParam}${fieldParam}${deriveParam}`);
 };
 
 // Logging helper that respects log level
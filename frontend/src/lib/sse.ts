@@ -3,7 +3,7 @@ import { useEffect, useRef, useState } from 'react'
 export type EventDto = {
   app?: string
   stage?: string
-  event?: 'INIT' | 'HEARTBEAT' | 'FILE_PROCESSED'
+  event?: 'INIT' | 'HEARTBEAT' | 'FILE_PROCESSED' | 'SNAPSHOT' | 'SERVICE_STATUS' | 'JOB_PROGRESS' | 'DIAGRAM_UPDATED'
   instanceId?: string
   docId?: string
   timestamp: number
@@ -24,6 +24,12 @@ export type EventDto = {
   memoryUsedMB?: number
   pendingMessages?: number | null
   filename?: string | null
+  jobId?: string
+  jobStatus?: string
+  step?: string
+  completedSteps?: number
+  totalSteps?: number
+  change?: string
 }
 
 let sharedES: EventSource | null = null
@@ -35,10 +41,18 @@ let started = false
 let lastMessageAt = 0
 let reconnectDelayMs = 1000
 let missedChecks = 0
+let lastEventId: string | null = null
+
+function withLastEventId(url: string) {
+  // A new EventSource does not resend Last-Event-ID, so pass it explicitly to get missed events replayed
+  if (!lastEventId) return url
+  const sep = url.includes('?') ? '&' : '?'
+  return `${url}${sep}lastEventId=${encodeURIComponent(lastEventId)}`
+}
 
 function startEventSource(url: string, withCredentials: boolean) {
   if (sharedES) sharedES.close()
-  const es = new EventSource(url, { withCredentials })
+  const es = new EventSource(withLastEventId(url), { withCredentials })
   sharedES = es
   es.onopen = () => {
     sharedConnected = true
@@ -64,6 +78,7 @@ function startEventSource(url: string, withCredentials: boolean) {
     try {
       lastMessageAt = Date.now()
       missedChecks = 0
+      if (msg.lastEventId) lastEventId = msg.lastEventId
       const data = JSON.parse(msg.data) as EventDto
       sharedDebug.push(data)
       if (sharedDebug.length > 200) sharedDebug.shift()
@@ -93,6 +108,14 @@ function ensureEventSource(url: string, withCredentials: boolean) {
   }
 }
 
+// Listen on the shared stream without the per-second state polling of useSharedSSE; returns an unsubscribe function
+export function onSharedEvent(cb: (e: EventDto) => void): () => void {
+  sharedListeners.push(cb)
+  return () => {
+    sharedListeners = sharedListeners.filter(x => x !== cb)
+  }
+}
+
 export function useSharedSSE(url: string, options?: { withCredentials?: boolean; onEvent?: (e: EventDto) => void }) {
   const [connected, setConnected] = useState(sharedConnected)
   const [error, setError] = useState<string | null>(sharedError)
@@ -95,6 +95,8 @@ export interface DataGridItem {
   label: string;
   url: string;
   valueField: string;
+  // 'rate': valueField is a cumulative counter; show its per-second rate, worked out by the server
+  derive?: 'rate';
 }
 
 export interface NodeMetrics {